@@ -0,0 +1,136 @@
+package com.bank.system.benchmark;
+
+import com.bank.system.entity.SubAccountEntry;
+import com.bank.system.repository.SubAccountEntryRepository;
+import com.bank.system.service.BalanceCheckpointer;
+import com.bank.system.service.BalanceHistoryService;
+import com.bank.system.util.IdGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point-in-time balance of one sub-account with {@code entries} balance entries (one per second, ending a day
+ * ago) and a checkpoint every {@code checkpointEvery} entries, against replaying its whole history. Setup runs
+ * {@link BalanceCheckpointer} once and then checks {@code balanceAt} against an in-memory replay at random
+ * times, so a wrong checkpoint fails the run instead of producing a number.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BalanceHistoryBenchmark {
+
+    private static final int INSERT_CHUNK = 1000;
+    private static final int VERIFY_SAMPLES = 500;
+
+    @Param({"100000"})
+    public int entries;
+
+    @Param({"1000"})
+    public int checkpointEvery;
+
+    private ConfigurableApplicationContext context;
+    private BalanceHistoryService balanceHistoryService;
+    private SubAccountEntryRepository entryRepository;
+    private String subAccountId;
+    private long openedAt;
+    private long[] times;
+    private long[] balances;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = EmbeddedBank.start();
+        EmbeddedBank.seedUsers(context, 1);
+        balanceHistoryService = context.getBean(BalanceHistoryService.class);
+        entryRepository = context.getBean(SubAccountEntryRepository.class);
+        IdGenerator idGenerator = context.getBean(IdGenerator.class);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        String userId = EmbeddedBank.userId(0);
+        subAccountId = EmbeddedBank.subAccountId(0);
+
+        openedAt = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1) - entries * 1000L;
+        times = new long[entries];
+        balances = new long[entries];
+        Random random = new Random(42);
+        long balance = EmbeddedBank.INITIAL_BALANCE;
+        for (int i = 0; i < entries; i++) {
+            times[i] = openedAt + (i + 1) * 1000L;
+            balance += random.nextInt(20_001) - 10_000;
+            balances[i] = balance;
+        }
+
+        long opening = EmbeddedBank.INITIAL_BALANCE;
+        balanceHistoryService.saveCheckpoint(subAccountId, userId, opening, openedAt);
+        for (int from = 0; from < entries; from += INSERT_CHUNK) {
+            int to = Math.min(entries, from + INSERT_CHUNK);
+            int chunkStart = from;
+            transactionTemplate.executeWithoutResult(status -> {
+                List<SubAccountEntry> chunk = new ArrayList<>(to - chunkStart);
+                for (int i = chunkStart; i < to; i++) {
+                    SubAccountEntry entry = new SubAccountEntry();
+                    entry.setId(idGenerator.nextId());
+                    entry.setSubAccountId(subAccountId);
+                    entry.setUserId(userId);
+                    entry.setAmount(balances[i] - (i == 0 ? opening : balances[i - 1]));
+                    entry.setTimestamp(times[i]);
+                    chunk.add(entry);
+                    if ((i + 1) % checkpointEvery == 0) {
+                        balanceHistoryService.saveCheckpoint(subAccountId, userId, balances[i], times[i]);
+                    }
+                }
+                balanceHistoryService.recordEntries(chunk);
+            });
+        }
+        // Folds the tail after the last periodic checkpoint into one as the scheduled job would
+        context.getBean(BalanceCheckpointer.class).checkpoint();
+        verify();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Long checkpointed() {
+        return balanceHistoryService.balanceAt(subAccountId, randomTime());
+    }
+
+    @Benchmark
+    public long fullReplay() {
+        return EmbeddedBank.INITIAL_BALANCE + entryRepository.sumBetween(subAccountId, openedAt, randomTime());
+    }
+
+    private long randomTime() {
+        return ThreadLocalRandom.current().nextLong(openedAt, System.currentTimeMillis());
+    }
+
+    private void verify() {
+        Random random = new Random(7);
+        for (int i = 0; i < VERIFY_SAMPLES; i++) {
+            long at = openedAt + (long) (random.nextDouble() * (System.currentTimeMillis() - openedAt));
+            // Also probe exact entry and checkpoint times, where an off-by-one at the boundaries would show
+            if (i % 5 == 0) {
+                at = times[random.nextInt(entries)];
+            }
+            int index = Arrays.binarySearch(times, at);
+            int applied = index >= 0 ? index + 1 : -index - 1;
+            long expected = applied == 0 ? EmbeddedBank.INITIAL_BALANCE : balances[applied - 1];
+            Long actual = balanceHistoryService.balanceAt(subAccountId, at);
+            if (actual == null || actual != expected) {
+                throw new IllegalStateException("Balance at " + at + " is " + actual + ", replay gives " + expected);
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.bank.system.benchmark;
+
+import com.bank.system.dto.BankDTOs.BatchTransferItem;
+import com.bank.system.dto.BankDTOs.BatchTransferRequest;
+import com.bank.system.dto.BankDTOs.BatchTransferResult;
+import com.bank.system.dto.BankDTOs.TransactionRequest;
+import com.bank.system.service.TransactionService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paying {@code recipients} users from one sender: a single {@link TransactionService#batchTransfer} call
+ * against the same number of sequential {@link TransactionService#transfer} calls.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BatchTransferBenchmark {
+
+    @Param({"100", "1000"})
+    public int recipients;
+
+    private ConfigurableApplicationContext context;
+    private TransactionService transactionService;
+    private String senderId;
+    private List<String> recipientIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = EmbeddedBank.start();
+        EmbeddedBank.seedUsers(context, recipients + 1);
+        transactionService = context.getBean(TransactionService.class);
+        senderId = EmbeddedBank.userId(0);
+        recipientIds = new ArrayList<>();
+        for (int i = 1; i <= recipients; i++) {
+            recipientIds.add(EmbeddedBank.userId(i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<BatchTransferResult> batchTransfer() {
+        List<BatchTransferItem> items = new ArrayList<>(recipients);
+        for (String recipientId : recipientIds) {
+            BatchTransferItem item = new BatchTransferItem();
+            item.setRecipientAccountNumber(recipientId);
+            item.setAmount(1L);
+            items.add(item);
+        }
+        BatchTransferRequest req = new BatchTransferRequest();
+        req.setUserId(senderId);
+        req.setTransfers(items);
+        return transactionService.batchTransfer(req);
+    }
+
+    @Benchmark
+    public void sequentialTransfers() {
+        for (String recipientId : recipientIds) {
+            TransactionRequest req = new TransactionRequest();
+            req.setUserId(senderId);
+            req.setRecipientAccountNumber(recipientId);
+            req.setAmount(1L);
+            transactionService.transfer(req);
+        }
+    }
+}
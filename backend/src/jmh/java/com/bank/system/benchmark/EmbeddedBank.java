@@ -0,0 +1,117 @@
+package com.bank.system.benchmark;
+
+import com.bank.system.BankSystemApplication;
+import com.bank.system.entity.SubAccount;
+import com.bank.system.entity.User;
+import com.bank.system.enums.UserRole;
+import com.bank.system.enums.UserStatus;
+import com.bank.system.repository.SubAccountRepository;
+import com.bank.system.repository.UserRepository;
+import com.bank.system.service.BalanceSummaryService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Starts the full application against an in-memory H2 database (MySQL mode) and seeds users, each with one
+ * sub-account holding {@link #INITIAL_BALANCE}. Every setting can be overridden from the command line, e.g.
+ * {@code -jvmArgsAppend "-Dspring.datasource.url=jdbc:mysql://..."} to measure against a real MySQL.
+ */
+final class EmbeddedBank {
+
+    static final long INITIAL_BALANCE = 1_000_000_000_000L;
+    private static final int SEED_CHUNK = 500;
+
+    private EmbeddedBank() {
+    }
+
+    static ConfigurableApplicationContext start(String... overrides) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("spring.datasource.url",
+                "jdbc:h2:mem:bench-" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("spring.jpa.properties.hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        properties.put("spring.jpa.hibernate.ddl-auto", "create-drop");
+        properties.put("spring.jpa.show-sql", "false");
+        properties.put("server.port", "0");
+        properties.put("management.server.port", "0");
+        properties.put("app.balance-summary.reconcile.initial-delay-ms", "86400000");
+        properties.put("app.balance-history.checkpoint.initial-delay-ms", "86400000");
+        properties.put("app.reports.enabled", "false");
+        properties.put("logging.level.root", "WARN");
+        for (String override : overrides) {
+            int eq = override.indexOf('=');
+            properties.put(override.substring(0, eq), override.substring(eq + 1));
+        }
+
+        List<String> args = new ArrayList<>();
+        properties.forEach((key, value) -> args.add("--" + key + "=" + System.getProperty(key, value)));
+        return new SpringApplicationBuilder(BankSystemApplication.class)
+                .logStartupInfo(false)
+                .run(args.toArray(String[]::new));
+    }
+
+    /** Creates users 0..count-1 (see {@link #userId(int)}), each with the sub-account {@link #subAccountId(int)}. */
+    static void seedUsers(ConfigurableApplicationContext context, int count) {
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        SubAccountRepository subAccountRepository = context.getBean(SubAccountRepository.class);
+        BalanceSummaryService balanceSummaryService = context.getBean(BalanceSummaryService.class);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        String password = context.getBean(PasswordEncoder.class).encode("password");
+
+        for (int from = 0; from < count; from += SEED_CHUNK) {
+            int to = Math.min(count, from + SEED_CHUNK);
+            int chunkStart = from;
+            transactionTemplate.executeWithoutResult(status -> {
+                List<User> users = new ArrayList<>();
+                for (int i = chunkStart; i < to; i++) {
+                    User user = new User();
+                    user.setId(userId(i));
+                    user.setLoginId(loginId(i));
+                    user.setRealName("壓測用戶" + i);
+                    user.setPassword(password);
+                    user.setRole(UserRole.user);
+                    user.setStatus(UserStatus.active);
+                    users.add(user);
+                }
+                // Sub-accounts must reference the managed users, not the instances handed to saveAll
+                List<User> saved = userRepository.saveAll(users);
+
+                List<SubAccount> subAccounts = new ArrayList<>();
+                for (int i = chunkStart; i < to; i++) {
+                    SubAccount subAccount = new SubAccount();
+                    subAccount.setId(subAccountId(i));
+                    subAccount.setUser(saved.get(i - chunkStart));
+                    subAccount.setName("主帳戶");
+                    subAccount.setBalance(INITIAL_BALANCE);
+                    subAccount.setColor("#3b82f6");
+                    subAccounts.add(subAccount);
+                }
+                subAccountRepository.saveAll(subAccounts);
+                saved.forEach(user -> balanceSummaryService.createFor(user.getId(), INITIAL_BALANCE));
+            });
+        }
+    }
+
+    static String userId(int i) {
+        return String.format("9%011d", i);
+    }
+
+    static String loginId(int i) {
+        return "bench" + i;
+    }
+
+    static String subAccountId(int i) {
+        return "SUB001_" + userId(i);
+    }
+}
@@ -0,0 +1,29 @@
+package com.bank.system.benchmark;
+
+import com.bank.system.util.IdGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/** Transaction id generation, against the random UUIDs used before {@link IdGenerator}. Run with -t to add contention. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IdGeneratorBenchmark {
+
+    private final IdGenerator idGenerator = new IdGenerator(1);
+
+    @Benchmark
+    public String snowflake() {
+        return idGenerator.nextId();
+    }
+
+    @Benchmark
+    public String randomUuid() {
+        return UUID.randomUUID().toString();
+    }
+}
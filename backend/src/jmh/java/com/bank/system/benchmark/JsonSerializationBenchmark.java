@@ -0,0 +1,80 @@
+package com.bank.system.benchmark;
+
+import com.bank.system.entity.SubAccount;
+import com.bank.system.entity.Transaction;
+import com.bank.system.entity.User;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** JSON rendering of the sub-account list and a page of transaction history, as the controllers return them. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    @Param({"5"})
+    public int subAccountCount;
+
+    @Param({"50"})
+    public int transactionCount;
+
+    // Built the way Spring Boot builds the MVC ObjectMapper
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private List<SubAccount> subAccountList;
+    private List<Transaction> transactionList;
+
+    @Setup
+    public void setUp() {
+        User user = new User();
+        user.setId("900000000001");
+
+        subAccountList = new ArrayList<>();
+        for (int i = 0; i < subAccountCount; i++) {
+            SubAccount subAccount = new SubAccount();
+            subAccount.setId("SUB00" + i + "_900000000001");
+            subAccount.setUser(user);
+            subAccount.setName("子帳戶 " + i);
+            subAccount.setBalance(100_000L * (i + 1));
+            subAccount.setColor("#3b82f6");
+            subAccount.setCreatedAt(LocalDateTime.now());
+            subAccount.setVersion(0L);
+            subAccountList.add(subAccount);
+        }
+
+        transactionList = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < transactionCount; i++) {
+            Transaction tx = new Transaction();
+            tx.setId(String.format("0%012d", i));
+            tx.setUser(user);
+            tx.setType(i % 2 == 0 ? "轉帳支出" : "存款");
+            tx.setAmount(i % 2 == 0 ? -500L : 1200L);
+            tx.setNote(i % 2 == 0 ? "轉給 9000****0002" : "存入「主帳戶」");
+            tx.setTime("2026/01/01 下午 3:04:05");
+            tx.setTimestamp(now - i * 1000L);
+            tx.setSubAccountId(i % 2 == 0 ? null : "SUB000_900000000001");
+            transactionList.add(tx);
+        }
+    }
+
+    @Benchmark
+    public byte[] subAccounts() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(subAccountList);
+    }
+
+    @Benchmark
+    public byte[] transactionHistory() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(transactionList);
+    }
+}
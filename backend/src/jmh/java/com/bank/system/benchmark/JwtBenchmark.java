@@ -0,0 +1,69 @@
+package com.bank.system.benchmark;
+
+import com.bank.system.entity.User;
+import com.bank.system.enums.UserRole;
+import com.bank.system.security.JwtTokenProvider;
+import com.bank.system.security.TokenClaims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.security.Key;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token issue and verification in {@link JwtTokenProvider}. {@code legacyValidateThenGetUsername} is the
+ * request path before the parser was shared: a parser built and the signature verified twice per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtBenchmark {
+
+    // Same secret as JwtTokenProvider, so the legacy path verifies the same tokens
+    private static final Key KEY =
+            Keys.hmacShaKeyFor("MakeThisSecretLongEnoughForHS512AlgorithmMustBeAtLeast64BytesLong".getBytes());
+
+    private JwtTokenProvider provider;
+    private JwtTokenProvider cachingProvider;
+    private Authentication authentication;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        provider = new JwtTokenProvider(false, 0, 0);
+        cachingProvider = new JwtTokenProvider(true, 10_000, 30);
+        authentication = new UsernamePasswordAuthenticationToken("bench-user", null);
+        user = new User();
+        user.setId("900000000001");
+        user.setRole(UserRole.user);
+        token = provider.generateToken(authentication, user);
+    }
+
+    @Benchmark
+    public String generate() {
+        return provider.generateToken(authentication, user);
+    }
+
+    @Benchmark
+    public TokenClaims parse() {
+        return provider.parseToken(token);
+    }
+
+    @Benchmark
+    public TokenClaims parseWithVerifiedCache() {
+        return cachingProvider.parseToken(token);
+    }
+
+    @Benchmark
+    public String legacyValidateThenGetUsername() {
+        Jwts.parserBuilder().setSigningKey(KEY).build().parseClaimsJws(token);
+        return Jwts.parserBuilder().setSigningKey(KEY).build().parseClaimsJws(token).getBody().getSubject();
+    }
+}
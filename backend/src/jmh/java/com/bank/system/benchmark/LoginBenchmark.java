@@ -0,0 +1,62 @@
+package com.bank.system.benchmark;
+
+import com.bank.system.dto.BankDTOs.LoginRequest;
+import com.bank.system.service.LoginService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Login throughput through {@link LoginService} with 32 concurrent callers, for several sizes of the password
+ * hashing pool. To measure different core counts, restrict the forked JVM, e.g.
+ * {@code -jvmArgsAppend -XX:ActiveProcessorCount=4}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(32)
+public class LoginBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int hashingThreads;
+
+    @Param({"10"})
+    public int bcryptStrength;
+
+    @Param({"100"})
+    public int users;
+
+    private ConfigurableApplicationContext context;
+    private LoginService loginService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = EmbeddedBank.start(
+                "app.security.password-hashing.threads=" + hashingThreads,
+                "app.security.password.bcrypt-strength=" + bcryptStrength,
+                // Measure hashing capacity, not admission control
+                "app.security.login.max-concurrent=1000",
+                "app.security.password-hashing.queue-capacity=1000");
+        EmbeddedBank.seedUsers(context, users);
+        loginService = context.getBean(LoginService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Map<String, Object> login() {
+        LoginRequest req = new LoginRequest();
+        req.setLoginId(EmbeddedBank.loginId(ThreadLocalRandom.current().nextInt(users)));
+        req.setPassword("password");
+        return loginService.login(req).join();
+    }
+}
@@ -0,0 +1,198 @@
+package com.bank.system.benchmark;
+
+import com.bank.system.dto.BankDTOs.AccountActivity;
+import com.bank.system.dto.BankDTOs.DailyReportRow;
+import com.bank.system.dto.BankDTOs.TypeTotal;
+import com.bank.system.entity.Transaction;
+import com.bank.system.entity.User;
+import com.bank.system.reporting.ColumnarTransactionIndex;
+import com.bank.system.reporting.ReportService;
+import com.bank.system.repository.TransactionRepository;
+import com.bank.system.util.IdGenerator;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admin reports from the columnar index against the equivalent SQL GROUP BY queries on the transactions table,
+ * over {@code rows} transactions of 1000 users spread across the last 30 days. {@code parallelism} is the
+ * fork-join pool size of the columnar scans (0 = one thread per core). Setup checks that both give the same
+ * answers. The SQL daily report buckets by the fixed +08:00 offset of Asia/Taipei.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ReportingBenchmark {
+
+    private static final int USERS = 1000;
+    private static final int INSERT_CHUNK = 1000;
+    private static final long OFFSET_MILLIS = TimeUnit.HOURS.toMillis(8);
+    private static final String[] TYPES = { "存款", "提款", "轉帳支出", "轉帳收入", "內部轉帳" };
+
+    @Param({"500000"})
+    public int rows;
+
+    @Param({"1", "0"})
+    public int parallelism;
+
+    private ConfigurableApplicationContext context;
+    private ReportService reportService;
+    private EntityManager entityManager;
+    private LocalDate from;
+    private LocalDate to;
+    private long fromTimestamp;
+    private long toTimestamp;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = EmbeddedBank.start("app.reports.enabled=true", "app.reports.parallelism=" + parallelism,
+                "app.reports.settle-ms=0", "app.reports.initial-delay-ms=86400000",
+                "spring.jpa.properties.hibernate.jdbc.batch_size=" + INSERT_CHUNK);
+        EmbeddedBank.seedUsers(context, USERS);
+        seedTransactions();
+        context.getBean(ColumnarTransactionIndex.class).refresh();
+        reportService = context.getBean(ReportService.class);
+        entityManager = context.getBean(EntityManagerFactory.class).createEntityManager();
+
+        ZoneId zone = ZoneId.of("Asia/Taipei");
+        to = LocalDate.now(zone);
+        from = to.minusDays(30);
+        fromTimestamp = from.atStartOfDay(zone).toInstant().toEpochMilli();
+        toTimestamp = to.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        verify();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        entityManager.close();
+        context.close();
+    }
+
+    @Benchmark
+    public List<TypeTotal> columnarTotals() {
+        return reportService.totalsByType(from, to);
+    }
+
+    @Benchmark
+    public List<Object[]> sqlTotals() {
+        return entityManager.createQuery(
+                "SELECT t.type, COUNT(t), SUM(t.amount) FROM Transaction t " +
+                "WHERE t.timestamp >= :from AND t.timestamp < :to GROUP BY t.type", Object[].class)
+                .setParameter("from", fromTimestamp).setParameter("to", toTimestamp)
+                .getResultList();
+    }
+
+    @Benchmark
+    public List<AccountActivity> columnarTopAccounts() {
+        return reportService.topAccounts(from, to, 10, false);
+    }
+
+    @Benchmark
+    public List<Object[]> sqlTopAccounts() {
+        return entityManager.createQuery(
+                "SELECT t.user.id, COUNT(t), SUM(ABS(t.amount)) FROM Transaction t " +
+                "WHERE t.timestamp >= :from AND t.timestamp < :to " +
+                "GROUP BY t.user.id ORDER BY SUM(ABS(t.amount)) DESC, t.user.id", Object[].class)
+                .setParameter("from", fromTimestamp).setParameter("to", toTimestamp)
+                .setMaxResults(10)
+                .getResultList();
+    }
+
+    @Benchmark
+    public List<DailyReportRow> columnarDaily() {
+        return reportService.daily(from, to);
+    }
+
+    @Benchmark
+    public List<Object[]> sqlDaily() {
+        return entityManager.createQuery(
+                "SELECT (t.timestamp + :offset) / 86400000, COUNT(t), " +
+                "SUM(CASE WHEN t.type = '存款' THEN t.amount ELSE 0 END), " +
+                "SUM(CASE WHEN t.type = '提款' THEN -t.amount ELSE 0 END), " +
+                "SUM(CASE WHEN t.type = '轉帳支出' THEN -t.amount ELSE 0 END) FROM Transaction t " +
+                "WHERE t.timestamp >= :from AND t.timestamp < :to " +
+                "GROUP BY (t.timestamp + :offset) / 86400000 ORDER BY 1", Object[].class)
+                .setParameter("offset", OFFSET_MILLIS)
+                .setParameter("from", fromTimestamp).setParameter("to", toTimestamp)
+                .getResultList();
+    }
+
+    private void seedTransactions() {
+        TransactionRepository transactionRepository = context.getBean(TransactionRepository.class);
+        IdGenerator idGenerator = context.getBean(IdGenerator.class);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        Random random = new Random(42);
+        long now = System.currentTimeMillis();
+        long span = TimeUnit.DAYS.toMillis(30);
+
+        for (int from = 0; from < rows; from += INSERT_CHUNK) {
+            int count = Math.min(INSERT_CHUNK, rows - from);
+            List<Transaction> chunk = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                User user = new User();
+                user.setId(EmbeddedBank.userId(random.nextInt(USERS)));
+                String type = TYPES[random.nextInt(TYPES.length)];
+                long amount = 1 + random.nextInt(100_000);
+                Transaction tx = new Transaction();
+                tx.setId(idGenerator.nextId());
+                tx.setUser(user);
+                tx.setType(type);
+                tx.setAmount(switch (type) {
+                    case "提款", "轉帳支出" -> -amount;
+                    case "內部轉帳" -> 0L;
+                    default -> amount;
+                });
+                tx.setNote("");
+                tx.setTime("");
+                tx.setTimestamp(now - (long) (random.nextDouble() * span));
+                chunk.add(tx);
+            }
+            transactionTemplate.executeWithoutResult(status -> transactionRepository.saveAll(chunk));
+        }
+    }
+
+    private void verify() {
+        Map<String, long[]> sql = new HashMap<>();
+        for (Object[] row : sqlTotals()) {
+            sql.put((String) row[0], new long[] { ((Number) row[1]).longValue(), ((Number) row[2]).longValue() });
+        }
+        List<TypeTotal> columnar = columnarTotals();
+        if (columnar.size() != sql.size()) {
+            throw new IllegalStateException("Type totals differ: " + columnar + " vs " + sql.keySet());
+        }
+        for (TypeTotal total : columnar) {
+            long[] expected = sql.get(total.getType());
+            if (expected == null || expected[0] != total.getCount() || expected[1] != total.getAmount()) {
+                throw new IllegalStateException("Totals for " + total.getType() + " differ: " + total);
+            }
+        }
+
+        Object[] top = sqlTopAccounts().get(0);
+        AccountActivity first = columnarTopAccounts().get(0);
+        if (((Number) top[2]).longValue() != first.getVolume()) {
+            throw new IllegalStateException("Top account volume differs: " + first + " vs " + top[0] + "=" + top[2]);
+        }
+
+        long sqlTransactions = sqlDaily().stream().mapToLong(row -> ((Number) row[1]).longValue()).sum();
+        long columnarTransactions = columnarDaily().stream().mapToLong(DailyReportRow::getTransactions).sum();
+        if (sqlTransactions != columnarTransactions || columnarTransactions != rows) {
+            throw new IllegalStateException("Daily transaction counts differ: " + columnarTransactions
+                    + " vs " + sqlTransactions + " of " + rows);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.bank.system.benchmark;
+
+import com.bank.system.entity.Transaction;
+import com.bank.system.entity.User;
+import com.bank.system.repository.TransactionRepository;
+import com.bank.system.util.IdGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserting {@code rows} transaction rows in one database transaction, with Snowflake or random UUID ids and
+ * with or without Hibernate JDBC batching. Index fragmentation from random ids only shows on MySQL (see
+ * {@link EmbeddedBank} for pointing the benchmark at one).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TransactionInsertBenchmark {
+
+    @Param({"snowflake", "uuid"})
+    public String ids;
+
+    @Param({"1", "50"})
+    public int jdbcBatchSize;
+
+    @Param({"500"})
+    public int rows;
+
+    private ConfigurableApplicationContext context;
+    private TransactionRepository transactionRepository;
+    private TransactionTemplate transactionTemplate;
+    private IdGenerator idGenerator;
+    private User user;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = EmbeddedBank.start("spring.jpa.properties.hibernate.jdbc.batch_size=" + jdbcBatchSize);
+        EmbeddedBank.seedUsers(context, 1);
+        transactionRepository = context.getBean(TransactionRepository.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        idGenerator = context.getBean(IdGenerator.class);
+        user = new User();
+        user.setId(EmbeddedBank.userId(0));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void insert() {
+        List<Transaction> batch = new ArrayList<>(rows);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < rows; i++) {
+            Transaction tx = new Transaction();
+            tx.setId("uuid".equals(ids) ? UUID.randomUUID().toString() : idGenerator.nextId());
+            tx.setUser(user);
+            tx.setType("存款");
+            tx.setAmount(100L);
+            tx.setNote("存入「主帳戶」");
+            tx.setTime("2026/01/01 下午 3:04:05");
+            tx.setTimestamp(now);
+            tx.setSubAccountId(EmbeddedBank.subAccountId(0));
+            batch.add(tx);
+        }
+        transactionTemplate.executeWithoutResult(status -> transactionRepository.saveAll(batch));
+    }
+}
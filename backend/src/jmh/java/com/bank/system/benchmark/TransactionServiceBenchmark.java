@@ -0,0 +1,77 @@
+package com.bank.system.benchmark;
+
+import com.bank.system.dto.BankDTOs.TransactionRequest;
+import com.bank.system.service.TransactionService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end deposit, withdraw and transfer through {@link TransactionService} on the embedded database, for
+ * the default JPA engine and the sharded in-memory ledger. Accounts are picked at random from the seeded users;
+ * use -t to raise concurrency (fewer users means more contention on the same rows).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(4)
+public class TransactionServiceBenchmark {
+
+    @Param({"jpa", "sharded"})
+    public String engine;
+
+    @Param({"1000"})
+    public int users;
+
+    private ConfigurableApplicationContext context;
+    private TransactionService transactionService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = EmbeddedBank.start("app.ledger.engine=" + engine);
+        EmbeddedBank.seedUsers(context, users);
+        transactionService = context.getBean(TransactionService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void deposit() {
+        int user = ThreadLocalRandom.current().nextInt(users);
+        TransactionRequest req = new TransactionRequest();
+        req.setUserId(EmbeddedBank.userId(user));
+        req.setSubAccountId(EmbeddedBank.subAccountId(user));
+        req.setAmount(100L);
+        transactionService.deposit(req);
+    }
+
+    @Benchmark
+    public void withdraw() {
+        int user = ThreadLocalRandom.current().nextInt(users);
+        TransactionRequest req = new TransactionRequest();
+        req.setUserId(EmbeddedBank.userId(user));
+        req.setSubAccountId(EmbeddedBank.subAccountId(user));
+        req.setAmount(100L);
+        transactionService.withdraw(req);
+    }
+
+    @Benchmark
+    public void transfer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int sender = random.nextInt(users);
+        int recipient = (sender + 1 + random.nextInt(users - 1)) % users;
+        TransactionRequest req = new TransactionRequest();
+        req.setUserId(EmbeddedBank.userId(sender));
+        req.setRecipientAccountNumber(EmbeddedBank.userId(recipient));
+        req.setAmount(100L);
+        transactionService.transfer(req);
+    }
+}
@@ -0,0 +1,61 @@
+package com.bank.system.service;
+
+import com.bank.system.entity.Transaction;
+import com.bank.system.util.IdGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building {@link Transaction} rows in {@link TransactionService}, without the database: the current
+ * {@code newTransaction} (which compiles its DateTimeFormatter pattern on every call), the two masked rows
+ * of a transfer, and the display-time formatting on its own with a per-call and a shared formatter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionConstructionBenchmark {
+
+    private static final DateTimeFormatter SHARED_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyy/MM/dd a h:mm:ss", Locale.TAIWAN);
+
+    private TransactionService transactionService;
+
+    @Setup
+    public void setUp() {
+        transactionService = new TransactionService();
+        Field field = ReflectionUtils.findField(TransactionService.class, "idGenerator");
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, transactionService, new IdGenerator(1));
+    }
+
+    @Benchmark
+    public Transaction newTransaction() {
+        return transactionService.newTransaction("900000000001", "存款", 1000L, "存入「主帳戶」", "SUB001_900000000001");
+    }
+
+    @Benchmark
+    public List<Transaction> transferTransactions() {
+        return transactionService.transferTransactions("900000000001", "SUB001_900000000001",
+                "900000000002", "SUB001_900000000002", 1000L);
+    }
+
+    @Benchmark
+    public String formatTimePerCallPattern() {
+        return LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy/MM/dd a h:mm:ss", Locale.TAIWAN));
+    }
+
+    @Benchmark
+    public String formatTimeSharedFormatter() {
+        return LocalDateTime.now().format(SHARED_FORMATTER);
+    }
+}
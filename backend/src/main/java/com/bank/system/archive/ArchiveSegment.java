@@ -0,0 +1,299 @@
+package com.bank.system.archive;
+
+import com.bank.system.dto.BankDTOs.TransactionView;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * One archived month of transactions, held column by column. Rows are sorted by user and, within a user, newest
+ * first, so a user's history is one contiguous range. On disk the columns follow each other in a gzip stream:
+ * user ids, types and sub-account ids are dictionary-encoded and timestamps are delta-encoded. Immutable; a
+ * changed month is written to a new file that replaces the old one.
+ */
+final class ArchiveSegment {
+
+    private static final int MAGIC = 0x42545841;
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String PREFIX = "transactions-";
+    private static final String SUFFIX = ".bin.gz";
+
+    private final YearMonth month;
+    // Sorted; rows of userIds[u] are userStart[u] until userStart[u + 1]
+    private final String[] userIds;
+    private final int[] userStart;
+    private final String[] types;
+    private final int[] typeCodes;
+    private final String[] subAccountIds;
+    // -1 for rows without a sub-account
+    private final int[] subAccountCodes;
+    private final long[] timestamps;
+    private final long[] amounts;
+    private final String[] ids;
+    private final String[] times;
+    private final String[] notes;
+
+    private ArchiveSegment(YearMonth month, String[] userIds, int[] userStart, String[] types, int[] typeCodes,
+                           String[] subAccountIds, int[] subAccountCodes, long[] timestamps, long[] amounts,
+                           String[] ids, String[] times, String[] notes) {
+        this.month = month;
+        this.userIds = userIds;
+        this.userStart = userStart;
+        this.types = types;
+        this.typeCodes = typeCodes;
+        this.subAccountIds = subAccountIds;
+        this.subAccountCodes = subAccountCodes;
+        this.timestamps = timestamps;
+        this.amounts = amounts;
+        this.ids = ids;
+        this.times = times;
+        this.notes = notes;
+    }
+
+    static ArchiveSegment build(YearMonth month, Collection<? extends TransactionView> rows) {
+        List<TransactionView> sorted = new ArrayList<>(rows);
+        sorted.sort(Comparator.comparing(TransactionView::getUserId).thenComparing(TransactionArchive.NEWEST_FIRST));
+        int size = sorted.size();
+
+        List<String> users = new ArrayList<>();
+        List<Integer> starts = new ArrayList<>();
+        Dictionary types = new Dictionary();
+        Dictionary subAccounts = new Dictionary();
+        int[] typeCodes = new int[size];
+        int[] subAccountCodes = new int[size];
+        long[] timestamps = new long[size];
+        long[] amounts = new long[size];
+        String[] ids = new String[size];
+        String[] times = new String[size];
+        String[] notes = new String[size];
+        for (int i = 0; i < size; i++) {
+            TransactionView row = sorted.get(i);
+            if (users.isEmpty() || !users.get(users.size() - 1).equals(row.getUserId())) {
+                users.add(row.getUserId());
+                starts.add(i);
+            }
+            typeCodes[i] = types.code(row.getType());
+            subAccountCodes[i] = subAccounts.code(row.getSubAccountId());
+            timestamps[i] = row.getTimestamp();
+            amounts[i] = row.getAmount();
+            ids[i] = row.getId();
+            times[i] = row.getTime();
+            notes[i] = row.getNote();
+        }
+        starts.add(size);
+
+        return new ArchiveSegment(month, users.toArray(String[]::new),
+                starts.stream().mapToInt(Integer::intValue).toArray(), types.values(), typeCodes,
+                subAccounts.values(), subAccountCodes, timestamps, amounts, ids, times, notes);
+    }
+
+    static String fileName(YearMonth month) {
+        return PREFIX + month + SUFFIX;
+    }
+
+    /** Returns the month of an archive file, or null for anything else in the directory. */
+    static YearMonth parseMonth(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(PREFIX) || !name.endsWith(SUFFIX)) {
+            return null;
+        }
+        return YearMonth.parse(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    /** Writes to a temporary file, syncs it and renames it over {@code file}, so readers never see a partial file. */
+    void write(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(tmp.toFile())) {
+            GZIPOutputStream gzip = new GZIPOutputStream(fileOut, BUFFER_SIZE);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(gzip, BUFFER_SIZE));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(ids.length);
+            writeStrings(out, userIds);
+            writeInts(out, userStart);
+            writeStrings(out, types);
+            writeInts(out, typeCodes);
+            writeStrings(out, subAccountIds);
+            writeInts(out, subAccountCodes);
+            long previous = 0;
+            for (long timestamp : timestamps) {
+                out.writeLong(timestamp - previous);
+                previous = timestamp;
+            }
+            for (long amount : amounts) {
+                out.writeLong(amount);
+            }
+            writeStrings(out, ids);
+            writeStrings(out, times);
+            writeStrings(out, notes);
+            out.flush();
+            gzip.finish();
+            fileOut.getChannel().force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static ArchiveSegment read(YearMonth month, Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file), BUFFER_SIZE), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a transaction archive: " + file);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported transaction archive version " + version + ": " + file);
+            }
+            int size = in.readInt();
+            String[] userIds = readStrings(in);
+            int[] userStart = readInts(in);
+            String[] types = readStrings(in);
+            int[] typeCodes = readInts(in);
+            String[] subAccountIds = readStrings(in);
+            int[] subAccountCodes = readInts(in);
+            long[] timestamps = new long[size];
+            long previous = 0;
+            for (int i = 0; i < size; i++) {
+                previous += in.readLong();
+                timestamps[i] = previous;
+            }
+            long[] amounts = new long[size];
+            for (int i = 0; i < size; i++) {
+                amounts[i] = in.readLong();
+            }
+            String[] ids = readStrings(in);
+            String[] times = readStrings(in);
+            String[] notes = readStrings(in);
+            return new ArchiveSegment(month, userIds, userStart, types, typeCodes, subAccountIds, subAccountCodes,
+                    timestamps, amounts, ids, times, notes);
+        }
+    }
+
+    YearMonth getMonth() {
+        return month;
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    /** Returns {start, end} of the user's rows, or null if the user has none in this month. */
+    int[] userRange(String userId) {
+        int u = Arrays.binarySearch(userIds, userId);
+        return u < 0 ? null : new int[] { userStart[u], userStart[u + 1] };
+    }
+
+    long timestamp(int row) {
+        return timestamps[row];
+    }
+
+    String id(int row) {
+        return ids[row];
+    }
+
+    String type(int row) {
+        return types[typeCodes[row]];
+    }
+
+    String subAccountId(int row) {
+        int code = subAccountCodes[row];
+        return code < 0 ? null : subAccountIds[code];
+    }
+
+    TransactionView view(String userId, int row) {
+        return new ArchivedTransaction(ids[row], userId, type(row), amounts[row], notes[row], times[row],
+                timestamps[row], subAccountId(row));
+    }
+
+    /** Every row, user by user. */
+    Stream<TransactionView> stream() {
+        return IntStream.range(0, userIds.length).boxed().flatMap(u ->
+                IntStream.range(userStart[u], userStart[u + 1]).mapToObj(row -> view(userIds[u], row)));
+    }
+
+    ArchiveSegment withoutUser(String userId) {
+        return build(month, stream().filter(row -> !row.getUserId().equals(userId)).toList());
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static int[] readInts(DataInputStream in) throws IOException {
+        int[] values = new int[in.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    private static void writeStrings(DataOutputStream out, String[] values) throws IOException {
+        out.writeInt(values.length);
+        for (String value : values) {
+            if (value == null) {
+                out.writeInt(-1);
+                continue;
+            }
+            // Length-prefixed UTF-8 instead of writeUTF, which is limited to 64 KB (notes are TEXT)
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String[] readStrings(DataInputStream in) throws IOException {
+        String[] values = new String[in.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            int length = in.readInt();
+            if (length < 0) {
+                continue;
+            }
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            values[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return values;
+    }
+
+    private static final class Dictionary {
+        final Map<String, Integer> codes = new HashMap<>();
+        final List<String> values = new ArrayList<>();
+
+        int code(String value) {
+            if (value == null) {
+                return -1;
+            }
+            return codes.computeIfAbsent(value, v -> {
+                values.add(v);
+                return values.size() - 1;
+            });
+        }
+
+        String[] values() {
+            return values.toArray(String[]::new);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.bank.system.archive;
+
+import com.bank.system.dto.BankDTOs.TransactionView;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A transaction row read back from the {@link TransactionArchive}.
+ */
+@Getter
+@AllArgsConstructor
+public class ArchivedTransaction implements TransactionView {
+    private final String id;
+    private final String userId;
+    private final String type;
+    private final Long amount;
+    private final String note;
+    private final String time;
+    private final Long timestamp;
+    private final String subAccountId;
+}
@@ -0,0 +1,233 @@
+package com.bank.system.archive;
+
+import com.bank.system.dto.BankDTOs.TransactionView;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+
+/**
+ * Cold tier of the transactions table: one {@link ArchiveSegment} file per month under app.transactions.archive.dir,
+ * filled by {@link TransactionArchiver}. Recently used months are kept decoded in memory
+ * (app.transactions.archive.cached-months). Months are calendar months in app.transactions.archive.zone.
+ * Writes synchronize on the archive itself; the archiver holds the same lock while it moves a month.
+ */
+@Component
+public class TransactionArchive {
+
+    /** History order: newest first, ties broken by id like the history queries. */
+    public static final Comparator<TransactionView> NEWEST_FIRST =
+            Comparator.comparing(TransactionView::getTimestamp).thenComparing(TransactionView::getId).reversed();
+
+    private final Path dir;
+    private final ZoneId zoneId;
+    private final ConcurrentSkipListSet<YearMonth> months = new ConcurrentSkipListSet<>();
+    private final LoadingCache<YearMonth, ArchiveSegment> segments;
+
+    public TransactionArchive(@Value("${app.transactions.archive.dir:./data/transaction-archive}") String directory,
+                              @Value("${app.transactions.archive.zone:Asia/Taipei}") String zone,
+                              @Value("${app.transactions.archive.cached-months:12}") long cachedMonths,
+                              MeterRegistry meterRegistry) {
+        this.dir = Paths.get(directory);
+        this.zoneId = ZoneId.of(zone);
+        this.segments = Caffeine.newBuilder()
+                .maximumSize(cachedMonths)
+                .recordStats()
+                .build(month -> {
+                    try {
+                        return ArchiveSegment.read(month, file(month));
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+        CaffeineCacheMetrics.monitor(meterRegistry, segments, "transactionArchive");
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(ArchiveSegment::parseMonth).filter(Objects::nonNull).forEach(months::add);
+        }
+    }
+
+    public ZoneId getZoneId() {
+        return zoneId;
+    }
+
+    public YearMonth monthOf(long timestamp) {
+        return YearMonth.from(Instant.ofEpochMilli(timestamp).atZone(zoneId));
+    }
+
+    public long monthStart(YearMonth month) {
+        return month.atDay(1).atStartOfDay(zoneId).toInstant().toEpochMilli();
+    }
+
+    /** End (exclusive, epoch millis) of the newest archived month, or null if nothing is archived. */
+    public Long archivedUntil() {
+        YearMonth newest = months.isEmpty() ? null : months.last();
+        return newest != null ? monthStart(newest.plusMonths(1)) : null;
+    }
+
+    /** Same filters, cursor and order as {@code TransactionRepository.findHistoryPage}. */
+    public List<TransactionView> findHistoryPage(String userId, Long beforeTimestamp, String beforeId, String type,
+                                                 String subAccountId, Long fromTimestamp, Long toTimestamp,
+                                                 int limit) {
+        List<TransactionView> page = new ArrayList<>();
+        for (YearMonth month : months.descendingSet()) {
+            long start = monthStart(month);
+            if ((beforeTimestamp != null && start > beforeTimestamp) || (toTimestamp != null && start >= toTimestamp)) {
+                continue;
+            }
+            if (fromTimestamp != null && monthStart(month.plusMonths(1)) <= fromTimestamp) {
+                break;
+            }
+            ArchiveSegment segment = segments.get(month);
+            int[] range = segment.userRange(userId);
+            if (range == null) {
+                continue;
+            }
+            for (int row = range[0]; row < range[1] && page.size() < limit; row++) {
+                long timestamp = segment.timestamp(row);
+                if (fromTimestamp != null && timestamp < fromTimestamp) {
+                    // Rows are newest first, everything after this is older still
+                    break;
+                }
+                if (beforeTimestamp != null && (timestamp > beforeTimestamp
+                        || (timestamp == beforeTimestamp && segment.id(row).compareTo(beforeId) >= 0))) {
+                    continue;
+                }
+                if ((toTimestamp != null && timestamp >= toTimestamp)
+                        || (type != null && !type.equals(segment.type(row)))
+                        || (subAccountId != null && !subAccountId.equals(segment.subAccountId(row)))) {
+                    continue;
+                }
+                page.add(segment.view(userId, row));
+            }
+            if (page.size() >= limit) {
+                break;
+            }
+        }
+        return page;
+    }
+
+    /** All archived rows of a user, newest first. */
+    public List<TransactionView> findByUser(String userId) {
+        List<TransactionView> rows = new ArrayList<>();
+        for (YearMonth month : months.descendingSet()) {
+            ArchiveSegment segment = segments.get(month);
+            int[] range = segment.userRange(userId);
+            if (range != null) {
+                for (int row = range[0]; row < range[1]; row++) {
+                    rows.add(segment.view(userId, row));
+                }
+            }
+        }
+        return rows;
+    }
+
+    public long countByUser(String userId) {
+        long count = 0;
+        for (YearMonth month : months) {
+            int[] range = segments.get(month).userRange(userId);
+            if (range != null) {
+                count += range[1] - range[0];
+            }
+        }
+        return count;
+    }
+
+    /** Timestamp of the user's newest archived row, or null. */
+    public Long lastTimestamp(String userId) {
+        for (YearMonth month : months.descendingSet()) {
+            ArchiveSegment segment = segments.get(month);
+            int[] range = segment.userRange(userId);
+            if (range != null) {
+                return segment.timestamp(range[0]);
+            }
+        }
+        return null;
+    }
+
+    /** Archived months, oldest first. */
+    public List<YearMonth> months() {
+        return List.copyOf(months);
+    }
+
+    /** The month's rows grouped by user, each user's newest first. */
+    public Stream<TransactionView> streamMonth(YearMonth month) {
+        return segments.get(month).stream();
+    }
+
+    /** Every archived row, oldest month first; months are decoded one at a time as the stream advances. */
+    public Stream<TransactionView> streamAll() {
+        return List.copyOf(months).stream().flatMap(month -> segments.get(month).stream());
+    }
+
+    /**
+     * Adds rows to a month, merging them with what is already archived for it; a row already there (same id) is
+     * replaced rather than duplicated.
+     */
+    public synchronized void store(YearMonth month, List<? extends TransactionView> rows) throws IOException {
+        Map<String, TransactionView> merged = new LinkedHashMap<>();
+        if (months.contains(month)) {
+            segments.get(month).stream().forEach(row -> merged.put(row.getId(), row));
+        }
+        rows.forEach(row -> merged.put(row.getId(), row));
+
+        ArchiveSegment segment = ArchiveSegment.build(month, merged.values());
+        Files.createDirectories(dir);
+        segment.write(file(month));
+        segments.put(month, segment);
+        months.add(month);
+    }
+
+    /** Removes a user's rows from every month; returns how many were removed. */
+    public synchronized long deleteByUser(String userId) throws IOException {
+        long removed = 0;
+        for (YearMonth month : List.copyOf(months)) {
+            ArchiveSegment segment = segments.get(month);
+            int[] range = segment.userRange(userId);
+            if (range == null) {
+                continue;
+            }
+            ArchiveSegment rest = segment.withoutUser(userId);
+            if (rest.size() == 0) {
+                months.remove(month);
+                segments.invalidate(month);
+                Files.deleteIfExists(file(month));
+            } else {
+                rest.write(file(month));
+                segments.put(month, rest);
+            }
+            removed += range[1] - range[0];
+        }
+        return removed;
+    }
+
+    private Path file(YearMonth month) {
+        return dir.resolve(ArchiveSegment.fileName(month));
+    }
+}
@@ -0,0 +1,94 @@
+package com.bank.system.archive;
+
+import com.bank.system.dto.BankDTOs.TransactionView;
+import com.bank.system.repository.TransactionRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Moves closed months out of the transactions table into the {@link TransactionArchive}, enabled with
+ * app.transactions.archive.enabled=true. The current month and the app.transactions.archive.hot-months before it
+ * stay in the table. A month is written to its archive file (and synced) before its rows are deleted, so a
+ * failure in between only leaves rows in both tiers; reads return them once and the next run merges them.
+ */
+@Component
+@ConditionalOnProperty(name = "app.transactions.archive.enabled", havingValue = "true")
+public class TransactionArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionArchiver.class);
+
+    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private TransactionArchive archive;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    @Value("${app.transactions.archive.hot-months:3}")
+    private int hotMonths;
+
+    @Value("${app.transactions.archive.delete-chunk-size:1000}")
+    private int deleteChunkSize;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(initialDelayString = "${app.transactions.archive.initial-delay-ms:60000}",
+               fixedDelayString = "${app.transactions.archive.interval-ms:86400000}")
+    public void scheduledArchive() {
+        archive();
+    }
+
+    /** Archives every month before the hot window, oldest first; returns the number of rows moved. */
+    public synchronized long archive() {
+        long boundary = archive.monthStart(YearMonth.now(archive.getZoneId()).minusMonths(hotMonths));
+        long moved = 0;
+        Long oldest;
+        while ((oldest = transactionRepository.findOldestTimestampBefore(boundary)) != null) {
+            YearMonth month = archive.monthOf(oldest);
+            try {
+                moved += archiveMonth(month);
+            } catch (IOException | RuntimeException ex) {
+                log.error("Archiving transactions of {} failed, will retry on the next run", month, ex);
+                break;
+            }
+        }
+        if (moved > 0) {
+            log.info("Archived {} transactions older than {}", moved, YearMonth.now(archive.getZoneId()).minusMonths(hotMonths));
+        }
+        return moved;
+    }
+
+    private int archiveMonth(YearMonth month) throws IOException {
+        // Under the archive's own lock from read to delete: a user deleted meanwhile has their archived rows
+        // removed after commit, which then waits until the rows read here are stored
+        synchronized (archive) {
+            // The whole month is read (and encoded) in memory
+            List<TransactionView> rows = transactionRepository.findViewsBetween(
+                    archive.monthStart(month), archive.monthStart(month.plusMonths(1)));
+            archive.store(month, rows);
+
+            // By id rather than by time range, so a row that arrived after the read is left for the next run
+            List<String> ids = rows.stream().map(TransactionView::getId).toList();
+            for (int from = 0; from < ids.size(); from += deleteChunkSize) {
+                List<String> chunk = ids.subList(from, Math.min(from + deleteChunkSize, ids.size()));
+                transactionTemplate.executeWithoutResult(status -> transactionRepository.deleteByIdIn(chunk));
+            }
+            log.debug("Archived {} transactions of {}", rows.size(), month);
+            return rows.size();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.bank.system.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Broadcasts cache invalidations to every node running the application. Selected with
+ * app.cache.invalidation.bus (outbox or in-jvm); without a bus, invalidations stay local to the node.
+ */
+public interface CacheInvalidationBus {
+
+    /**
+     * Publishes an event. Called inside the transaction that made the change (if any); implementations must
+     * not deliver it to other nodes before that transaction commits, and must drop it if it rolls back.
+     */
+    void publish(CacheInvalidationEvent event);
+
+    /** Registers a listener for events from all nodes, including this one. */
+    void subscribe(Consumer<CacheInvalidationEvent> listener);
+}
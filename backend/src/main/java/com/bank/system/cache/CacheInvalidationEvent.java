@@ -0,0 +1,7 @@
+package com.bank.system.cache;
+
+import com.bank.system.enums.CacheRegion;
+
+/** One evicted key, tagged with the node that caused the change so that node can skip its own events. */
+public record CacheInvalidationEvent(CacheRegion region, String key, String originNodeId) {
+}
@@ -0,0 +1,89 @@
+package com.bank.system.cache;
+
+import com.bank.system.enums.CacheRegion;
+import com.bank.system.security.PrincipalCache;
+import com.bank.system.service.AccountSnapshotCache;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.UUID;
+
+/**
+ * Single entry point for evicting cached user state. Evicts the local caches after the current transaction
+ * commits and publishes the same keys on the {@link CacheInvalidationBus} so other nodes evict them too.
+ */
+@Component
+public class CacheInvalidator {
+
+    // Per application context rather than per JVM, so two contexts in one JVM behave like two nodes
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Autowired private AccountSnapshotCache accountSnapshotCache;
+    @Autowired private PrincipalCache principalCache;
+    @Autowired(required = false) private CacheInvalidationBus bus;
+
+    @PostConstruct
+    void init() {
+        if (bus != null) {
+            bus.subscribe(event -> {
+                if (!nodeId.equals(event.originNodeId())) {
+                    evictLocal(event.region(), event.key());
+                }
+            });
+        }
+    }
+
+    /** The user's fields, sub-accounts, balances or favorites changed. */
+    public void accountSnapshotChanged(String... userIds) {
+        for (String userId : userIds) {
+            invalidate(CacheRegion.accountSnapshot, userId);
+        }
+    }
+
+    /** The user's loginId or role changed, or the user was deleted. */
+    public void principalChanged(String loginId) {
+        invalidate(CacheRegion.principal, loginId);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    private void invalidate(CacheRegion region, String key) {
+        if (key == null) {
+            return;
+        }
+        runAfterCommit(() -> evictLocal(region, key));
+        if (bus != null) {
+            bus.publish(new CacheInvalidationEvent(region, key, nodeId));
+        }
+    }
+
+    private void evictLocal(CacheRegion region, String key) {
+        switch (region) {
+            case accountSnapshot -> accountSnapshotCache.evict(key);
+            case principal -> principalCache.evict(key);
+        }
+    }
+
+    /**
+     * Runs the action once the current transaction commits, or right away when there is none. Evicting earlier
+     * would let a concurrent read cache the pre-commit state again; an eviction that races with an in-flight
+     * cache load waits for that load and then removes its result.
+     */
+    static void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.bank.system.cache;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Delivers events to every application context in the same JVM, for running several nodes in one test process.
+ * Listeners are shared statically and removed again when their context shuts down.
+ */
+@Component
+@ConditionalOnProperty(name = "app.cache.invalidation.bus", havingValue = "in-jvm")
+public class InJvmCacheInvalidationBus implements CacheInvalidationBus {
+
+    private static final List<Consumer<CacheInvalidationEvent>> LISTENERS = new CopyOnWriteArrayList<>();
+
+    private final List<Consumer<CacheInvalidationEvent>> ownListeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(CacheInvalidationEvent event) {
+        CacheInvalidator.runAfterCommit(() -> LISTENERS.forEach(listener -> listener.accept(event)));
+    }
+
+    @Override
+    public void subscribe(Consumer<CacheInvalidationEvent> listener) {
+        ownListeners.add(listener);
+        LISTENERS.add(listener);
+    }
+
+    @PreDestroy
+    void close() {
+        LISTENERS.removeAll(ownListeners);
+        ownListeners.clear();
+    }
+}
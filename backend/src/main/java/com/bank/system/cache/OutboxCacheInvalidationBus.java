@@ -0,0 +1,162 @@
+package com.bank.system.cache;
+
+import com.bank.system.entity.CacheInvalidationRecord;
+import com.bank.system.repository.CacheInvalidationRecordRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Invalidation bus backed by the cache_invalidation_outbox table, so no broker is needed. Events are inserted
+ * in the publishing transaction (they become visible exactly when the change commits) and every node polls
+ * the table for rows above the last id it has seen. A transaction's events are collected, de-duplicated and
+ * inserted just before it commits as one JDBC batch (a single multi-row INSERT with rewriteBatchedStatements);
+ * Hibernate can't batch inserts with IDENTITY ids.
+ * <p>
+ * Auto-increment ids are assigned at insert but become visible at commit, so a row can show up after a higher
+ * id was already read. Skipped ids are remembered as gaps and re-checked until app.cache.invalidation.gap-timeout-ms
+ * (rolled-back inserts leave permanent gaps).
+ */
+@Component
+@ConditionalOnProperty(name = "app.cache.invalidation.bus", havingValue = "outbox")
+public class OutboxCacheInvalidationBus implements CacheInvalidationBus {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxCacheInvalidationBus.class);
+    private static final int MAX_GAPS = 10_000;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO cache_invalidation_outbox (region, cache_key, origin_node, created_at) VALUES (?, ?, ?, ?)";
+
+    @Autowired private CacheInvalidationRecordRepository recordRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.cache.invalidation.poll-batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.cache.invalidation.gap-timeout-ms:60000}")
+    private long gapTimeoutMs;
+
+    @Value("${app.cache.invalidation.retention-ms:3600000}")
+    private long retentionMs;
+
+    private final List<Consumer<CacheInvalidationEvent>> listeners = new CopyOnWriteArrayList<>();
+
+    // Highest id delivered so far, and ids below it not seen yet -> when the gap was noticed
+    private long cursor;
+    private final NavigableMap<Long, Long> gaps = new TreeMap<>();
+
+    @PostConstruct
+    void init() {
+        // Caches start empty, so older events don't need replaying
+        cursor = recordRepository.findMaxId();
+    }
+
+    @Override
+    public void publish(CacheInvalidationEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            insert(List.of(event));
+            return;
+        }
+
+        PendingEvents pending = (PendingEvents) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingEvents();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.events.add(event);
+    }
+
+    private void insert(Collection<CacheInvalidationEvent> events) {
+        long now = System.currentTimeMillis();
+        jdbcTemplate.batchUpdate(INSERT_SQL, events.stream()
+                .map(event -> new Object[] {event.region().name(), event.key(), event.originNodeId(), now})
+                .toList());
+    }
+
+    @Override
+    public void subscribe(Consumer<CacheInvalidationEvent> listener) {
+        listeners.add(listener);
+    }
+
+    @Scheduled(fixedDelayString = "${app.cache.invalidation.poll-interval-ms:500}")
+    public synchronized void poll() {
+        long now = System.currentTimeMillis();
+        gaps.values().removeIf(noticedAt -> now - noticedAt > gapTimeoutMs);
+
+        if (!gaps.isEmpty()) {
+            List<Long> open = gaps.keySet().stream().limit(batchSize).toList();
+            for (CacheInvalidationRecord record : recordRepository.findAllById(open)) {
+                gaps.remove(record.getId());
+                deliver(record);
+            }
+        }
+
+        List<CacheInvalidationRecord> records;
+        do {
+            records = recordRepository.findByIdGreaterThanOrderByIdAsc(cursor, PageRequest.of(0, batchSize));
+            for (CacheInvalidationRecord record : records) {
+                long id = record.getId();
+                for (long missing = cursor + 1; missing < id && gaps.size() < MAX_GAPS; missing++) {
+                    gaps.put(missing, now);
+                }
+                cursor = id;
+                deliver(record);
+            }
+        } while (records.size() == batchSize);
+    }
+
+    @Scheduled(fixedDelayString = "${app.cache.invalidation.cleanup-interval-ms:600000}")
+    public void cleanup() {
+        int deleted = recordRepository.deleteOlderThan(System.currentTimeMillis() - retentionMs);
+        if (deleted > 0) {
+            log.debug("Removed {} expired cache invalidation records", deleted);
+        }
+    }
+
+    private void deliver(CacheInvalidationRecord record) {
+        CacheInvalidationEvent event = new CacheInvalidationEvent(
+                record.getRegion(), record.getCacheKey(), record.getOriginNode());
+        for (Consumer<CacheInvalidationEvent> listener : listeners) {
+            try {
+                listener.accept(event);
+            } catch (RuntimeException ex) {
+                log.warn("Cache invalidation listener failed for {}", event, ex);
+            }
+        }
+    }
+
+    /** Events published in one transaction, inserted together just before it commits. */
+    private final class PendingEvents implements TransactionSynchronization {
+        // A key changed several times in one transaction needs one eviction
+        final Set<CacheInvalidationEvent> events = new LinkedHashSet<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            insert(events);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(OutboxCacheInvalidationBus.this);
+        }
+    }
+}
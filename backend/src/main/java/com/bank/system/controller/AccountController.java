@@ -1,11 +1,12 @@
 package com.bank.system.controller;
 
+import com.bank.system.cache.CacheInvalidator;
 import com.bank.system.dto.BankDTOs.FavoriteAccountRequest;
+import com.bank.system.dto.BankDTOs.FavoriteAccountView;
 import com.bank.system.dto.BankDTOs.SubAccountRequest;
 import com.bank.system.entity.FavoriteAccount;
 import com.bank.system.entity.SubAccount;
 import com.bank.system.repository.FavoriteAccountRepository;
-import com.bank.system.repository.UserRepository;
 import com.bank.system.service.AccountService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -21,7 +22,7 @@ public class AccountController {
 
     @Autowired private AccountService accountService;
     @Autowired private FavoriteAccountRepository favoriteAccountRepository;
-    @Autowired private UserRepository userRepository;
+    @Autowired private CacheInvalidator cacheInvalidator;
 
     // Sub-accounts
     @PostMapping("/sub-accounts")
@@ -43,6 +44,7 @@ public class AccountController {
         fav.setUserId(req.getUserId());
         fav.setFavoriteUserId(req.getFavoriteUserId());
         favoriteAccountRepository.save(fav);
+        cacheInvalidator.accountSnapshotChanged(req.getUserId());
         return ResponseEntity.ok(Map.of("success", true));
     }
 
@@ -54,16 +56,14 @@ public class AccountController {
 
     @GetMapping("/favorite-accounts/{userId}")
     public ResponseEntity<?> getFavorites(@PathVariable String userId) {
-        List<FavoriteAccount> favs = favoriteAccountRepository.findByUserId(userId);
-        List<Map<String, Object>> result = new ArrayList<>();
-        for (FavoriteAccount fav : favs) {
-            userRepository.findById(fav.getFavoriteUserId()).ifPresent(u -> {
-                result.add(Map.of(
-                    "id", u.getId(),
-                    "accountNumber", u.getId(),
-                    "realName", u.getRealName()
-                ));
-            });
+        List<FavoriteAccountView> favs = favoriteAccountRepository.findFavoriteViewsByUserId(userId);
+        List<Map<String, Object>> result = new ArrayList<>(favs.size());
+        for (FavoriteAccountView fav : favs) {
+            result.add(Map.of(
+                "id", fav.getFavoriteUserId(),
+                "accountNumber", fav.getFavoriteUserId(),
+                "realName", fav.getRealName()
+            ));
         }
         return ResponseEntity.ok(result);
     }
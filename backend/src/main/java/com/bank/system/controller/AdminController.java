@@ -1,21 +1,33 @@
 package com.bank.system.controller;
 
-import com.bank.system.entity.SubAccount;
-import com.bank.system.entity.Transaction;
+import com.bank.system.cache.CacheInvalidator;
+import com.bank.system.dto.BankDTOs.AdminUserView;
+import com.bank.system.dto.BankDTOs.ReconciliationReport;
 import com.bank.system.entity.User;
+import com.bank.system.pipeline.AccountCommandPipeline;
 import com.bank.system.repository.FavoriteAccountRepository;
 import com.bank.system.repository.SubAccountRepository;
-import com.bank.system.repository.TransactionRepository;
 import com.bank.system.repository.UserRepository;
+import com.bank.system.security.PrincipalCache;
+import com.bank.system.service.AccountSnapshotCache;
+import com.bank.system.service.AdminExportService;
+import com.bank.system.service.BalanceSummaryReconciler;
+import com.bank.system.service.BalanceHistoryService;
+import com.bank.system.service.BalanceSummaryService;
+import com.bank.system.service.TransactionHistoryService;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.JpaSort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.ArrayList;
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -23,63 +35,112 @@ import java.util.Map;
 public class AdminController {
 
     @Autowired private UserRepository userRepository;
-    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private TransactionHistoryService transactionHistoryService;
     @Autowired private SubAccountRepository subAccountRepository;
     @Autowired private FavoriteAccountRepository favoriteAccountRepository;
+    @Autowired private PrincipalCache principalCache;
+    @Autowired private AdminExportService adminExportService;
+    @Autowired private BalanceSummaryService balanceSummaryService;
+    @Autowired private BalanceHistoryService balanceHistoryService;
+    @Autowired private BalanceSummaryReconciler balanceSummaryReconciler;
+    @Autowired private AccountSnapshotCache accountSnapshotCache;
+    @Autowired private CacheInvalidator cacheInvalidator;
+    @Autowired(required = false) private AccountCommandPipeline pipeline;
 
     @GetMapping("/users")
     public ResponseEntity<?> getAllUsers() {
-        List<User> users = userRepository.findAll();
-        List<Map<String, Object>> result = new ArrayList<>();
-        
-        for (User user : users) {
-            // Skip admin users - only show regular users
-            if (user.getRole() == com.bank.system.enums.UserRole.admin) {
-                continue;
-            }
-            
-            Map<String, Object> userMap = new HashMap<>();
-            userMap.put("id", user.getId());
-            userMap.put("loginId", user.getLoginId());
-            userMap.put("realName", user.getRealName());
-            userMap.put("role", user.getRole());
-            userMap.put("status", user.getStatus());
-            userMap.put("createdAt", user.getCreatedAt());
-            
-            // Calculate balance from sub-accounts
-            List<SubAccount> subAccounts = subAccountRepository.findByUserIdOrderByCreatedAt(user.getId());
-            Long totalBalance = subAccounts.stream()
-                    .map(SubAccount::getBalance)
-                    .reduce(0L, Long::sum);
-            userMap.put("balance", totalBalance);
-            
-            result.add(userMap);
-        }
-        
-        return ResponseEntity.ok(result);
+        // Admins are excluded and totals read from user_balance_summary, one query for the whole list
+        return ResponseEntity.ok(userRepository.findAllUserBalances());
+    }
+
+    @GetMapping("/users/search")
+    public ResponseEntity<?> searchUsers(@RequestParam(required = false) String q,
+                                         @RequestParam(defaultValue = "0") int page,
+                                         @RequestParam(defaultValue = "50") int size,
+                                         @RequestParam(defaultValue = "createdAt") String sort,
+                                         @RequestParam(defaultValue = "desc") String direction) {
+        Sort.Direction dir = "asc".equalsIgnoreCase(direction) ? Sort.Direction.ASC : Sort.Direction.DESC;
+        Sort order = switch (sort) {
+            // Expression over the joined summary, passed through as-is
+            case "balance" -> JpaSort.unsafe(dir, "COALESCE(b.totalBalance, 0)");
+            case "loginId", "realName", "status", "createdAt" -> Sort.by(dir, sort);
+            default -> throw new RuntimeException("不支援的排序欄位: " + sort);
+        };
+        String search = (q == null || q.isBlank()) ? null : "%" + q.trim() + "%";
+        int pageSize = Math.max(1, Math.min(size, 200));
+
+        Page<AdminUserView> result = userRepository.searchUserBalances(search,
+                PageRequest.of(Math.max(page, 0), pageSize, order.and(Sort.by("id"))));
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("items", result.getContent());
+        body.put("page", result.getNumber());
+        body.put("size", result.getSize());
+        body.put("totalElements", result.getTotalElements());
+        body.put("totalPages", result.getTotalPages());
+        return ResponseEntity.ok(body);
     }
 
     @GetMapping("/transactions")
     public ResponseEntity<?> getAllTransactions() {
-        List<Transaction> transactions = transactionRepository.findAll();
-        List<Map<String, Object>> result = new ArrayList<>();
-        
-        for (Transaction tx : transactions) {
-            Map<String, Object> txMap = new HashMap<>();
-            txMap.put("id", tx.getId());
-            txMap.put("userId", tx.getUser().getId());  // Expose userId
-            txMap.put("type", tx.getType());
-            txMap.put("amount", tx.getAmount());
-            txMap.put("note", tx.getNote());
-            txMap.put("time", tx.getTime());
-            txMap.put("timestamp", tx.getTimestamp());
-            txMap.put("subAccountId", tx.getSubAccountId());
-            result.add(txMap);
-        }
-        
-        return ResponseEntity.ok(result);
+        // Projection reads user_id as a column instead of initializing a User proxy per row; archived months included
+        return ResponseEntity.ok(transactionHistoryService.findAll());
+    }
+
+    // Streams every transaction as JSON lines or CSV without holding the table in memory
+    @GetMapping("/transactions/export")
+    public void exportTransactions(@RequestParam(defaultValue = "jsonl") String format,
+                                   HttpServletResponse response) throws IOException {
+        AdminExportService.Format exportFormat = AdminExportService.Format.parse(format);
+        response.setContentType(exportFormat.getContentType());
+        response.setHeader("Content-Disposition", "attachment; filename=\"" + exportFormat.getFileName() + "\"");
+        adminExportService.exportTransactions(exportFormat, response.getOutputStream());
     }
     
+    @GetMapping("/balance-summary/reconciliation")
+    public ResponseEntity<?> getReconciliationReport() {
+        ReconciliationReport report = balanceSummaryReconciler.getLastReport();
+        if (report == null) {
+            return ResponseEntity.status(404).body(Map.of("error", "尚未執行對帳"));
+        }
+        return ResponseEntity.ok(report);
+    }
+
+    @PostMapping("/balance-summary/reconcile")
+    public ResponseEntity<?> reconcileBalanceSummary() {
+        return ResponseEntity.ok(balanceSummaryReconciler.reconcile());
+    }
+
+    @GetMapping("/cache-stats")
+    public ResponseEntity<?> getCacheStats() {
+        return ResponseEntity.ok(Map.of(
+            "accountSnapshot", toMap(accountSnapshotCache.stats(), accountSnapshotCache.estimatedSize()),
+            "principal", toMap(principalCache.stats(), principalCache.estimatedSize())
+        ));
+    }
+
+    @GetMapping("/pipeline-stats")
+    public ResponseEntity<?> getPipelineStats() {
+        if (pipeline == null) {
+            return ResponseEntity.ok(Map.of("enabled", false));
+        }
+        Map<String, Object> stats = new HashMap<>(pipeline.getStats());
+        stats.put("enabled", true);
+        return ResponseEntity.ok(stats);
+    }
+
+    private static Map<String, Object> toMap(CacheStats stats, long size) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("size", size);
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        result.put("loads", stats.loadCount());
+        result.put("averageLoadMillis", stats.averageLoadPenalty() / 1_000_000.0);
+        return result;
+    }
+
     @Transactional
     @DeleteMapping("/users/{userId}")
     public ResponseEntity<?> deleteUser(@PathVariable String userId) {
@@ -94,10 +155,14 @@ public class AdminController {
         }
         
         // Delete related data first (foreign key constraints)
-        transactionRepository.deleteByUserId(userId);
+        transactionHistoryService.deleteByUser(userId);
         favoriteAccountRepository.deleteByUserId(userId);
         subAccountRepository.deleteByUserId(userId);
+        balanceSummaryService.deleteFor(userId);
+        balanceHistoryService.deleteForUser(userId);
         userRepository.delete(user);
+        cacheInvalidator.principalChanged(user.getLoginId());
+        cacheInvalidator.accountSnapshotChanged(userId);
         
         return ResponseEntity.ok(Map.of("success", true));
     }
@@ -116,6 +181,7 @@ public class AdminController {
             user.setStatus(com.bank.system.enums.UserStatus.active);
         }
         userRepository.save(user);
+        cacheInvalidator.accountSnapshotChanged(userId);
         
         return ResponseEntity.ok(Map.of("success", true, "status", user.getStatus()));
     }
@@ -133,6 +199,7 @@ public class AdminController {
                 return ResponseEntity.status(403).body(Map.of("error", "無法編輯管理員帳號"));
             }
 
+            String previousLoginId = user.getLoginId();
             String newRealName = updates.get("realName");
             String newLoginId = updates.get("loginId");
 
@@ -152,6 +219,8 @@ public class AdminController {
             }
 
             userRepository.save(user);
+            cacheInvalidator.principalChanged(previousLoginId);
+            cacheInvalidator.accountSnapshotChanged(userId);
             
             // Return a clean map to avoid recursion/serialization issues if any
             Map<String, Object> result = new HashMap<>();
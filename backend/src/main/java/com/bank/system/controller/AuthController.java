@@ -2,37 +2,23 @@ package com.bank.system.controller;
 
 import com.bank.system.dto.BankDTOs.LoginRequest;
 import com.bank.system.dto.BankDTOs.RegisterRequest;
-import com.bank.system.entity.FavoriteAccount;
-import com.bank.system.entity.SubAccount;
 import com.bank.system.entity.User;
-import com.bank.system.repository.FavoriteAccountRepository;
-import com.bank.system.repository.SubAccountRepository;
-import com.bank.system.repository.UserRepository;
-import com.bank.system.security.JwtTokenProvider;
 import com.bank.system.service.AuthService;
+import com.bank.system.service.LoginService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api")
 public class AuthController {
 
     @Autowired private AuthService authService;
-    @Autowired private UserRepository userRepository;
-    @Autowired private SubAccountRepository subAccountRepository;
-    @Autowired private FavoriteAccountRepository favoriteAccountRepository;
-    @Autowired private AuthenticationManager authenticationManager;
-    @Autowired private JwtTokenProvider tokenProvider;
+    @Autowired private LoginService loginService;
 
     @PostMapping("/register")
     public ResponseEntity<?> register(@RequestBody RegisterRequest req) {
@@ -44,33 +30,8 @@ public class AuthController {
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody LoginRequest req) {
-        // Authenticate
-        Authentication authentication = authenticationManager.authenticate(
-            new UsernamePasswordAuthenticationToken(req.getLoginId(), req.getPassword())
-        );
-
-        SecurityContextHolder.getContext().setAuthentication(authentication);
-        String jwt = tokenProvider.generateToken(authentication);
-        
-        // Fetch User details for response
-        User user = userRepository.findByLoginId(req.getLoginId()).orElseThrow();
-
-        // Construct response
-        Map<String, Object> userMap = new HashMap<>();
-        userMap.put("id", user.getId());
-        userMap.put("loginId", user.getLoginId());
-        userMap.put("realName", user.getRealName());
-        userMap.put("role", user.getRole());
-        userMap.put("status", user.getStatus());
-        userMap.put("createdAt", user.getCreatedAt());
-        
-        List<SubAccount> subs = subAccountRepository.findByUserIdOrderByCreatedAt(user.getId());
-        userMap.put("subAccounts", subs);
-        
-        List<FavoriteAccount> favs = favoriteAccountRepository.findByUserId(user.getId());
-        userMap.put("favoriteAccounts", favs.stream().map(FavoriteAccount::getFavoriteUserId).collect(Collectors.toList()));
-
-        return ResponseEntity.ok(Map.of("success", true, "token", jwt, "user", userMap));
+    public CompletableFuture<ResponseEntity<?>> login(@RequestBody LoginRequest req) {
+        // Completed off the request thread; see LoginService
+        return loginService.login(req).thenApply(body -> ResponseEntity.ok(body));
     }
 }
@@ -0,0 +1,38 @@
+package com.bank.system.controller;
+
+import com.bank.system.push.UserEventBroker;
+import com.bank.system.security.UserPrincipal;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Server-Sent Events stream of the caller's own new transactions ({@code transaction}) and sub-account balance
+ * changes ({@code balance}, with the signed {@code delta}), replacing polling of /api/user and /api/transactions.
+ * The token goes in the Authorization header as for every other call, so browsers need a fetch-based
+ * EventSource; reconnects send Last-Event-ID to resume. Changes committed on another node arrive as a
+ * {@code resync} (reload /api/user and /api/transactions) through the cache invalidation bus.
+ */
+@RestController
+@RequestMapping("/api")
+public class EventController {
+
+    @Autowired private UserEventBroker userEventBroker;
+
+    @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> events(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                             @AuthenticationPrincipal UserDetails userDetails) {
+        // The stream is always the caller's own, so there is no user id to check against
+        if (!(userDetails instanceof UserPrincipal principal)) {
+            return ResponseEntity.status(403).build();
+        }
+        return ResponseEntity.ok()
+                // Tell nginx-style proxies not to buffer the stream
+                .header("X-Accel-Buffering", "no")
+                .body(userEventBroker.subscribe(principal.getUserId(), lastEventId));
+    }
+}
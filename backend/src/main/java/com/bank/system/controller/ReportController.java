@@ -0,0 +1,84 @@
+package com.bank.system.controller;
+
+import com.bank.system.reporting.ReportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+/**
+ * Admin reports from the in-memory columnar index (app.reports.enabled=true). Every report takes an inclusive
+ * date range, {@code from} and {@code to} as yyyy-MM-dd, defaulting to the last 30 days, and returns the rows
+ * together with {@code loadedUntil}: transactions older than that are included. The index only grows, so the
+ * transactions of users deleted after they were loaded keep counting in the reports until the next restart.
+ */
+@RestController
+@RequestMapping("/api/admin/reports")
+public class ReportController {
+
+    private static final int MAX_TOP = 100;
+
+    @Autowired(required = false) private ReportService reportService;
+
+    @Value("${app.reports.zone:Asia/Taipei}")
+    private String zone;
+
+    @GetMapping("/daily")
+    public ResponseEntity<?> daily(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return report(from, to, (f, t) -> service().daily(f, t));
+    }
+
+    @GetMapping("/hourly")
+    public ResponseEntity<?> hourly(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return report(from, to, (f, t) -> service().hourly(f, t));
+    }
+
+    @GetMapping("/totals")
+    public ResponseEntity<?> totals(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return report(from, to, (f, t) -> service().totalsByType(f, t));
+    }
+
+    // sort=volume (default) or sort=count
+    @GetMapping("/top-accounts")
+    public ResponseEntity<?> topAccounts(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                         @RequestParam(defaultValue = "10") int limit,
+                                         @RequestParam(defaultValue = "volume") String sort) {
+        boolean byCount = switch (sort) {
+            case "volume" -> false;
+            case "count" -> true;
+            default -> throw new RuntimeException("不支援的排序欄位: " + sort);
+        };
+        int size = Math.max(1, Math.min(limit, MAX_TOP));
+        return report(from, to, (f, t) -> service().topAccounts(f, t, size, byCount));
+    }
+
+    private ResponseEntity<?> report(LocalDate from, LocalDate to, BiFunction<LocalDate, LocalDate, Object> query) {
+        LocalDate end = to != null ? to : LocalDate.now(ZoneId.of(zone));
+        LocalDate start = from != null ? from : end.minusDays(29);
+        Map<String, Object> body = new HashMap<>();
+        body.put("from", start.toString());
+        body.put("to", end.toString());
+        // Read first: the rows can then only include more, never less, than it promises
+        body.put("loadedUntil", service().loadedUntil());
+        body.put("rows", query.apply(start, end));
+        return ResponseEntity.ok(body);
+    }
+
+    private ReportService service() {
+        if (reportService == null) {
+            throw new RuntimeException("報表功能未啟用");
+        }
+        return reportService;
+    }
+}
@@ -1,9 +1,14 @@
 package com.bank.system.controller;
 
+import com.bank.system.dto.BankDTOs.BatchTransferRequest;
+import com.bank.system.dto.BankDTOs.BatchTransferResult;
 import com.bank.system.dto.BankDTOs.TransactionRequest;
-import com.bank.system.entity.User;
-import com.bank.system.repository.TransactionRepository;
-import com.bank.system.repository.UserRepository;
+import com.bank.system.dto.BankDTOs.TransactionView;
+import com.bank.system.pipeline.AccountCommandPipeline;
+import com.bank.system.security.UserPrincipal;
+import com.bank.system.service.BalanceHistoryService;
+import com.bank.system.service.IdempotencyService;
+import com.bank.system.service.TransactionHistoryService;
 import com.bank.system.service.TransactionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -11,59 +16,96 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api")
 public class TransactionController {
 
+    private static final int MAX_PAGE_SIZE = 200;
+
     @Autowired private TransactionService transactionService;
-    @Autowired private TransactionRepository transactionRepository;
-    @Autowired private UserRepository userRepository;
+    @Autowired private IdempotencyService idempotencyService;
+    @Autowired(required = false) private AccountCommandPipeline pipeline;
+    @Autowired private TransactionHistoryService transactionHistoryService;
+    @Autowired private BalanceHistoryService balanceHistoryService;
 
     @PostMapping("/deposit")
-    public ResponseEntity<?> deposit(@RequestBody TransactionRequest req,
-                                     @AuthenticationPrincipal UserDetails userDetails) {
+    public CompletableFuture<ResponseEntity<?>> deposit(@RequestBody TransactionRequest req,
+                                                        @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                                                        @AuthenticationPrincipal UserDetails userDetails) {
         // IDOR protection: verify the authenticated user matches the request
         String authenticatedUserId = getUserIdFromPrincipal(userDetails);
         if (authenticatedUserId == null || !req.getUserId().equals(authenticatedUserId)) {
-            return ResponseEntity.status(403).body(Map.of("error", "無權限執行此操作"));
+            return forbidden();
         }
-        transactionService.deposit(req);
-        return ResponseEntity.ok(Map.of("success", true));
+        return dispatch(req::getSubAccountId,
+                () -> idempotencyService.execute(authenticatedUserId, idempotencyKey, "deposit", req,
+                        () -> transactionService.deposit(req)));
     }
 
     @PostMapping("/withdraw")
-    public ResponseEntity<?> withdraw(@RequestBody TransactionRequest req,
-                                      @AuthenticationPrincipal UserDetails userDetails) {
+    public CompletableFuture<ResponseEntity<?>> withdraw(@RequestBody TransactionRequest req,
+                                                         @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                                                         @AuthenticationPrincipal UserDetails userDetails) {
         String authenticatedUserId = getUserIdFromPrincipal(userDetails);
         if (authenticatedUserId == null || !req.getUserId().equals(authenticatedUserId)) {
-            return ResponseEntity.status(403).body(Map.of("error", "無權限執行此操作"));
+            return forbidden();
         }
-        transactionService.withdraw(req);
-        return ResponseEntity.ok(Map.of("success", true));
+        return dispatch(req::getSubAccountId,
+                () -> idempotencyService.execute(authenticatedUserId, idempotencyKey, "withdraw", req,
+                        () -> transactionService.withdraw(req)));
     }
 
     @PostMapping("/transfer")
-    public ResponseEntity<?> transfer(@RequestBody TransactionRequest req,
-                                      @AuthenticationPrincipal UserDetails userDetails) {
+    public CompletableFuture<ResponseEntity<?>> transfer(@RequestBody TransactionRequest req,
+                                                         @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                                                         @AuthenticationPrincipal UserDetails userDetails) {
         String authenticatedUserId = getUserIdFromPrincipal(userDetails);
         if (authenticatedUserId == null || !req.getUserId().equals(authenticatedUserId)) {
-            return ResponseEntity.status(403).body(Map.of("error", "無權限執行此操作"));
+            return forbidden();
         }
-        transactionService.transfer(req);
-        return ResponseEntity.ok(Map.of("success", true));
+        return dispatch(() -> primarySubAccountKey(authenticatedUserId),
+                () -> idempotencyService.execute(authenticatedUserId, idempotencyKey, "transfer", req,
+                        () -> transactionService.transfer(req)));
     }
     
+    // Payroll-style bulk transfer from the caller's primary sub-account; returns one result per item
+    @PostMapping("/transfer/batch")
+    public CompletableFuture<ResponseEntity<?>> batchTransfer(@RequestBody BatchTransferRequest req,
+                                                              @AuthenticationPrincipal UserDetails userDetails) {
+        String authenticatedUserId = getUserIdFromPrincipal(userDetails);
+        if (authenticatedUserId == null || !authenticatedUserId.equals(req.getUserId())) {
+            return forbidden();
+        }
+        return dispatch(() -> primarySubAccountKey(authenticatedUserId), () -> {
+            List<BatchTransferResult> results = transactionService.batchTransfer(req);
+            long succeeded = results.stream().filter(BatchTransferResult::isSuccess).count();
+
+            Map<String, Object> body = new HashMap<>();
+            body.put("success", true);
+            body.put("succeeded", succeeded);
+            body.put("failed", results.size() - succeeded);
+            body.put("results", results);
+            return ResponseEntity.ok(body);
+        });
+    }
+
     @PostMapping("/sub-accounts/transfer")
-    public ResponseEntity<?> transferBetweenSubAccounts(@RequestBody TransactionRequest req,
-                                                        @AuthenticationPrincipal UserDetails userDetails) {
+    public CompletableFuture<ResponseEntity<?>> transferBetweenSubAccounts(@RequestBody TransactionRequest req,
+                                                                           @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                                                                           @AuthenticationPrincipal UserDetails userDetails) {
         String authenticatedUserId = getUserIdFromPrincipal(userDetails);
         if (authenticatedUserId == null || !req.getUserId().equals(authenticatedUserId)) {
-            return ResponseEntity.status(403).body(Map.of("error", "無權限執行此操作"));
+            return forbidden();
         }
-        transactionService.transferBetweenSubAccounts(req);
-        return ResponseEntity.ok(Map.of("success", true));
+        return dispatch(req::getFromSubAccountId,
+                () -> idempotencyService.execute(authenticatedUserId, idempotencyKey, "sub-account-transfer", req,
+                        () -> transactionService.transferBetweenSubAccounts(req)));
     }
 
     @GetMapping("/transactions/{userId}")
@@ -74,15 +116,98 @@ public class TransactionController {
         if (authenticatedUserId == null || !userId.equals(authenticatedUserId)) {
             return ResponseEntity.status(403).body(Map.of("error", "無權限存取此資源"));
         }
-        return ResponseEntity.ok(transactionRepository.findByUserIdOrderByTimestampDesc(userId));
+        return ResponseEntity.ok(transactionHistoryService.findByUser(userId));
     }
     
+    /**
+     * Cursor-paginated history. {@code before} is the {@code nextCursor} of the previous page
+     * ("timestamp,id"); omit it for the newest page.
+     */
+    @GetMapping("/transactions/{userId}/page")
+    public ResponseEntity<?> getTransactionPage(@PathVariable String userId,
+                                                @RequestParam(required = false) String before,
+                                                @RequestParam(defaultValue = "50") int limit,
+                                                @RequestParam(required = false) String type,
+                                                @RequestParam(required = false) String subAccountId,
+                                                @RequestParam(required = false) Long from,
+                                                @RequestParam(required = false) Long to,
+                                                @AuthenticationPrincipal UserDetails userDetails) {
+        String authenticatedUserId = getUserIdFromPrincipal(userDetails);
+        if (authenticatedUserId == null || !userId.equals(authenticatedUserId)) {
+            return ResponseEntity.status(403).body(Map.of("error", "無權限存取此資源"));
+        }
+
+        Long beforeTimestamp = null;
+        String beforeId = null;
+        if (before != null && !before.isBlank()) {
+            String[] parts = before.split(",", 2);
+            try {
+                beforeTimestamp = Long.parseLong(parts[0]);
+            } catch (NumberFormatException ex) {
+                throw new RuntimeException("無效的分頁游標");
+            }
+            if (parts.length < 2 || parts[1].isEmpty()) throw new RuntimeException("無效的分頁游標");
+            beforeId = parts[1];
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        List<TransactionView> items = transactionHistoryService.findHistoryPage(userId, beforeTimestamp, beforeId,
+                type, subAccountId, from, to, pageSize);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("items", items);
+        if (items.size() == pageSize) {
+            TransactionView last = items.get(items.size() - 1);
+            result.put("nextCursor", last.getTimestamp() + "," + last.getId());
+        } else {
+            result.put("nextCursor", null);
+        }
+        return ResponseEntity.ok(result);
+    }
+
+    /** Balances as of {@code at} (epoch millis, default now), per sub-account and in total. */
+    @GetMapping("/balance-history/{userId}")
+    public ResponseEntity<?> getBalancesAt(@PathVariable String userId,
+                                           @RequestParam(required = false) Long at,
+                                           @AuthenticationPrincipal UserDetails userDetails) {
+        String authenticatedUserId = getUserIdFromPrincipal(userDetails);
+        if (authenticatedUserId == null || !userId.equals(authenticatedUserId)) {
+            return ResponseEntity.status(403).body(Map.of("error", "無權限存取此資源"));
+        }
+        long now = System.currentTimeMillis();
+        long time = at != null ? Math.min(at, now) : now;
+        return ResponseEntity.ok(balanceHistoryService.balancesAt(userId, time));
+    }
+
+    /**
+     * Hands the command to the per-account pipeline when app.transaction.pipeline.enabled=true (requests for
+     * the same sub-account then run one after another on virtual threads), otherwise runs it on this thread.
+     */
+    private CompletableFuture<ResponseEntity<?>> dispatch(Supplier<String> accountKey,
+                                                          Supplier<ResponseEntity<?>> command) {
+        if (pipeline == null) {
+            return CompletableFuture.completedFuture(command.get());
+        }
+        String key = accountKey.get();
+        // A missing account id fails validation inside the command; it just needs some queue to run in
+        return pipeline.submit(key != null ? key : "", command);
+    }
+
+    private static CompletableFuture<ResponseEntity<?>> forbidden() {
+        return CompletableFuture.completedFuture(ResponseEntity.status(403).body(Map.of("error", "無權限執行此操作")));
+    }
+
+    // Transfers debit the sender's primary sub-account, so they queue behind other work on that account
+    private String primarySubAccountKey(String userId) {
+        String subAccountId = transactionService.findPrimarySubAccountId(userId);
+        return subAccountId != null ? subAccountId : userId;
+    }
+
     private String getUserIdFromPrincipal(UserDetails userDetails) {
-        if (userDetails == null) return null;
-        // The username in JWT is the loginId, look up the actual user ID
-        String loginId = userDetails.getUsername();
-        return userRepository.findByLoginId(loginId)
-                .map(User::getId)
-                .orElse(null);
+        // JwtAuthenticationFilter resolves the bank account id up front, no lookup needed here
+        if (userDetails instanceof UserPrincipal principal) {
+            return principal.getUserId();
+        }
+        return null;
     }
 }
@@ -30,6 +30,27 @@ public class BankDTOs {
         private String toSubAccountId;
     }
 
+    @Data
+    public static class BatchTransferRequest {
+        private String userId;
+        private java.util.List<BatchTransferItem> transfers;
+    }
+
+    @Data
+    public static class BatchTransferItem {
+        private String recipientAccountNumber;
+        private Long amount;
+    }
+
+    @Data
+    public static class BatchTransferResult {
+        private int index;
+        private String recipientAccountNumber;
+        private Long amount;
+        private boolean success;
+        private String error;
+    }
+
     @Data
     public static class SubAccountRequest {
         private String userId;
@@ -47,4 +68,112 @@ public class BankDTOs {
         private String userId;
         private String favoriteUserId;
     }
+
+    // Read-only projection of a transactions row; userId is read from the user_id column, not the association
+    public interface TransactionView {
+        String getId();
+        String getUserId();
+        String getType();
+        Long getAmount();
+        String getNote();
+        String getTime();
+        Long getTimestamp();
+        String getSubAccountId();
+    }
+
+    // Admin console row: a user with the sum of their sub-account balances
+    public interface AdminUserView {
+        String getId();
+        String getLoginId();
+        String getRealName();
+        com.bank.system.enums.UserRole getRole();
+        com.bank.system.enums.UserStatus getStatus();
+        java.time.LocalDateTime getCreatedAt();
+        Long getBalance();
+    }
+
+    public interface FavoriteAccountView {
+        String getFavoriteUserId();
+        String getRealName();
+    }
+
+    public interface SubAccountRefView {
+        String getUserId();
+        String getId();
+    }
+
+    public interface SubAccountTotalsView {
+        String getUserId();
+        Long getTotalBalance();
+        Long getSubAccountCount();
+    }
+
+    public interface TransactionTotalsView {
+        String getUserId();
+        Long getTxCount();
+        Long getLastActivityAt();
+    }
+
+    // Columns the reporting index keeps per transaction
+    public interface TransactionFactView {
+        String getId();
+        String getUserId();
+        String getType();
+        Long getAmount();
+        Long getTimestamp();
+    }
+
+    @Data
+    public static class BalanceDrift {
+        private String userId;
+        private Long expectedBalance;
+        private Long recordedBalance;
+        private Integer expectedSubAccountCount;
+        private Integer recordedSubAccountCount;
+    }
+
+    @Data
+    public static class ReconciliationReport {
+        private long startedAt;
+        private long finishedAt;
+        private int usersChecked;
+        private int missing;
+        private int mismatched;
+        private boolean repaired;
+        private int failedChunks;
+        // First drifts found, capped so a badly broken table doesn't blow up the report
+        private java.util.List<BalanceDrift> samples = new java.util.ArrayList<>();
+    }
+
+    // Admin reports; amounts are absolute values, transfers count the sending side only
+    @Data
+    public static class DailyReportRow {
+        private String date;
+        private long transactions;
+        private long deposits;
+        private long withdrawals;
+        private long transfers;
+        private long volume;
+    }
+
+    @Data
+    public static class TypeTotal {
+        private String type;
+        private long count;
+        private long amount;
+    }
+
+    @Data
+    public static class AccountActivity {
+        private String userId;
+        private long transactions;
+        private long volume;
+    }
+
+    @Data
+    public static class HourlyActivity {
+        private int hour;
+        private long transactions;
+        private long volume;
+    }
 }
@@ -0,0 +1,32 @@
+package com.bank.system.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.MappedSuperclass;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Transient;
+import org.springframework.data.domain.Persistable;
+
+/**
+ * Base for entities whose id is assigned before they are saved. Spring Data can't tell from such an id that the
+ * row is new, so save() would merge: a SELECT first, and a managed copy instead of the instance passed in.
+ * Instances count as new until they are persisted or loaded, so save() persists them (and can batch the INSERTs).
+ */
+@MappedSuperclass
+public abstract class AssignedIdEntity implements Persistable<String> {
+
+    @Transient
+    private boolean newEntity = true;
+
+    @JsonIgnore
+    @Override
+    public boolean isNew() {
+        return newEntity;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.newEntity = false;
+    }
+}
@@ -0,0 +1,30 @@
+package com.bank.system.entity;
+
+import com.bank.system.enums.CacheRegion;
+import jakarta.persistence.*;
+import lombok.Data;
+
+@Data
+@Entity
+@Table(name = "cache_invalidation_outbox", indexes = {
+    @Index(name = "idx_cache_invalidation_created", columnList = "created_at")
+})
+public class CacheInvalidationRecord {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private CacheRegion region;
+
+    @Column(name = "cache_key", nullable = false, length = 100)
+    private String cacheKey;
+
+    @Column(name = "origin_node", nullable = false, length = 36)
+    private String originNode;
+
+    // Epoch millis
+    @Column(name = "created_at", nullable = false)
+    private Long createdAt;
+}
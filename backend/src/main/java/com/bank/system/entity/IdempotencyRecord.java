@@ -0,0 +1,31 @@
+package com.bank.system.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+// Always INSERTed: a row another node committed for the same key must fail with a duplicate key, not be merged over
+@Data
+@Entity
+@Table(name = "idempotency_keys", indexes = {
+    @Index(name = "idx_idempotency_keys_created", columnList = "created_at")
+})
+public class IdempotencyRecord extends AssignedIdEntity {
+    // userId + ":" + Idempotency-Key, so keys are scoped to the caller
+    @Id
+    @Column(length = 120)
+    private String id;
+
+    // SHA-256 of the operation and request body; a reused key with a different request is rejected
+    @Column(name = "request_hash", nullable = false, length = 44)
+    private String requestHash;
+
+    @Column(name = "status_code", nullable = false)
+    private Integer statusCode;
+
+    @Column(name = "response_body", columnDefinition = "TEXT")
+    private String responseBody;
+
+    // Epoch millis
+    @Column(name = "created_at", nullable = false)
+    private Long createdAt;
+}
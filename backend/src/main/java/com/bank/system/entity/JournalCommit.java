@@ -0,0 +1,17 @@
+package com.bank.system.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * Written by the database transaction whose ledger entries were journaled, keyed by the id of the group's first
+ * entry. Lets journal recovery tell whether a group that lost its commit marker in a crash actually committed.
+ */
+@Data
+@Entity
+@Table(name = "journal_commits")
+public class JournalCommit {
+    @Id
+    @Column(name = "transaction_id", length = 50)
+    private String transactionId;
+}
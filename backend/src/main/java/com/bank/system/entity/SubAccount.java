@@ -28,4 +28,9 @@ public class SubAccount {
 
     @Column(name = "created_at", insertable = false, updatable = false)
     private LocalDateTime createdAt;
+
+    @com.fasterxml.jackson.annotation.JsonIgnore
+    @Version
+    @Column(columnDefinition = "BIGINT DEFAULT 0")
+    private Long version;
 }
@@ -0,0 +1,32 @@
+package com.bank.system.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * Balance of a sub-account after every {@link SubAccountEntry} with timestamp <= asOf. The balance at any later
+ * time is this balance plus the entries in (asOf, time].
+ */
+@Data
+@Entity
+@Table(name = "sub_account_checkpoints", indexes = {
+    @Index(name = "idx_sub_account_checkpoints_account_as_of", columnList = "sub_account_id, as_of"),
+    @Index(name = "idx_sub_account_checkpoints_user", columnList = "user_id")
+})
+public class SubAccountCheckpoint extends AssignedIdEntity {
+    @Id
+    @Column(length = 50)
+    private String id;
+
+    @Column(name = "sub_account_id", nullable = false, length = 50)
+    private String subAccountId;
+
+    @Column(name = "user_id", nullable = false, length = 12)
+    private String userId;
+
+    @Column(nullable = false)
+    private Long balance;
+
+    @Column(name = "as_of", nullable = false)
+    private Long asOf;
+}
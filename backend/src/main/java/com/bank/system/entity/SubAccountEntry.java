@@ -0,0 +1,37 @@
+package com.bank.system.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * One signed change to a sub-account balance. Written together with the {@link Transaction} rows of every
+ * balance change (both sub-accounts of a transfer get one), so a balance can be replayed per sub-account.
+ */
+@Data
+@Entity
+@Table(name = "sub_account_entries", indexes = {
+    // Serves the delta scan after a checkpoint
+    @Index(name = "idx_sub_account_entries_account_ts", columnList = "sub_account_id, timestamp"),
+    @Index(name = "idx_sub_account_entries_ts", columnList = "timestamp")
+})
+public class SubAccountEntry extends AssignedIdEntity {
+    @Id
+    @Column(length = 50)
+    private String id;
+
+    @Column(name = "sub_account_id", nullable = false, length = 50)
+    private String subAccountId;
+
+    @Column(name = "user_id", nullable = false, length = 12)
+    private String userId;
+
+    @Column(nullable = false)
+    private Long amount;
+
+    // Same epoch millis as the transaction row
+    @Column(nullable = false)
+    private Long timestamp;
+
+    @Column(name = "transaction_id", length = 50)
+    private String transactionId;
+}
@@ -5,8 +5,13 @@ import lombok.Data;
 
 @Data
 @Entity
-@Table(name = "transactions")
-public class Transaction {
+@Table(name = "transactions", indexes = {
+    // Serves per-user history in (timestamp, id) order, including keyset pagination
+    @Index(name = "idx_transactions_user_ts_id", columnList = "user_id, timestamp, id"),
+    // Serves the archiver's month range scans
+    @Index(name = "idx_transactions_ts", columnList = "timestamp")
+})
+public class Transaction extends AssignedIdEntity {
     @Id
     @Column(length = 50)
     private String id;
@@ -5,10 +5,12 @@ import lombok.Data;
 import java.time.LocalDateTime;
 import java.util.List;
 
+// The account number is assigned up front; save() persists this instance, which sub-accounts can then reference
+// in the same transaction, instead of merging a copy
 @Data
 @Entity
 @Table(name = "users")
-public class User {
+public class User extends AssignedIdEntity {
     @Id
     @Column(length = 12)
     private String id;
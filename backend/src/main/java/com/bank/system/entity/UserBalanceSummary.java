@@ -0,0 +1,30 @@
+package com.bank.system.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * Per-user totals maintained incrementally alongside balance changes, so reads don't have to sum sub_accounts.
+ * Verified against sub_accounts by {@link com.bank.system.service.BalanceSummaryReconciler}.
+ */
+@Data
+@Entity
+@Table(name = "user_balance_summary")
+public class UserBalanceSummary {
+    @Id
+    @Column(name = "user_id", length = 12)
+    private String userId;
+
+    @Column(name = "total_balance", nullable = false)
+    private Long totalBalance;
+
+    @Column(name = "sub_account_count", nullable = false)
+    private Integer subAccountCount;
+
+    @Column(name = "tx_count", nullable = false)
+    private Long txCount;
+
+    // Epoch millis of the latest transaction, same unit as Transaction.timestamp
+    @Column(name = "last_activity_at")
+    private Long lastActivityAt;
+}
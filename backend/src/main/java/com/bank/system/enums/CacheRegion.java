@@ -0,0 +1,6 @@
+package com.bank.system.enums;
+
+public enum CacheRegion {
+    accountSnapshot,
+    principal;
+}
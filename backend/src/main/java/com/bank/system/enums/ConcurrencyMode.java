@@ -0,0 +1,8 @@
+package com.bank.system.enums;
+
+public enum ConcurrencyMode {
+    // @Version check on SubAccount, conflicting writers retry
+    optimistic,
+    // SELECT ... FOR UPDATE, rows locked in id order
+    pessimistic;
+}
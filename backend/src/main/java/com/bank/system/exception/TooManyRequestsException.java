@@ -0,0 +1,8 @@
+package com.bank.system.exception;
+
+/** Thrown when a request is rejected for backpressure; mapped to 429 by {@link GlobalExceptionHandler}. */
+public class TooManyRequestsException extends RuntimeException {
+    public TooManyRequestsException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,151 @@
+package com.bank.system.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * One pre-allocated, memory-mapped journal file. Records are laid out back to back as
+ * [int payloadLength][int crc32][long seq][payload]; a zero length marks the end of written data.
+ * Appends are serialized by {@link TransactionJournal}; reads work on independent buffer views.
+ */
+class JournalSegment {
+
+    static final int HEADER_SIZE = 4 + 4 + 8;
+
+    private final Path path;
+    private final long firstSeq;
+    private final MappedByteBuffer buffer;
+    private int writePosition;
+    private long lastSeq;
+
+    private JournalSegment(Path path, long firstSeq, MappedByteBuffer buffer) {
+        this.path = path;
+        this.firstSeq = firstSeq;
+        this.buffer = buffer;
+        this.lastSeq = firstSeq - 1;
+    }
+
+    static JournalSegment open(Path dir, long firstSeq, int size) throws IOException {
+        Path path = dir.resolve(fileName(firstSeq));
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            int mappedSize = (int) Math.max(size, channel.size());
+            JournalSegment segment = new JournalSegment(path, firstSeq,
+                    channel.map(FileChannel.MapMode.READ_WRITE, 0, mappedSize));
+            // Find the end of valid data: a torn or unsynced tail fails the CRC check and is overwritten
+            segment.scan(0, Long.MAX_VALUE, record -> {
+                segment.writePosition = record.nextPosition();
+                segment.lastSeq = record.seq();
+            });
+            segment.buffer.putInt(segment.writePosition, 0);
+            return segment;
+        }
+    }
+
+    static String fileName(long firstSeq) {
+        return String.format("journal-%020d.log", firstSeq);
+    }
+
+    static long parseFirstSeq(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring("journal-".length(), name.length() - ".log".length()));
+    }
+
+    boolean hasRoom(int payloadLength) {
+        // Keep room for a zero length terminator after the record
+        return writePosition + HEADER_SIZE + payloadLength + 4 <= buffer.capacity();
+    }
+
+    void append(long seq, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        int position = writePosition;
+        buffer.putInt(position + 4, (int) crc.getValue());
+        buffer.putLong(position + 8, seq);
+        buffer.put(position + HEADER_SIZE, payload);
+        buffer.putInt(position + HEADER_SIZE + payload.length, 0);
+        // Length goes in last so a reader never sees a length without its payload
+        buffer.putInt(position, payload.length);
+        writePosition = position + HEADER_SIZE + payload.length;
+        lastSeq = seq;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    /**
+     * Visits valid records in order starting at the given offset, stopping at the first record with a sequence
+     * number above maxSeq, at the end of written data, or at the first corrupt record.
+     */
+    void scan(int fromPosition, long maxSeq, Consumer<Record> visitor) {
+        ByteBuffer view = buffer.duplicate();
+        Record record = readAt(view, fromPosition, maxSeq);
+        while (record != null) {
+            visitor.accept(record);
+            record = readAt(view, record.nextPosition(), maxSeq);
+        }
+    }
+
+    private static Record readAt(ByteBuffer view, int position, long maxSeq) {
+        if (position + HEADER_SIZE > view.capacity()) {
+            return null;
+        }
+        int length = view.getInt(position);
+        if (length <= 0 || position + HEADER_SIZE + length > view.capacity()) {
+            return null;
+        }
+        long seq = view.getLong(position + 8);
+        if (seq > maxSeq) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        view.get(position + HEADER_SIZE, payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != view.getInt(position + 4)) {
+            return null;
+        }
+        return new Record(seq, payload, position + HEADER_SIZE + length);
+    }
+
+    /** Reads up to maxRecords valid records starting at the given offset; see {@link #scan}. */
+    List<Record> read(int fromPosition, long maxSeq, int maxRecords) {
+        List<Record> records = new ArrayList<>();
+        ByteBuffer view = buffer.duplicate();
+        int position = fromPosition;
+        while (records.size() < maxRecords) {
+            Record record = readAt(view, position, maxSeq);
+            if (record == null) {
+                break;
+            }
+            records.add(record);
+            position = record.nextPosition();
+        }
+        return records;
+    }
+
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    long getFirstSeq() {
+        return firstSeq;
+    }
+
+    long getLastSeq() {
+        return lastSeq;
+    }
+
+    record Record(long seq, byte[] payload, int nextPosition) {
+    }
+}
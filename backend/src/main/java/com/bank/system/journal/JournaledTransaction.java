@@ -0,0 +1,21 @@
+package com.bank.system.journal;
+
+import com.bank.system.dto.BankDTOs.TransactionView;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A committed transaction row still in the {@link TransactionJournal}, not yet drained into the table.
+ */
+@Getter
+@AllArgsConstructor
+public class JournaledTransaction implements TransactionView {
+    private final String id;
+    private final String userId;
+    private final String type;
+    private final Long amount;
+    private final String note;
+    private final String time;
+    private final Long timestamp;
+    private final String subAccountId;
+}
@@ -0,0 +1,567 @@
+package com.bank.system.journal;
+
+import com.bank.system.archive.TransactionArchive;
+import com.bank.system.dto.BankDTOs.TransactionView;
+import com.bank.system.entity.Transaction;
+import com.bank.system.entity.User;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Append-only, memory-mapped write-ahead journal for ledger entries, enabled with app.journal.enabled=true.
+ * <p>
+ * The entries of a database transaction are appended just before it commits, after the persistence context has
+ * been flushed, and the commit only proceeds once they are forced to disk. A single flusher thread forces the
+ * journal for everyone waiting at that moment (group commit), so one fsync covers many requests. Once the
+ * database transaction completes, a commit or abort marker for the group is appended (not waited for).
+ * <p>
+ * A scheduled drainer reads the journal in order, bulk-inserts the entries of committed groups into the
+ * transactions table, drops aborted groups, and records in a checkpoint file the point before which every group
+ * is settled. On startup everything past the checkpoint is read again; a group whose marker never made it to
+ * disk is settled by the journal_commits row its database transaction wrote next to the balance change (removed
+ * again once the group is drained). Inserts use INSERT IGNORE, so applying a group twice is harmless.
+ * <p>
+ * Until a committed group is drained its rows are only in the journal. This node keeps them in memory and
+ * {@link #findUndrained} serves them to the history reads, so a user sees their own transaction right after the
+ * request that made it. Other nodes, the admin export and the reports only see the rows once they are drained
+ * (within app.journal.drain-interval-ms), as does this node for groups journaled before a restart.
+ */
+@Component
+@ConditionalOnProperty(name = "app.journal.enabled", havingValue = "true")
+public class TransactionJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionJournal.class);
+
+    private static final String INSERT_SQL = "INSERT IGNORE INTO transactions " +
+            "(id, user_id, type, amount, note, time, timestamp, sub_account_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_COMMIT_SQL = "INSERT INTO journal_commits (transaction_id) VALUES (?)";
+    private static final String DELETE_COMMIT_SQL = "DELETE FROM journal_commits WHERE transaction_id = ?";
+
+    // Record types; entries carry the sequence number of the first entry of their group
+    private static final byte ENTRY = 1;
+    private static final byte COMMIT = 2;
+    private static final byte ABORT = 3;
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private EntityManager entityManager;
+
+    @Value("${app.journal.dir:./data/journal}")
+    private String directory;
+
+    @Value("${app.journal.segment-size-bytes:67108864}")
+    private int segmentSize;
+
+    @Value("${app.journal.group-commit-wait-micros:200}")
+    private long groupCommitWaitMicros;
+
+    @Value("${app.journal.drain-batch-size:500}")
+    private int drainBatchSize;
+
+    private Path dir;
+    private Path checkpointFile;
+
+    // Guarded by writeLock: the segment being appended to and all segments not yet drained
+    private final Object writeLock = new Object();
+    private final List<JournalSegment> segments = new ArrayList<>();
+    private final List<JournalSegment> unforced = new ArrayList<>();
+    private long lastSeq;
+
+    // Group commit state, guarded by durableMonitor
+    private final Object durableMonitor = new Object();
+    private volatile long durableSeq;
+    private boolean flushRequested;
+    private volatile boolean running = true;
+    private Thread flusher;
+
+    // Drainer state, only touched by the drainer: everything up to drainedSeq is settled, everything up to
+    // readSeq has been read, and pending holds the rows of groups read but not settled yet
+    private long drainedSeq;
+    private long readSeq;
+    private int drainSegment;
+    private int drainPosition;
+    private final TreeMap<Long, List<Object[]>> pending = new TreeMap<>();
+
+    // Rows of groups that committed on this node and aren't drained yet: userId -> transaction id -> row
+    private final Map<String, Map<String, TransactionView>> undrained = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void start() throws IOException {
+        dir = Paths.get(directory);
+        Files.createDirectories(dir);
+        checkpointFile = dir.resolve("checkpoint");
+        drainedSeq = readCheckpoint();
+        readSeq = drainedSeq;
+
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.filter(f -> f.getFileName().toString().startsWith("journal-")).sorted().toList()) {
+                segments.add(JournalSegment.open(dir, JournalSegment.parseFirstSeq(file), segmentSize));
+            }
+        }
+        if (segments.isEmpty()) {
+            segments.add(JournalSegment.open(dir, drainedSeq + 1, segmentSize));
+        }
+        JournalSegment last = segments.get(segments.size() - 1);
+        lastSeq = Math.max(last.getLastSeq(), drainedSeq);
+        // Everything found on disk survived the restart, so it is durable by definition
+        durableSeq = lastSeq;
+        seekDrainCursor();
+
+        flusher = Thread.ofPlatform().daemon().name("journal-flusher").start(this::flushLoop);
+
+        if (lastSeq > drainedSeq) {
+            log.info("Replaying journal records {}..{} into the transactions table", drainedSeq + 1, lastSeq);
+            drainAll();
+            // Nothing is in flight yet, so groups still open lost their marker in a crash
+            for (Map.Entry<Long, List<Object[]>> group : new ArrayList<>(pending.entrySet())) {
+                boolean committed = hasCommitted(group.getValue());
+                log.info("Journal group {} had no marker, settled as {}", group.getKey(),
+                        committed ? "committed" : "aborted");
+                awaitDurable(appendMarker(committed ? COMMIT : ABORT, group.getKey()));
+            }
+            drainAll();
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        synchronized (durableMonitor) {
+            durableMonitor.notifyAll();
+        }
+        flusher.join(5000);
+        forceAll();
+        drainAll();
+    }
+
+    /**
+     * Journals the entry when the current database transaction is about to commit, or immediately if there is
+     * none. The commit proceeds only after the entry is on disk.
+     */
+    public void appendBeforeCommit(Transaction tx) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            long group = appendEntries(List.of(tx));
+            // Before the marker, so the drainer can't have drained the row already
+            addUndrained(List.of(tx));
+            awaitDurable(appendMarker(COMMIT, group));
+            return;
+        }
+
+        PendingEntries pending = (PendingEntries) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingEntries();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.entries.add(tx);
+    }
+
+    /** Appends the entries as one group and returns the group id (the sequence number of its first entry). */
+    private long appendEntries(List<Transaction> entries) {
+        long group;
+        synchronized (writeLock) {
+            group = lastSeq + 1;
+            for (Transaction tx : entries) {
+                append(encode(group, tx));
+            }
+        }
+        return group;
+    }
+
+    /** Appends a commit or abort marker for the group and returns its sequence number. */
+    private long appendMarker(byte type, long group) {
+        synchronized (writeLock) {
+            return append(ByteBuffer.allocate(1 + Long.BYTES).put(type).putLong(group).array());
+        }
+    }
+
+    // Caller holds writeLock
+    private long append(byte[] payload) {
+        JournalSegment current = segments.get(segments.size() - 1);
+        if (!current.hasRoom(payload.length)) {
+            unforced.add(current);
+            current = openSegment(lastSeq + 1);
+            segments.add(current);
+        }
+        current.append(++lastSeq, payload);
+        return lastSeq;
+    }
+
+    /** Asks the flusher for a flush without waiting for it. */
+    private void requestFlush() {
+        synchronized (durableMonitor) {
+            flushRequested = true;
+            durableMonitor.notifyAll();
+        }
+    }
+
+    private void awaitDurable(long seq) {
+        synchronized (durableMonitor) {
+            flushRequested = true;
+            durableMonitor.notifyAll();
+            while (durableSeq < seq) {
+                if (!running) {
+                    throw new IllegalStateException("Journal is shutting down");
+                }
+                try {
+                    durableMonitor.wait();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for journal flush", ex);
+                }
+            }
+        }
+    }
+
+    private void flushLoop() {
+        while (running) {
+            synchronized (durableMonitor) {
+                while (!flushRequested && running) {
+                    try {
+                        durableMonitor.wait();
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+                }
+                flushRequested = false;
+            }
+            if (groupCommitWaitMicros > 0) {
+                // Give concurrent appenders a moment to join this flush
+                try {
+                    Thread.sleep(0, (int) Math.min(groupCommitWaitMicros * 1000, 999_999));
+                } catch (InterruptedException ex) {
+                    return;
+                }
+            }
+            forceAll();
+        }
+    }
+
+    private void forceAll() {
+        long target;
+        List<JournalSegment> toForce;
+        synchronized (writeLock) {
+            target = lastSeq;
+            toForce = new ArrayList<>(unforced);
+            toForce.add(segments.get(segments.size() - 1));
+            unforced.clear();
+        }
+        for (JournalSegment segment : toForce) {
+            segment.force();
+        }
+        synchronized (durableMonitor) {
+            durableSeq = Math.max(durableSeq, target);
+            durableMonitor.notifyAll();
+        }
+    }
+
+    /**
+     * Reads durable records in order, inserts the entries of groups that committed in batches and advances the
+     * checkpoint to just before the oldest group still waiting for its marker.
+     * Returns the number of records read.
+     */
+    @Scheduled(fixedDelayString = "${app.journal.drain-interval-ms:100}")
+    public synchronized int drain() {
+        long upTo = durableSeq;
+        List<JournalSegment> snapshot;
+        synchronized (writeLock) {
+            snapshot = new ArrayList<>(segments);
+        }
+
+        List<Object[]> batch = new ArrayList<>();
+        List<Object[]> commitRows = new ArrayList<>();
+        int read = 0;
+        long lastRead = readSeq;
+        int segmentIndex = drainSegment;
+        int position = drainPosition;
+        while (segmentIndex < snapshot.size() && read < drainBatchSize) {
+            JournalSegment segment = snapshot.get(segmentIndex);
+            for (JournalSegment.Record record : segment.read(position, upTo, drainBatchSize - read)) {
+                ByteBuffer payload = ByteBuffer.wrap(record.payload());
+                byte type = payload.get();
+                long group = payload.getLong();
+                if (type == ENTRY) {
+                    pending.computeIfAbsent(group, g -> new ArrayList<>()).add(toRow(decode(payload)));
+                } else {
+                    // Markers for groups settled before the checkpoint are seen again after a restart
+                    List<Object[]> rows = pending.remove(group);
+                    if (rows != null && type == COMMIT) {
+                        batch.addAll(rows);
+                        commitRows.add(new Object[] {rows.get(0)[0]});
+                    }
+                }
+                read++;
+                lastRead = record.seq();
+                position = record.nextPosition();
+            }
+            // Only sealed segments (not the last one in the snapshot) can be finished
+            if (segmentIndex < snapshot.size() - 1 && segment.getLastSeq() <= lastRead) {
+                segmentIndex++;
+                position = 0;
+            } else {
+                break;
+            }
+        }
+
+        if (read == 0) {
+            return 0;
+        }
+        if (!batch.isEmpty()) {
+            try {
+                jdbcTemplate.batchUpdate(INSERT_SQL, batch);
+                jdbcTemplate.batchUpdate(DELETE_COMMIT_SQL, commitRows);
+                removeUndrained(batch);
+            } catch (RuntimeException ex) {
+                // Start over from the checkpoint on the next run; groups inserted twice are ignored
+                pending.clear();
+                readSeq = drainedSeq;
+                seekDrainCursor();
+                throw ex;
+            }
+        }
+        readSeq = lastRead;
+        drainSegment = segmentIndex;
+        drainPosition = position;
+        long settledUpTo = pending.isEmpty() ? readSeq : pending.firstKey() - 1;
+        if (settledUpTo > drainedSeq) {
+            drainedSeq = settledUpTo;
+            writeCheckpoint(drainedSeq);
+            deleteDrainedSegments();
+        }
+        return read;
+    }
+
+    /** Committed rows of the user that this node journaled and hasn't drained yet, newest first. */
+    public List<TransactionView> findUndrained(String userId) {
+        Map<String, TransactionView> rows = undrained.get(userId);
+        if (rows == null) {
+            return List.of();
+        }
+        return rows.values().stream().sorted(TransactionArchive.NEWEST_FIRST).toList();
+    }
+
+    /** Timestamp of the oldest committed row this node hasn't drained into the table yet, or null if none. */
+    public Long oldestUndrained() {
+        return undrained.values().stream()
+                .flatMap(rows -> rows.values().stream())
+                .map(TransactionView::getTimestamp)
+                .min(Long::compare)
+                .orElse(null);
+    }
+
+    private void addUndrained(List<Transaction> entries) {
+        for (Transaction tx : entries) {
+            TransactionView row = new JournaledTransaction(tx.getId(), tx.getUser().getId(), tx.getType(),
+                    tx.getAmount(), tx.getNote(), tx.getTime(), tx.getTimestamp(), tx.getSubAccountId());
+            // Inside compute, so a concurrent removeUndrained can't drop the map this row goes into
+            undrained.compute(row.getUserId(), (userId, byId) -> {
+                Map<String, TransactionView> rows = byId != null ? byId : new ConcurrentHashMap<>();
+                rows.put(row.getId(), row);
+                return rows;
+            });
+        }
+    }
+
+    private void removeUndrained(List<Object[]> rows) {
+        for (Object[] row : rows) {
+            undrained.computeIfPresent((String) row[1], (userId, byId) -> {
+                byId.remove((String) row[0]);
+                return byId.isEmpty() ? null : byId;
+            });
+        }
+    }
+
+    private void drainAll() {
+        while (drain() > 0) {
+            // keep going until the backlog is gone
+        }
+    }
+
+    /** Whether the database transaction that journaled these rows committed, judged by its journal_commits row. */
+    private boolean hasCommitted(List<Object[]> rows) {
+        Integer found = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM journal_commits WHERE transaction_id = ?", Integer.class, rows.get(0)[0]);
+        return found != null && found > 0;
+    }
+
+    /** Positions the drain cursor just past the last checkpointed entry. */
+    private void seekDrainCursor() {
+        deleteDrainedSegments();
+        for (int i = 0; i < segments.size(); i++) {
+            JournalSegment segment = segments.get(i);
+            if (segment.getLastSeq() <= drainedSeq && i < segments.size() - 1) {
+                continue;
+            }
+            int[] position = {0};
+            segment.scan(0, drainedSeq, record -> position[0] = record.nextPosition());
+            drainSegment = i;
+            drainPosition = position[0];
+            return;
+        }
+    }
+
+    private void deleteDrainedSegments() {
+        synchronized (writeLock) {
+            while (segments.size() > 1 && segments.get(0).getLastSeq() <= drainedSeq && !unforced.contains(segments.get(0))) {
+                JournalSegment drained = segments.remove(0);
+                drainSegment = Math.max(0, drainSegment - 1);
+                try {
+                    drained.delete();
+                } catch (IOException ex) {
+                    log.warn("Could not delete drained journal segment starting at {}", drained.getFirstSeq(), ex);
+                }
+            }
+        }
+    }
+
+    private JournalSegment openSegment(long firstSeq) {
+        try {
+            return JournalSegment.open(dir, firstSeq, segmentSize);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private long readCheckpoint() throws IOException {
+        if (!Files.exists(checkpointFile)) {
+            return 0;
+        }
+        byte[] bytes = Files.readAllBytes(checkpointFile);
+        return bytes.length == Long.BYTES ? ByteBuffer.wrap(bytes).getLong() : 0;
+    }
+
+    private void writeCheckpoint(long seq) {
+        try (FileChannel channel = FileChannel.open(checkpointFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, seq));
+            channel.force(false);
+        } catch (IOException ex) {
+            // The entries are already inserted; replaying them after a restart is harmless
+            log.warn("Could not write journal checkpoint {}", seq, ex);
+        }
+    }
+
+    private static Object[] toRow(Transaction tx) {
+        return new Object[] {tx.getId(), tx.getUser().getId(), tx.getType(), tx.getAmount(), tx.getNote(),
+                tx.getTime(), tx.getTimestamp(), tx.getSubAccountId()};
+    }
+
+    private static byte[] encode(long group, Transaction tx) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(ENTRY);
+            out.writeLong(group);
+            out.writeUTF(tx.getId());
+            out.writeUTF(tx.getUser().getId());
+            out.writeUTF(tx.getType());
+            out.writeLong(tx.getAmount());
+            writeNullable(out, tx.getNote());
+            out.writeUTF(tx.getTime());
+            out.writeLong(tx.getTimestamp());
+            writeNullable(out, tx.getSubAccountId());
+            return bytes.toByteArray();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /** Decodes an entry from the payload, positioned just past its type and group. */
+    private static Transaction decode(ByteBuffer payload) {
+        try {
+            DataInputStream in = new DataInputStream(
+                    new ByteArrayInputStream(payload.array(), payload.position(), payload.remaining()));
+            Transaction tx = new Transaction();
+            tx.setId(in.readUTF());
+            User user = new User();
+            user.setId(in.readUTF());
+            tx.setUser(user);
+            tx.setType(in.readUTF());
+            tx.setAmount(in.readLong());
+            tx.setNote(readNullable(in));
+            tx.setTime(in.readUTF());
+            tx.setTimestamp(in.readLong());
+            tx.setSubAccountId(readNullable(in));
+            return tx;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /** Entries recorded in one database transaction, journaled as one group just before it commits. */
+    private final class PendingEntries implements TransactionSynchronization {
+        final List<Transaction> entries = new ArrayList<>();
+        long group;
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            // Version conflicts and constraint violations surface here, before anything is journaled
+            entityManager.flush();
+            // Commits or rolls back with the balance change, so recovery can tell which one happened
+            jdbcTemplate.update(INSERT_COMMIT_SQL, entries.get(0).getId());
+            group = appendEntries(entries);
+            // A failure here rolls the database transaction back
+            awaitDurable(group + entries.size() - 1);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(TransactionJournal.this);
+            if (group == 0) {
+                return;
+            }
+            try {
+                boolean committed = status == STATUS_COMMITTED
+                        || (status == STATUS_UNKNOWN && hasCommitted(entries.stream().map(TransactionJournal::toRow).toList()));
+                if (committed) {
+                    addUndrained(entries);
+                }
+                appendMarker(committed ? COMMIT : ABORT, group);
+                requestFlush();
+            } catch (RuntimeException ex) {
+                // The group stays open (holding back the checkpoint) until the next startup settles it
+                log.error("Could not journal the outcome of group {}", group, ex);
+            }
+        }
+    }
+}
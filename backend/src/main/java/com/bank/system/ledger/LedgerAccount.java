@@ -0,0 +1,16 @@
+package com.bank.system.ledger;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Immutable view of an in-memory ledger account, handed out by {@link ShardedLedger}.
+ */
+@Getter
+@AllArgsConstructor
+public class LedgerAccount {
+    private final String subAccountId;
+    private final String userId;
+    private final String name;
+    private final long balance;
+}
@@ -0,0 +1,137 @@
+package com.bank.system.ledger;
+
+import com.bank.system.entity.SubAccountEntry;
+import com.bank.system.entity.Transaction;
+import com.bank.system.repository.SubAccountRepository;
+import com.bank.system.repository.TransactionRepository;
+import com.bank.system.service.BalanceHistoryService;
+import com.bank.system.service.BalanceSummaryService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persists {@link ShardedLedger} state: dirty balances, queued transaction rows and balance entries are
+ * written to the database in one transaction every app.ledger.flush-interval-ms.
+ */
+@Component
+@ConditionalOnProperty(name = "app.ledger.engine", havingValue = "sharded")
+public class LedgerWriteBehind {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerWriteBehind.class);
+
+    @Autowired private ShardedLedger ledger;
+    @Autowired private SubAccountRepository subAccountRepository;
+    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private BalanceSummaryService balanceSummaryService;
+    @Autowired private BalanceHistoryService balanceHistoryService;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    @Value("${app.ledger.flush-batch-size:1000}")
+    private int batchSize;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${app.ledger.flush-interval-ms:200}")
+    public void flush() {
+        flushBatch();
+    }
+
+    /**
+     * Timestamp of the oldest balance entry not in the database yet, or null if there is none. Synchronized with
+     * the flush, so no batch is between the queue and the database while it looks.
+     */
+    public synchronized Long oldestPendingEntry() {
+        return ledger.oldestPendingEntry();
+    }
+
+    /** Timestamp of the oldest transaction row not in the database yet, or null if there is none. */
+    public synchronized Long oldestPendingTransaction() {
+        return ledger.oldestPendingTransaction();
+    }
+
+    /** Returns true if a non-empty batch was written successfully. */
+    private synchronized boolean flushBatch() {
+        Map<String, Long> balances = ledger.drainDirtyBalances();
+        List<Transaction> transactions = ledger.drainPendingTransactions(batchSize);
+        List<SubAccountEntry> entries = ledger.drainPendingEntries(batchSize * 2);
+        if (balances.isEmpty() && transactions.isEmpty() && entries.isEmpty()) {
+            return false;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                balances.forEach(subAccountRepository::setBalance);
+                transactionRepository.saveAll(transactions);
+                balanceSummaryService.recordLedgerFlush(balances.keySet(), transactions);
+                balanceHistoryService.recordEntries(entries);
+            });
+        } catch (RuntimeException ex) {
+            log.error("Ledger write-behind failed for {} balances and {} transactions, will retry",
+                    balances.size(), transactions.size(), ex);
+            ledger.requeue(balances.keySet(), retainRetryable(transactions), retainRetryableEntries(entries));
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Re-saves a failed batch row by row so that one bad row (e.g. its user was deleted in the meantime)
+     * doesn't block the rest. Rows rejected by a constraint are dropped; anything else is kept for retry.
+     */
+    private List<Transaction> retainRetryable(List<Transaction> transactions) {
+        List<Transaction> retry = new ArrayList<>();
+        for (Transaction tx : transactions) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    transactionRepository.save(tx);
+                    balanceSummaryService.recordLedgerFlush(List.of(), List.of(tx));
+                });
+            } catch (DataIntegrityViolationException ex) {
+                log.warn("Dropping ledger transaction {} rejected by the database: {}", tx.getId(), ex.getMessage());
+            } catch (RuntimeException ex) {
+                retry.add(tx);
+            }
+        }
+        return retry;
+    }
+
+    private List<SubAccountEntry> retainRetryableEntries(List<SubAccountEntry> entries) {
+        List<SubAccountEntry> retry = new ArrayList<>();
+        for (SubAccountEntry entry : entries) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> balanceHistoryService.recordEntries(List.of(entry)));
+            } catch (DataIntegrityViolationException ex) {
+                log.warn("Dropping balance entry {} rejected by the database: {}", entry.getId(), ex.getMessage());
+            } catch (RuntimeException ex) {
+                retry.add(entry);
+            }
+        }
+        return retry;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        while (flushBatch()) {
+            // drain everything still queued before the context goes away (stops early if the database is failing)
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package com.bank.system.ledger;
+
+import com.bank.system.entity.SubAccount;
+import com.bank.system.entity.SubAccountEntry;
+import com.bank.system.entity.Transaction;
+import com.bank.system.repository.SubAccountRepository;
+import com.bank.system.service.BalanceHistoryService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * In-memory ledger for the transaction hot path, enabled with app.ledger.engine=sharded.
+ * <p>
+ * Sub-accounts are partitioned across N shards by id. Each shard owns its balances exclusively and applies
+ * commands one at a time on its own mailbox thread, so no locking is needed. Balances are loaded lazily from
+ * the database on first use, by the calling thread before its command is queued, so a cold load doesn't hold up
+ * the other accounts of the shard; changes are written back asynchronously by {@link LedgerWriteBehind}.
+ * Assumes a single backend node owns the ledger.
+ */
+@Component
+@ConditionalOnProperty(name = "app.ledger.engine", havingValue = "sharded")
+public class ShardedLedger {
+
+    @Autowired private SubAccountRepository subAccountRepository;
+    @Autowired private BalanceHistoryService balanceHistoryService;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    @Value("${app.ledger.shards:8}")
+    private int shardCount;
+
+    private Shard[] shards;
+
+    // Loads commit on their own: the opening checkpoint must exist before the account changes in memory
+    private TransactionTemplate loadTemplate;
+
+    // Accounts whose balance changed since the last write-behind flush
+    private final Set<String> dirtyAccounts = ConcurrentHashMap.newKeySet();
+    private final Queue<Transaction> pendingTransactions = new ConcurrentLinkedQueue<>();
+    private final Queue<SubAccountEntry> pendingEntries = new ConcurrentLinkedQueue<>();
+
+    @PostConstruct
+    void start() {
+        loadTemplate = new TransactionTemplate(transactionManager);
+        loadTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i);
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        for (Shard shard : shards) {
+            shard.mailbox.shutdown();
+        }
+        for (Shard shard : shards) {
+            shard.mailbox.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    public LedgerAccount credit(String subAccountId, String userId, long amount) {
+        return shardFor(subAccountId).callLoaded(List.of(subAccountId), shard -> {
+            Account account = shard.ownedAccount(subAccountId, userId);
+            account.balance += amount;
+            dirtyAccounts.add(subAccountId);
+            return account.view();
+        });
+    }
+
+    public LedgerAccount debit(String subAccountId, String userId, long amount, String insufficientMessage) {
+        return shardFor(subAccountId).callLoaded(List.of(subAccountId), shard -> {
+            Account account = shard.ownedAccount(subAccountId, userId);
+            if (account.balance < amount) {
+                throw new RuntimeException(insufficientMessage);
+            }
+            account.balance -= amount;
+            dirtyAccounts.add(subAccountId);
+            return account.view();
+        });
+    }
+
+    /**
+     * Moves money between two accounts. Within one shard this is a single command; across shards it is
+     * two-phase: debit on the source shard, then credit on the target shard, compensating the debit if the
+     * credit can't be applied.
+     */
+    public void transfer(String fromId, String fromUserId, String toId, String toUserId, long amount,
+                         String insufficientMessage) {
+        Shard fromShard = shardFor(fromId);
+        Shard toShard = shardFor(toId);
+
+        if (fromShard == toShard) {
+            fromShard.callLoaded(List.of(fromId, toId), shard -> {
+                Account from = shard.ownedAccount(fromId, fromUserId);
+                Account to = shard.ownedAccount(toId, toUserId);
+                if (from.balance < amount) {
+                    throw new RuntimeException(insufficientMessage);
+                }
+                from.balance -= amount;
+                to.balance += amount;
+                dirtyAccounts.add(fromId);
+                dirtyAccounts.add(toId);
+                return null;
+            });
+            return;
+        }
+
+        debit(fromId, fromUserId, amount, insufficientMessage);
+        try {
+            credit(toId, toUserId, amount);
+        } catch (RuntimeException ex) {
+            credit(fromId, fromUserId, amount);
+            throw ex;
+        }
+    }
+
+    public LedgerAccount get(String subAccountId, String userId) {
+        return shardFor(subAccountId).callLoaded(List.of(subAccountId),
+                shard -> shard.ownedAccount(subAccountId, userId).view());
+    }
+
+    /**
+     * Closes an account that is about to be deleted. Fails with the given message unless the balance is zero;
+     * from then on every command on the account is rejected, so no credit can land between this check and the
+     * delete. {@link #reopen} undoes it when the delete rolls back.
+     */
+    public void close(String subAccountId, String userId, String nonEmptyMessage) {
+        shardFor(subAccountId).callLoaded(List.of(subAccountId), shard -> {
+            Account account = shard.ownedAccount(subAccountId, userId);
+            if (account.balance > 0L) {
+                throw new RuntimeException(nonEmptyMessage);
+            }
+            account.closed = true;
+            return null;
+        });
+    }
+
+    public void reopen(String subAccountId) {
+        shardFor(subAccountId).call(shard -> {
+            Account account = shard.accounts.get(subAccountId);
+            if (account != null) {
+                account.closed = false;
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Returns copies of the given sub-accounts carrying the live in-memory balance where the ledger holds one.
+     * The entities themselves are left untouched so the stale database value is never flushed back.
+     */
+    public List<SubAccount> withLiveBalances(List<SubAccount> subAccounts) {
+        List<SubAccount> result = new ArrayList<>(subAccounts.size());
+        for (SubAccount sub : subAccounts) {
+            Long live = shardFor(sub.getId()).call(shard -> {
+                Account account = shard.accounts.get(sub.getId());
+                return account != null ? account.balance : null;
+            });
+            SubAccount copy = new SubAccount();
+            copy.setId(sub.getId());
+            copy.setUser(sub.getUser());
+            copy.setName(sub.getName());
+            copy.setBalance(live != null ? live : sub.getBalance());
+            copy.setColor(sub.getColor());
+            copy.setCreatedAt(sub.getCreatedAt());
+            copy.setVersion(sub.getVersion());
+            result.add(copy);
+        }
+        return result;
+    }
+
+    /** Returns the in-memory balance, or null if the account hasn't been loaded into the ledger. */
+    public Long peekBalance(String subAccountId) {
+        return shardFor(subAccountId).call(shard -> {
+            Account account = shard.accounts.get(subAccountId);
+            return account != null ? account.balance : null;
+        });
+    }
+
+    /**
+     * Forgets the pending balance of a closed account once its delete has committed. The closed account itself
+     * stays in memory, so a load that read the row before the delete can't bring it back.
+     */
+    public void evict(String subAccountId) {
+        dirtyAccounts.remove(subAccountId);
+    }
+
+    public void appendTransaction(Transaction tx) {
+        pendingTransactions.add(tx);
+    }
+
+    public void appendEntry(SubAccountEntry entry) {
+        pendingEntries.add(entry);
+    }
+
+    /**
+     * Takes the current balance of every account changed since the last call. An account modified again while
+     * the snapshot is taken is simply marked dirty for the next flush.
+     */
+    Map<String, Long> drainDirtyBalances() {
+        Map<Shard, List<String>> byShard = new HashMap<>();
+        for (String id : dirtyAccounts) {
+            if (dirtyAccounts.remove(id)) {
+                byShard.computeIfAbsent(shardFor(id), s -> new ArrayList<>()).add(id);
+            }
+        }
+
+        Map<String, Long> balances = new HashMap<>();
+        byShard.forEach((shard, ids) -> balances.putAll(shard.call(s -> {
+            Map<String, Long> snapshot = new HashMap<>();
+            for (String id : ids) {
+                Account account = s.accounts.get(id);
+                if (account != null) {
+                    snapshot.put(id, account.balance);
+                }
+            }
+            return snapshot;
+        })));
+        return balances;
+    }
+
+    List<Transaction> drainPendingTransactions(int max) {
+        List<Transaction> batch = new ArrayList<>();
+        Transaction tx;
+        while (batch.size() < max && (tx = pendingTransactions.poll()) != null) {
+            batch.add(tx);
+        }
+        return batch;
+    }
+
+    List<SubAccountEntry> drainPendingEntries(int max) {
+        List<SubAccountEntry> batch = new ArrayList<>();
+        SubAccountEntry entry;
+        while (batch.size() < max && (entry = pendingEntries.poll()) != null) {
+            batch.add(entry);
+        }
+        return batch;
+    }
+
+    /** Timestamp of the oldest queued balance entry, or null if none is queued. */
+    Long oldestPendingEntry() {
+        return oldest(pendingEntries, SubAccountEntry::getTimestamp);
+    }
+
+    /** Timestamp of the oldest queued transaction row, or null if none is queued. */
+    Long oldestPendingTransaction() {
+        return oldest(pendingTransactions, Transaction::getTimestamp);
+    }
+
+    private static <T> Long oldest(Collection<T> queued, Function<T, Long> timestamp) {
+        Long oldest = null;
+        for (T item : queued) {
+            Long value = timestamp.apply(item);
+            if (oldest == null || value < oldest) {
+                oldest = value;
+            }
+        }
+        return oldest;
+    }
+
+    /** Puts back work whose write-behind failed so the next flush retries it. */
+    void requeue(Collection<String> accountIds, List<Transaction> transactions, List<SubAccountEntry> entries) {
+        dirtyAccounts.addAll(accountIds);
+        pendingTransactions.addAll(transactions);
+        pendingEntries.addAll(entries);
+    }
+
+    private Shard shardFor(String subAccountId) {
+        return shards[Math.floorMod(subAccountId.hashCode(), shards.length)];
+    }
+
+    private static final class Account {
+        final String id;
+        final String userId;
+        final String name;
+        long balance;
+        boolean closed;
+
+        Account(String id, String userId, String name, long balance) {
+            this.id = id;
+            this.userId = userId;
+            this.name = name;
+            this.balance = balance;
+        }
+
+        LedgerAccount view() {
+            return new LedgerAccount(id, userId, name, balance);
+        }
+    }
+
+    private final class Shard {
+        // Single-writer: accounts is only changed from the mailbox thread; callers only check which ids it holds
+        final ExecutorService mailbox;
+        final Map<String, Account> accounts = new ConcurrentHashMap<>();
+
+        Shard(int index) {
+            this.mailbox = Executors.newSingleThreadExecutor(Thread.ofVirtual().name("ledger-shard-" + index).factory());
+        }
+
+        <T> T call(Function<Shard, T> command) {
+            try {
+                return CompletableFuture.supplyAsync(() -> command.apply(this), mailbox).join();
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw ex;
+            }
+        }
+
+        /** Loads the accounts this shard doesn't hold yet, then runs the command on the mailbox. */
+        <T> T callLoaded(List<String> subAccountIds, Function<Shard, T> command) {
+            for (String subAccountId : subAccountIds) {
+                if (!accounts.containsKey(subAccountId)) {
+                    Account loaded = load(subAccountId);
+                    // A concurrent load may have won; its account may already have changed, so keep it
+                    call(shard -> shard.accounts.putIfAbsent(subAccountId, loaded));
+                }
+            }
+            return call(command);
+        }
+
+        private Account load(String subAccountId) {
+            return loadTemplate.execute(status -> {
+                SubAccount sub = subAccountRepository.findById(subAccountId)
+                        .orElseThrow(() -> new RuntimeException("子帳戶不存在"));
+                // The database balance is exact until the first change in memory; from then on the entries,
+                // which reach the database later, are what point-in-time balances are derived from
+                balanceHistoryService.openCheckpointIfMissing(sub.getId(), sub.getUser().getId(), sub.getBalance());
+                return new Account(sub.getId(), sub.getUser().getId(), sub.getName(), sub.getBalance());
+            });
+        }
+
+        Account ownedAccount(String subAccountId, String userId) {
+            Account account = accounts.get(subAccountId);
+            if (account == null || account.closed || !account.userId.equals(userId)) {
+                throw new RuntimeException("子帳戶不存在");
+            }
+            return account;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.bank.system.metrics;
+
+import com.bank.system.entity.Transaction;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Application meters. Percentiles and histograms for these timers are configured with
+ * management.metrics.distribution.* in application.properties.
+ */
+@Component
+public class BankMetrics {
+
+    public static final String OPERATION_TIMER = "bank.operation";
+    public static final String TRANSACTIONS_RECORDED = "bank.transactions.recorded";
+    public static final String JWT_TIMER = "bank.auth.jwt";
+
+    @Autowired private MeterRegistry registry;
+
+    /**
+     * Times a balance-changing operation, tagged with its outcome and, for failures, the reason (the business
+     * error message, which comes from a fixed set, or the exception type otherwise).
+     */
+    public <T> T timeOperation(String operation, Supplier<T> body) {
+        long start = System.nanoTime();
+        String outcome = "success";
+        String reason = "none";
+        try {
+            return body.get();
+        } catch (RuntimeException ex) {
+            outcome = "failure";
+            reason = reason(ex);
+            throw ex;
+        } finally {
+            Timer.builder(OPERATION_TIMER)
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .tag("reason", reason)
+                    .register(registry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void timeOperation(String operation, Runnable body) {
+        timeOperation(operation, () -> {
+            body.run();
+            return null;
+        });
+    }
+
+    /** Counts recorded transactions by type once the surrounding transaction commits, so retries count once. */
+    public void countTransactions(List<Transaction> transactions) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    increment(transactions);
+                }
+            });
+        } else {
+            increment(transactions);
+        }
+    }
+
+    private void increment(List<Transaction> transactions) {
+        for (Transaction tx : transactions) {
+            Counter.builder(TRANSACTIONS_RECORDED).tag("type", tx.getType()).register(registry).increment();
+        }
+    }
+
+    public void recordJwt(String outcome, long nanos) {
+        Timer.builder(JWT_TIMER).tag("outcome", outcome).register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static String reason(RuntimeException ex) {
+        if (ex.getClass() == RuntimeException.class && ex.getMessage() != null) {
+            return ex.getMessage();
+        }
+        return ex.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,164 @@
+package com.bank.system.perf;
+
+import com.bank.system.entity.SubAccount;
+import com.bank.system.entity.Transaction;
+import com.bank.system.entity.User;
+import com.bank.system.entity.UserBalanceSummary;
+import com.bank.system.enums.UserRole;
+import com.bank.system.enums.UserStatus;
+import com.bank.system.repository.SubAccountRepository;
+import com.bank.system.repository.TransactionRepository;
+import com.bank.system.repository.UserBalanceSummaryRepository;
+import com.bank.system.repository.UserRepository;
+import com.bank.system.util.IdGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Seeds the perf profile's in-memory database at startup: app.perf.seed.users users (login ids perf0, perf1,
+ * ... sharing app.perf.seed.password), each with sub-accounts-per-user sub-accounts and transactions-per-user
+ * history rows, plus matching balance summaries. Ids are derived from the user index (see {@link #userId(int)})
+ * so the load driver can address any seeded user.
+ */
+@Component
+@Profile("perf")
+public class PerfDataSeeder implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(PerfDataSeeder.class);
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy/MM/dd a h:mm:ss", Locale.TAIWAN).withZone(ZoneId.systemDefault());
+    private static final int CHUNK_SIZE = 200;
+
+    @Autowired private UserRepository userRepository;
+    @Autowired private SubAccountRepository subAccountRepository;
+    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private UserBalanceSummaryRepository summaryRepository;
+    @Autowired private PasswordEncoder passwordEncoder;
+    @Autowired private IdGenerator idGenerator;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    @Value("${app.perf.seed.users:1000}")
+    private int users;
+
+    @Value("${app.perf.seed.sub-accounts-per-user:2}")
+    private int subAccountsPerUser;
+
+    @Value("${app.perf.seed.transactions-per-user:50}")
+    private int transactionsPerUser;
+
+    @Value("${app.perf.seed.initial-balance:100000000}")
+    private long initialBalance;
+
+    @Value("${app.perf.seed.password:perf-password}")
+    private String password;
+
+    public static String userId(int index) {
+        return String.format("8%011d", index);
+    }
+
+    public static String loginId(int index) {
+        return "perf" + index;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.currentTimeMillis();
+        // One hash for everyone: BCrypt per user would dominate seeding time
+        String encodedPassword = passwordEncoder.encode(password);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (int from = 0; from < users; from += CHUNK_SIZE) {
+            int to = Math.min(users, from + CHUNK_SIZE);
+            int chunkStart = from;
+            try {
+                transactionTemplate.executeWithoutResult(status -> seedChunk(chunkStart, to, encodedPassword));
+            } catch (RuntimeException ex) {
+                // Thrown out of the runner, so the application fails to start instead of running half-seeded
+                throw new IllegalStateException("Seeding perf users " + chunkStart + ".." + (to - 1) + " failed", ex);
+            }
+        }
+        if (users > 0 && subAccountRepository.countByUserId(userId(users - 1)) != subAccountsPerUser) {
+            throw new IllegalStateException("Perf seed incomplete: user " + userId(users - 1) + " is missing sub-accounts");
+        }
+        log.info("Seeded {} users, {} sub-accounts and {} transactions in {} ms", users,
+                (long) users * subAccountsPerUser, (long) users * transactionsPerUser,
+                System.currentTimeMillis() - start);
+    }
+
+    private void seedChunk(int from, int to, String encodedPassword) {
+        List<User> userRows = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            User user = new User();
+            user.setId(userId(i));
+            user.setLoginId(loginId(i));
+            user.setRealName("壓測用戶" + i);
+            user.setPassword(encodedPassword);
+            user.setRole(UserRole.user);
+            user.setStatus(UserStatus.active);
+            userRows.add(user);
+        }
+        // Persisted first: the rows below must reference the managed users
+        List<User> savedUsers = userRepository.saveAll(userRows);
+
+        List<SubAccount> subAccountRows = new ArrayList<>();
+        List<Transaction> transactionRows = new ArrayList<>();
+        List<UserBalanceSummary> summaryRows = new ArrayList<>();
+        long now = System.currentTimeMillis();
+
+        for (User user : savedUsers) {
+            for (int s = 0; s < subAccountsPerUser; s++) {
+                SubAccount subAccount = new SubAccount();
+                subAccount.setId(String.format("SUB%03d_%s", s + 1, user.getId()));
+                subAccount.setUser(user);
+                subAccount.setName(s == 0 ? "主帳戶" : "子帳戶" + s);
+                subAccount.setBalance(initialBalance);
+                subAccount.setColor("#3b82f6");
+                subAccountRows.add(subAccount);
+            }
+
+            // History only; balances above already include these deposits
+            long timestamp = now - transactionsPerUser * 60_000L;
+            for (int t = 0; t < transactionsPerUser; t++) {
+                timestamp += 60_000L;
+                Transaction tx = new Transaction();
+                tx.setId(idGenerator.nextId());
+                tx.setUser(user);
+                tx.setType("存款");
+                tx.setAmount(100L + t);
+                SubAccount target = subAccountRows.get(subAccountRows.size() - subAccountsPerUser + t % subAccountsPerUser);
+                tx.setSubAccountId(target.getId());
+                tx.setNote("存入「" + target.getName() + "」");
+                tx.setTime(TIME_FORMAT.format(Instant.ofEpochMilli(timestamp)));
+                tx.setTimestamp(timestamp);
+                transactionRows.add(tx);
+            }
+
+            UserBalanceSummary summary = new UserBalanceSummary();
+            summary.setUserId(user.getId());
+            summary.setTotalBalance(initialBalance * subAccountsPerUser);
+            summary.setSubAccountCount(subAccountsPerUser);
+            summary.setTxCount((long) transactionsPerUser);
+            summary.setLastActivityAt(transactionsPerUser > 0 ? timestamp : null);
+            summaryRows.add(summary);
+        }
+
+        subAccountRepository.saveAll(subAccountRows);
+        transactionRepository.saveAll(transactionRows);
+        summaryRepository.saveAll(summaryRows);
+    }
+}
@@ -0,0 +1,174 @@
+package com.bank.system.pipeline;
+
+import com.bank.system.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs commands on virtual threads, one at a time per account key and in arrival order, so requests for the
+ * same sub-account don't compete for its row lock while different accounts run in parallel. Each key has a
+ * bounded queue (app.transaction.pipeline.max-queue-per-account) and the total number of waiting commands
+ * is bounded too (app.transaction.pipeline.max-pending); beyond either limit submissions are rejected with
+ * {@link TooManyRequestsException}. Queues exist only while they have work.
+ */
+@Component
+@ConditionalOnProperty(name = "app.transaction.pipeline.enabled", havingValue = "true")
+public class AccountCommandPipeline {
+
+    private final ExecutorService executor =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("account-command-", 0).factory());
+    private final ConcurrentHashMap<String, AccountQueue> queues = new ConcurrentHashMap<>();
+    private final int maxQueuePerAccount;
+    private final int maxPending;
+
+    private final AtomicInteger pending = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final Timer waitTimer;
+    private final Counter rejectedCounter;
+
+    public AccountCommandPipeline(@Value("${app.transaction.pipeline.max-queue-per-account:100}") int maxQueuePerAccount,
+                                  @Value("${app.transaction.pipeline.max-pending:10000}") int maxPending,
+                                  MeterRegistry meterRegistry) {
+        this.maxQueuePerAccount = maxQueuePerAccount;
+        this.maxPending = maxPending;
+        Gauge.builder("bank.pipeline.pending", pending, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("bank.pipeline.active.accounts", queues, Map::size).register(meterRegistry);
+        this.waitTimer = Timer.builder("bank.pipeline.wait").register(meterRegistry);
+        this.rejectedCounter = Counter.builder("bank.pipeline.rejected").register(meterRegistry);
+    }
+
+    public <T> CompletableFuture<T> submit(String accountKey, Supplier<T> command) {
+        if (pending.incrementAndGet() > maxPending) {
+            reject();
+            throw new TooManyRequestsException("系統忙碌中，請稍後再試");
+        }
+
+        Task<T> task = new Task<>(command);
+        AccountQueue queue;
+        boolean start;
+        while (true) {
+            queue = queues.computeIfAbsent(accountKey, key -> new AccountQueue());
+            synchronized (queue) {
+                if (queue.retired) {
+                    // Drained and removed in the meantime; take the fresh queue
+                    continue;
+                }
+                if (queue.tasks.size() >= maxQueuePerAccount) {
+                    reject();
+                    throw new TooManyRequestsException("此帳戶的交易請求過多，請稍後再試");
+                }
+                queue.tasks.add(task);
+                start = !queue.running;
+                queue.running = true;
+            }
+            break;
+        }
+        if (start) {
+            AccountQueue started = queue;
+            executor.execute(() -> drain(accountKey, started));
+        }
+        return task.future;
+    }
+
+    private void drain(String accountKey, AccountQueue queue) {
+        while (true) {
+            Task<?> task;
+            synchronized (queue) {
+                task = queue.tasks.poll();
+                if (task == null) {
+                    queue.running = false;
+                    queue.retired = true;
+                    queues.remove(accountKey, queue);
+                    return;
+                }
+            }
+            run(task);
+        }
+    }
+
+    private <T> void run(Task<T> task) {
+        long waited = System.nanoTime() - task.enqueuedAt;
+        pending.decrementAndGet();
+        totalWaitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        waitTimer.record(waited, TimeUnit.NANOSECONDS);
+        try {
+            task.future.complete(task.command.get());
+        } catch (Throwable ex) {
+            task.future.completeExceptionally(ex);
+        } finally {
+            completed.increment();
+        }
+    }
+
+    private void reject() {
+        pending.decrementAndGet();
+        rejected.increment();
+        rejectedCounter.increment();
+    }
+
+    /** Number of commands waiting to start, across all accounts. */
+    public int getPending() {
+        return pending.get();
+    }
+
+    public int getActiveAccounts() {
+        return queues.size();
+    }
+
+    public Map<String, Object> getStats() {
+        long done = completed.sum();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("pending", pending.get());
+        stats.put("activeAccounts", queues.size());
+        stats.put("completed", done);
+        stats.put("rejected", rejected.sum());
+        stats.put("averageWaitMillis", done == 0 ? 0.0 : totalWaitNanos.sum() / (double) done / 1_000_000.0);
+        stats.put("maxWaitMillis", maxWaitNanos.get() / 1_000_000.0);
+        return stats;
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    private static final class AccountQueue {
+        final ArrayDeque<Task<?>> tasks = new ArrayDeque<>();
+        boolean running;
+        boolean retired;
+    }
+
+    private static final class Task<T> {
+        final Supplier<T> command;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        final long enqueuedAt = System.nanoTime();
+
+        Task(Supplier<T> command) {
+            this.command = command;
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package com.bank.system.push;
+
+import com.bank.system.cache.CacheInvalidationBus;
+import com.bank.system.cache.CacheInvalidator;
+import com.bank.system.entity.SubAccountEntry;
+import com.bank.system.entity.Transaction;
+import com.bank.system.enums.CacheRegion;
+import com.bank.system.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes new transactions and balance changes to their owner's open Server-Sent Events streams once the
+ * database transaction has committed; for a transfer that includes the recipient.
+ * <p>
+ * Each connection has its own bounded outbox, drained on a virtual thread only while it has something to send,
+ * so an idle connection holds no thread and a slow one only delays itself (past app.push.max-queued-events it is
+ * closed and the client reconnects). A user's channel keeps the last app.push.replay-size events while connected
+ * and for app.push.replay-retention-ms after, so a client reconnecting with Last-Event-ID gets what it missed;
+ * if that can't be answered from the buffer it gets a {@code resync} event and should reload its data.
+ * <p>
+ * The events themselves only reach streams on the node where the transaction committed. Other nodes learn of
+ * the change from the account snapshot invalidation on the {@link CacheInvalidationBus} (app.cache.invalidation.bus)
+ * and send the user's streams there a {@code resync}; without a bus, run a single node or route each user's
+ * requests and streams to the same node.
+ */
+@Component
+public class UserEventBroker {
+
+    private static final Object HEARTBEAT = new Object();
+
+    private final ConcurrentHashMap<String, Channel> channels = new ConcurrentHashMap<>();
+    private final ExecutorService executor =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("user-events-", 0).factory());
+    // Starts from the clock so ids keep increasing across restarts
+    private final AtomicLong sequence = new AtomicLong(System.currentTimeMillis() * 1000);
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private final int replaySize;
+    private final long replayRetentionMillis;
+    private final long timeoutMillis;
+    private final int maxConnections;
+    private final int maxConnectionsPerUser;
+    private final int maxQueuedEvents;
+
+    @Autowired private CacheInvalidator cacheInvalidator;
+    @Autowired(required = false) private CacheInvalidationBus bus;
+
+    public UserEventBroker(@Value("${app.push.replay-size:100}") int replaySize,
+                           @Value("${app.push.replay-retention-ms:300000}") long replayRetentionMillis,
+                           @Value("${app.push.timeout-ms:1800000}") long timeoutMillis,
+                           @Value("${app.push.max-connections:50000}") int maxConnections,
+                           @Value("${app.push.max-connections-per-user:5}") int maxConnectionsPerUser,
+                           @Value("${app.push.max-queued-events:1000}") int maxQueuedEvents,
+                           MeterRegistry meterRegistry) {
+        this.replaySize = replaySize;
+        this.replayRetentionMillis = replayRetentionMillis;
+        this.timeoutMillis = timeoutMillis;
+        this.maxConnections = maxConnections;
+        this.maxConnectionsPerUser = maxConnectionsPerUser;
+        this.maxQueuedEvents = maxQueuedEvents;
+        Gauge.builder("bank.push.connections", connections, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("bank.push.channels", channels, Map::size).register(meterRegistry);
+    }
+
+    @PostConstruct
+    void init() {
+        if (bus != null) {
+            bus.subscribe(event -> {
+                // This node's own changes were already pushed in full
+                if (event.region() == CacheRegion.accountSnapshot
+                        && !cacheInvalidator.getNodeId().equals(event.originNodeId())) {
+                    publish(event.key(), "resync", Map.of());
+                }
+            });
+        }
+    }
+
+    /**
+     * Opens a stream for the user. With {@code lastEventId} (the Last-Event-ID header of a reconnect) the events
+     * after it are replayed first, or a {@code resync} event is sent if they are no longer known.
+     */
+    public SseEmitter subscribe(String userId, String lastEventId) {
+        if (connections.incrementAndGet() > maxConnections) {
+            connections.decrementAndGet();
+            throw new TooManyRequestsException("即時通知連線數已達上限，請稍後再試");
+        }
+        Subscriber subscriber = new Subscriber(new SseEmitter(timeoutMillis));
+        try {
+            while (true) {
+                Channel channel = channels.computeIfAbsent(userId, Channel::new);
+                synchronized (channel) {
+                    if (channel.retired) {
+                        // Expired and removed in the meantime; take the fresh channel
+                        continue;
+                    }
+                    if (channel.subscribers.size() >= maxConnectionsPerUser) {
+                        throw new TooManyRequestsException("即時通知連線數過多，請關閉其他分頁後再試");
+                    }
+                    channel.subscribers.add(subscriber);
+                    subscriber.channel = channel;
+                    // Under the channel lock, so no live event can slip in ahead of the replayed ones
+                    replay(channel, subscriber, lastEventId);
+                }
+                break;
+            }
+        } catch (RuntimeException ex) {
+            connections.decrementAndGet();
+            throw ex;
+        }
+        SseEmitter emitter = subscriber.emitter;
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(ex -> subscriber.close());
+        return emitter;
+    }
+
+    private void replay(Channel channel, Subscriber subscriber, String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            // A comment first, so proxies see the response start
+            subscriber.enqueue(HEARTBEAT);
+            return;
+        }
+        long after;
+        try {
+            after = Long.parseLong(lastEventId.trim());
+        } catch (NumberFormatException ex) {
+            after = Long.MIN_VALUE;
+        }
+        if (after < channel.knownFrom) {
+            long resyncId = channel.recent.isEmpty() ? channel.knownFrom : channel.recent.peekLast().id();
+            subscriber.enqueue(new UserEvent(resyncId, "resync", Map.of()));
+            return;
+        }
+        for (UserEvent event : channel.recent) {
+            if (event.id() > after) {
+                subscriber.enqueue(event);
+            }
+        }
+        subscriber.enqueue(HEARTBEAT);
+    }
+
+    /** Publishes the rows and balance entries of a balance change once the surrounding transaction commits. */
+    public void publishAfterCommit(List<Transaction> transactions, List<SubAccountEntry> entries) {
+        if (channels.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(transactions, entries);
+                }
+            });
+        } else {
+            publish(transactions, entries);
+        }
+    }
+
+    private void publish(List<Transaction> transactions, List<SubAccountEntry> entries) {
+        for (Transaction tx : transactions) {
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("id", tx.getId());
+            data.put("type", tx.getType());
+            data.put("amount", tx.getAmount());
+            data.put("note", tx.getNote());
+            data.put("time", tx.getTime());
+            data.put("timestamp", tx.getTimestamp());
+            data.put("subAccountId", tx.getSubAccountId());
+            publish(tx.getUser().getId(), "transaction", data);
+        }
+        for (SubAccountEntry entry : entries) {
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("subAccountId", entry.getSubAccountId());
+            data.put("delta", entry.getAmount());
+            data.put("timestamp", entry.getTimestamp());
+            data.put("transactionId", entry.getTransactionId());
+            publish(entry.getUserId(), "balance", data);
+        }
+    }
+
+    private void publish(String userId, String name, Map<String, Object> data) {
+        // Users without a channel have never connected (or not recently): nothing to deliver or keep
+        Channel channel = channels.get(userId);
+        if (channel == null) {
+            return;
+        }
+        synchronized (channel) {
+            UserEvent event = new UserEvent(sequence.incrementAndGet(), name, data);
+            channel.recent.addLast(event);
+            if (channel.recent.size() > replaySize) {
+                channel.knownFrom = channel.recent.removeFirst().id();
+            }
+            channel.lastActivity = System.currentTimeMillis();
+            for (Subscriber subscriber : channel.subscribers) {
+                subscriber.enqueue(event);
+            }
+        }
+    }
+
+    /** Keeps idle connections open through proxies, notices dead ones and drops expired channels. */
+    @Scheduled(fixedDelayString = "${app.push.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        long expired = System.currentTimeMillis() - replayRetentionMillis;
+        for (Channel channel : channels.values()) {
+            for (Subscriber subscriber : channel.subscribers) {
+                subscriber.enqueue(HEARTBEAT);
+            }
+            synchronized (channel) {
+                if (channel.subscribers.isEmpty() && channel.lastActivity < expired) {
+                    channel.retired = true;
+                    channels.remove(channel.userId, channel);
+                }
+            }
+        }
+    }
+
+    public int getConnections() {
+        return connections.get();
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        for (Channel channel : channels.values()) {
+            for (Subscriber subscriber : channel.subscribers) {
+                subscriber.emitter.complete();
+            }
+        }
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    record UserEvent(long id, String name, Map<String, Object> data) {
+    }
+
+    private final class Channel {
+        final String userId;
+        final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+        // Guarded by this: the latest events, and the id up to which events may be missing from them
+        final ArrayDeque<UserEvent> recent = new ArrayDeque<>();
+        long knownFrom = sequence.get();
+        boolean retired;
+        volatile long lastActivity = System.currentTimeMillis();
+
+        Channel(String userId) {
+            this.userId = userId;
+        }
+    }
+
+    private final class Subscriber {
+        final SseEmitter emitter;
+        final ConcurrentLinkedQueue<Object> outbox = new ConcurrentLinkedQueue<>();
+        final AtomicInteger queued = new AtomicInteger();
+        final AtomicBoolean draining = new AtomicBoolean();
+        final AtomicBoolean closed = new AtomicBoolean();
+        volatile Channel channel;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void enqueue(Object item) {
+            if (closed.get()) {
+                return;
+            }
+            if (queued.incrementAndGet() > maxQueuedEvents) {
+                // Too slow to keep up; it reconnects with Last-Event-ID and catches up from the replay buffer
+                close();
+                emitter.complete();
+                return;
+            }
+            outbox.add(item);
+            if (draining.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                Object item;
+                while ((item = outbox.poll()) != null) {
+                    queued.decrementAndGet();
+                    if (!send(item)) {
+                        return;
+                    }
+                }
+                draining.set(false);
+                // Something may have been added after the last poll but before the flag was cleared
+                if (outbox.isEmpty() || !draining.compareAndSet(false, true)) {
+                    return;
+                }
+            }
+        }
+
+        private boolean send(Object item) {
+            try {
+                if (item == HEARTBEAT) {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                } else {
+                    UserEvent event = (UserEvent) item;
+                    emitter.send(SseEmitter.event().id(Long.toString(event.id())).name(event.name())
+                            .data(event.data(), MediaType.APPLICATION_JSON));
+                }
+                return true;
+            } catch (IOException | IllegalStateException ex) {
+                // Client gone, or the emitter already completed
+                close();
+                return false;
+            }
+        }
+
+        void close() {
+            if (closed.compareAndSet(false, true)) {
+                Channel current = channel;
+                if (current != null) {
+                    current.subscribers.remove(this);
+                    current.lastActivity = System.currentTimeMillis();
+                }
+                outbox.clear();
+                connections.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.bank.system.reporting;
+
+import com.bank.system.archive.TransactionArchive;
+import com.bank.system.dto.BankDTOs.TransactionFactView;
+import com.bank.system.dto.BankDTOs.TransactionView;
+import com.bank.system.journal.TransactionJournal;
+import com.bank.system.ledger.LedgerWriteBehind;
+import com.bank.system.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory, column-per-field copy of the transactions (archived months included) for admin reports, enabled
+ * with app.reports.enabled=true. Rows are appended in (timestamp, id) order: archived months once, then the
+ * table incrementally from a (timestamp, id) watermark every app.reports.refresh-interval-ms. Rows younger than
+ * app.reports.settle-ms are left for the next refresh, since transactions are timestamped before they commit, and
+ * so are rows from the oldest one the ledger write-behind or this node's journal still holds: those reach the
+ * table later with their original timestamps, behind a watermark that would already have passed them.
+ * About 24 bytes per transaction; rows of users deleted later stay in until restart.
+ */
+@Component
+@ConditionalOnProperty(name = "app.reports.enabled", havingValue = "true")
+public class ColumnarTransactionIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ColumnarTransactionIndex.class);
+
+    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private TransactionArchive archive;
+    @Autowired(required = false) private LedgerWriteBehind writeBehind;
+    @Autowired(required = false) private TransactionJournal journal;
+
+    @Value("${app.reports.load-page-size:10000}")
+    private int pageSize;
+
+    @Value("${app.reports.settle-ms:5000}")
+    private long settleMillis;
+
+    // Writer state, guarded by this
+    private long[] timestamps = new long[1024];
+    private long[] amounts = new long[1024];
+    private int[] typeCodes = new int[1024];
+    private int[] userCodes = new int[1024];
+    private int size;
+    private final Map<String, Integer> typeIndex = new HashMap<>();
+    private String[] types = new String[16];
+    private final Map<String, Integer> userIndex = new HashMap<>();
+    private String[] userIds = new String[1024];
+    private long watermarkTimestamp = Long.MIN_VALUE;
+    private String watermarkId = "";
+    private boolean archiveLoaded;
+
+    private volatile TransactionColumns snapshot = TransactionColumns.EMPTY;
+
+    TransactionColumns snapshot() {
+        return snapshot;
+    }
+
+    @Scheduled(initialDelayString = "${app.reports.initial-delay-ms:5000}",
+               fixedDelayString = "${app.reports.refresh-interval-ms:10000}")
+    public void scheduledRefresh() {
+        refresh();
+    }
+
+    /** Loads everything new up to the cutoff (see the class comment); returns the number of rows added. */
+    public synchronized int refresh() {
+        int before = size;
+        if (!archiveLoaded) {
+            for (YearMonth month : archive.months()) {
+                // Archived rows are grouped by user; the index needs them in time order
+                List<TransactionView> rows = archive.streamMonth(month)
+                        .sorted(TransactionArchive.NEWEST_FIRST.reversed()).toList();
+                for (TransactionView row : rows) {
+                    append(row.getTimestamp(), row.getId(), row.getAmount(), row.getType(), row.getUserId());
+                }
+            }
+            archiveLoaded = true;
+            publish(watermarkTimestamp);
+        }
+
+        long cutoff = settledCutoff();
+        while (true) {
+            List<TransactionFactView> page = transactionRepository.findFactsAfter(watermarkTimestamp, watermarkId,
+                    cutoff, PageRequest.of(0, pageSize));
+            for (TransactionFactView row : page) {
+                append(row.getTimestamp(), row.getId(), row.getAmount(), row.getType(), row.getUserId());
+            }
+            if (page.size() < pageSize) {
+                break;
+            }
+            // Publish as we go so a long initial load already serves reports on what it has
+            publish(watermarkTimestamp);
+        }
+        publish(cutoff);
+        if (size - before > 0) {
+            log.debug("Reporting index loaded {} transactions, {} in total", size - before, size);
+        }
+        return size - before;
+    }
+
+    private long settledCutoff() {
+        long cutoff = System.currentTimeMillis() - settleMillis;
+        Long unflushed = writeBehind != null ? writeBehind.oldestPendingTransaction() : null;
+        if (unflushed != null) {
+            cutoff = Math.min(cutoff, unflushed);
+        }
+        Long undrained = journal != null ? journal.oldestUndrained() : null;
+        if (undrained != null) {
+            cutoff = Math.min(cutoff, undrained);
+        }
+        return cutoff;
+    }
+
+    private void append(long timestamp, String id, long amount, String type, String userId) {
+        if (size == timestamps.length) {
+            int capacity = size * 2;
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+            typeCodes = Arrays.copyOf(typeCodes, capacity);
+            userCodes = Arrays.copyOf(userCodes, capacity);
+        }
+        timestamps[size] = timestamp;
+        amounts[size] = amount;
+        typeCodes[size] = typeCode(type);
+        userCodes[size] = userCode(userId);
+        size++;
+        watermarkTimestamp = timestamp;
+        watermarkId = id;
+    }
+
+    private int typeCode(String type) {
+        Integer code = typeIndex.get(type);
+        if (code == null) {
+            code = typeIndex.size();
+            if (code == types.length) {
+                types = Arrays.copyOf(types, code * 2);
+            }
+            types[code] = type;
+            typeIndex.put(type, code);
+        }
+        return code;
+    }
+
+    private int userCode(String userId) {
+        Integer code = userIndex.get(userId);
+        if (code == null) {
+            code = userIndex.size();
+            if (code == userIds.length) {
+                userIds = Arrays.copyOf(userIds, code * 2);
+            }
+            userIds[code] = userId;
+            userIndex.put(userId, code);
+        }
+        return code;
+    }
+
+    private void publish(long loadedUntil) {
+        snapshot = new TransactionColumns(timestamps, amounts, typeCodes, userCodes, size,
+                types, typeIndex.size(), userIds, userIndex.size(), loadedUntil);
+    }
+}
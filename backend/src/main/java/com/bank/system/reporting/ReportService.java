@@ -0,0 +1,307 @@
+package com.bank.system.reporting;
+
+import com.bank.system.dto.BankDTOs.AccountActivity;
+import com.bank.system.dto.BankDTOs.DailyReportRow;
+import com.bank.system.dto.BankDTOs.HourlyActivity;
+import com.bank.system.dto.BankDTOs.TypeTotal;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * Aggregate reports over the {@link ColumnarTransactionIndex}. Each report finds its time range by binary search
+ * (rows are in timestamp order), splits it into slices scanned in parallel on a dedicated fork-join pool
+ * (app.reports.parallelism, 0 = one thread per core) and adds up the per-slice results. Days and hours are
+ * calendar days and hours in app.reports.zone; date ranges are inclusive.
+ */
+@Service
+@ConditionalOnProperty(name = "app.reports.enabled", havingValue = "true")
+public class ReportService {
+
+    private static final int MAX_DAYS = 366;
+    private static final int MIN_SLICE = 16 * 1024;
+
+    // Categories summed by the daily and hourly reports
+    private static final int DEPOSIT = 0;
+    private static final int WITHDRAWAL = 1;
+    private static final int TRANSFER = 2;
+    private static final Map<String, Integer> CATEGORIES = Map.of("存款", DEPOSIT, "提款", WITHDRAWAL, "轉帳支出", TRANSFER);
+    // Per bucket: transactions, then one amount per category
+    private static final int FIELDS = 4;
+
+    @Autowired private ColumnarTransactionIndex index;
+
+    @Value("${app.reports.parallelism:0}")
+    private int parallelism;
+
+    @Value("${app.reports.zone:Asia/Taipei}")
+    private String zone;
+
+    private ForkJoinPool pool;
+    private ZoneId zoneId;
+
+    @PostConstruct
+    void init() {
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        zoneId = ZoneId.of(zone);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    /** Transactions older than this are included in the reports. */
+    public long loadedUntil() {
+        return index.snapshot().loadedUntil;
+    }
+
+    public List<DailyReportRow> daily(LocalDate from, LocalDate to) {
+        int days = days(from, to);
+        long[] starts = new long[days + 1];
+        int[] labels = new int[days];
+        for (int d = 0; d <= days; d++) {
+            starts[d] = from.plusDays(d).atStartOfDay(zoneId).toInstant().toEpochMilli();
+            if (d < days) {
+                labels[d] = d;
+            }
+        }
+        long[] totals = bucketScan(index.snapshot(), starts, labels, days);
+
+        List<DailyReportRow> rows = new ArrayList<>(days);
+        for (int d = 0; d < days; d++) {
+            int base = d * FIELDS;
+            DailyReportRow row = new DailyReportRow();
+            row.setDate(from.plusDays(d).toString());
+            row.setTransactions(totals[base]);
+            row.setDeposits(totals[base + 1 + DEPOSIT]);
+            row.setWithdrawals(totals[base + 1 + WITHDRAWAL]);
+            row.setTransfers(totals[base + 1 + TRANSFER]);
+            row.setVolume(row.getDeposits() + row.getWithdrawals() + row.getTransfers());
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /** Activity by hour of day (0-23), added up over the days of the range. */
+    public List<HourlyActivity> hourly(LocalDate from, LocalDate to) {
+        int days = days(from, to);
+        ZonedDateTime start = from.atStartOfDay(zoneId);
+        ZonedDateTime end = to.plusDays(1).atStartOfDay(zoneId);
+        // Hour by hour in the zone, so DST days get 23 or 25 buckets
+        int hours = (int) ChronoUnit.HOURS.between(start, end);
+        long[] starts = new long[hours + 1];
+        int[] labels = new int[hours];
+        ZonedDateTime hour = start;
+        for (int h = 0; h < hours; h++) {
+            starts[h] = hour.toInstant().toEpochMilli();
+            labels[h] = hour.getHour();
+            hour = hour.plusHours(1);
+        }
+        starts[hours] = end.toInstant().toEpochMilli();
+        long[] totals = bucketScan(index.snapshot(), starts, labels, 24);
+
+        List<HourlyActivity> rows = new ArrayList<>(24);
+        for (int h = 0; h < 24; h++) {
+            int base = h * FIELDS;
+            HourlyActivity row = new HourlyActivity();
+            row.setHour(h);
+            row.setTransactions(totals[base]);
+            row.setVolume(totals[base + 1 + DEPOSIT] + totals[base + 1 + WITHDRAWAL] + totals[base + 1 + TRANSFER]);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /** Count and sum of the signed amounts per transaction type. */
+    public List<TypeTotal> totalsByType(LocalDate from, LocalDate to) {
+        days(from, to);
+        TransactionColumns columns = index.snapshot();
+        int typeCount = columns.typeCount;
+        long[] totals = scan(columns, startOf(from), startOf(to.plusDays(1)), () -> new long[typeCount * 2],
+                (acc, lo, hi) -> {
+                    for (int i = lo; i < hi; i++) {
+                        int t = columns.typeCodes[i] * 2;
+                        acc[t]++;
+                        acc[t + 1] += columns.amounts[i];
+                    }
+                }, ReportService::add);
+
+        List<TypeTotal> rows = new ArrayList<>();
+        for (int t = 0; t < typeCount; t++) {
+            if (totals[t * 2] == 0) {
+                continue;
+            }
+            TypeTotal row = new TypeTotal();
+            row.setType(columns.types[t]);
+            row.setCount(totals[t * 2]);
+            row.setAmount(totals[t * 2 + 1]);
+            rows.add(row);
+        }
+        rows.sort(Comparator.comparingLong(TypeTotal::getCount).reversed());
+        return rows;
+    }
+
+    /** Users with the most volume (or transactions, with {@code byCount}), highest first. */
+    public List<AccountActivity> topAccounts(LocalDate from, LocalDate to, int limit, boolean byCount) {
+        days(from, to);
+        TransactionColumns columns = index.snapshot();
+        int userCount = columns.userCount;
+        // Slices are few (a handful per thread), so one counter pair per user and slice stays affordable
+        long[] totals = scan(columns, startOf(from), startOf(to.plusDays(1)), () -> new long[userCount * 2],
+                (acc, lo, hi) -> {
+                    for (int i = lo; i < hi; i++) {
+                        int u = columns.userCodes[i] * 2;
+                        acc[u]++;
+                        acc[u + 1] += Math.abs(columns.amounts[i]);
+                    }
+                }, ReportService::add);
+
+        int field = byCount ? 0 : 1;
+        PriorityQueue<Integer> top = new PriorityQueue<>(Comparator.comparingLong(u -> totals[u * 2 + field]));
+        for (int u = 0; u < userCount; u++) {
+            if (totals[u * 2] == 0) {
+                continue;
+            }
+            top.add(u);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        List<AccountActivity> rows = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            int u = top.poll();
+            AccountActivity row = new AccountActivity();
+            row.setUserId(columns.userIds[u]);
+            row.setTransactions(totals[u * 2]);
+            row.setVolume(totals[u * 2 + 1]);
+            rows.add(0, row);
+        }
+        return rows;
+    }
+
+    /**
+     * Adds up transactions and category amounts per bucket. Bucket b covers [starts[b], starts[b + 1]) and is
+     * counted under labels[b], so several buckets can share a label (e.g. the same hour on different days).
+     */
+    private long[] bucketScan(TransactionColumns columns, long[] starts, int[] labels, int labelCount) {
+        int[] categories = new int[columns.typeCount];
+        for (int t = 0; t < columns.typeCount; t++) {
+            categories[t] = CATEGORIES.getOrDefault(columns.types[t], -1);
+        }
+        return scan(columns, starts[0], starts[starts.length - 1], () -> new long[labelCount * FIELDS],
+                (acc, lo, hi) -> {
+                    int b = bucketOf(starts, columns.timestamps[lo]);
+                    for (int i = lo; i < hi; i++) {
+                        long timestamp = columns.timestamps[i];
+                        while (timestamp >= starts[b + 1]) {
+                            b++;
+                        }
+                        int base = labels[b] * FIELDS;
+                        acc[base]++;
+                        int category = categories[columns.typeCodes[i]];
+                        if (category >= 0) {
+                            acc[base + 1 + category] += Math.abs(columns.amounts[i]);
+                        }
+                    }
+                }, ReportService::add);
+    }
+
+    private <A> A scan(TransactionColumns columns, long fromTimestamp, long toTimestamp,
+                       Supplier<A> identity, SliceScan<A> slice, BinaryOperator<A> combine) {
+        int lo = columns.lowerBound(fromTimestamp);
+        int hi = columns.lowerBound(toTimestamp);
+        int threshold = Math.max(MIN_SLICE, (hi - lo) / (pool.getParallelism() * 4) + 1);
+        return pool.invoke(new ScanTask<>(lo, hi, threshold, identity, slice, combine));
+    }
+
+    private static int bucketOf(long[] starts, long timestamp) {
+        int low = 0;
+        int high = starts.length - 2;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (starts[mid] <= timestamp) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private static long[] add(long[] left, long[] right) {
+        for (int i = 0; i < left.length; i++) {
+            left[i] += right[i];
+        }
+        return left;
+    }
+
+    private long startOf(LocalDate date) {
+        return date.atStartOfDay(zoneId).toInstant().toEpochMilli();
+    }
+
+    private static int days(LocalDate from, LocalDate to) {
+        long days = ChronoUnit.DAYS.between(from, to) + 1;
+        if (days < 1 || days > MAX_DAYS) {
+            throw new RuntimeException("報表期間需介於 1 到 " + MAX_DAYS + " 天");
+        }
+        return (int) days;
+    }
+
+    @FunctionalInterface
+    interface SliceScan<A> {
+        void scan(A accumulator, int from, int to);
+    }
+
+    private static final class ScanTask<A> extends RecursiveTask<A> {
+        private final int from;
+        private final int to;
+        private final int threshold;
+        private final Supplier<A> identity;
+        private final SliceScan<A> slice;
+        private final BinaryOperator<A> combine;
+
+        ScanTask(int from, int to, int threshold, Supplier<A> identity, SliceScan<A> slice,
+                 BinaryOperator<A> combine) {
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+            this.identity = identity;
+            this.slice = slice;
+            this.combine = combine;
+        }
+
+        @Override
+        protected A compute() {
+            if (to - from <= threshold) {
+                A accumulator = identity.get();
+                if (from < to) {
+                    slice.scan(accumulator, from, to);
+                }
+                return accumulator;
+            }
+            int mid = (from + to) >>> 1;
+            ScanTask<A> left = new ScanTask<>(from, mid, threshold, identity, slice, combine);
+            left.fork();
+            A right = new ScanTask<>(mid, to, threshold, identity, slice, combine).compute();
+            return combine.apply(left.join(), right);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.bank.system.reporting;
+
+/**
+ * Immutable snapshot of the {@link ColumnarTransactionIndex}: row i is (timestamps[i], amounts[i],
+ * types[typeCodes[i]], userIds[userCodes[i]]), rows 0..size-1 in timestamp order. The arrays may be longer
+ * and shared with later snapshots, which only ever write past this snapshot's size.
+ */
+final class TransactionColumns {
+
+    static final TransactionColumns EMPTY = new TransactionColumns(new long[0], new long[0], new int[0], new int[0],
+            0, new String[0], 0, new String[0], 0, Long.MIN_VALUE);
+
+    final long[] timestamps;
+    final long[] amounts;
+    final int[] typeCodes;
+    final int[] userCodes;
+    final int size;
+    final String[] types;
+    final int typeCount;
+    final String[] userIds;
+    final int userCount;
+    // Every transaction older than this is included
+    final long loadedUntil;
+
+    TransactionColumns(long[] timestamps, long[] amounts, int[] typeCodes, int[] userCodes, int size,
+                       String[] types, int typeCount, String[] userIds, int userCount, long loadedUntil) {
+        this.timestamps = timestamps;
+        this.amounts = amounts;
+        this.typeCodes = typeCodes;
+        this.userCodes = userCodes;
+        this.size = size;
+        this.types = types;
+        this.typeCount = typeCount;
+        this.userIds = userIds;
+        this.userCount = userCount;
+        this.loadedUntil = loadedUntil;
+    }
+
+    /** Index of the first row at or after {@code timestamp}. */
+    int lowerBound(long timestamp) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[mid] < timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
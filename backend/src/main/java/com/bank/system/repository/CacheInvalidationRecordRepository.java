@@ -0,0 +1,21 @@
+package com.bank.system.repository;
+
+import com.bank.system.entity.CacheInvalidationRecord;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.List;
+
+public interface CacheInvalidationRecordRepository extends JpaRepository<CacheInvalidationRecord, Long> {
+    List<CacheInvalidationRecord> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @Query("SELECT COALESCE(MAX(r.id), 0) FROM CacheInvalidationRecord r")
+    long findMaxId();
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM CacheInvalidationRecord r WHERE r.createdAt < ?1")
+    int deleteOlderThan(Long createdAt);
+}
@@ -1,12 +1,23 @@
 package com.bank.system.repository;
 
+import com.bank.system.dto.BankDTOs.FavoriteAccountView;
 import com.bank.system.entity.FavoriteAccount;
 import com.bank.system.entity.FavoriteAccountId;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import java.util.List;
 
 public interface FavoriteAccountRepository extends JpaRepository<FavoriteAccount, FavoriteAccountId> {
     List<FavoriteAccount> findByUserId(String userId);
     void deleteByUserIdAndFavoriteUserId(String userId, String favoriteUserId);
     void deleteByUserId(String userId);
+
+    @Query("SELECT f.favoriteUserId FROM FavoriteAccount f WHERE f.userId = ?1 ORDER BY f.createdAt")
+    List<String> findFavoriteUserIdsByUserId(String userId);
+
+    // Favorites with the account holder's name in one round trip; favorites whose user is gone are skipped
+    @Query("SELECT f.favoriteUserId AS favoriteUserId, u.realName AS realName " +
+           "FROM FavoriteAccount f JOIN User u ON u.id = f.favoriteUserId " +
+           "WHERE f.userId = ?1 ORDER BY f.createdAt")
+    List<FavoriteAccountView> findFavoriteViewsByUserId(String userId);
 }
@@ -0,0 +1,33 @@
+package com.bank.system.repository;
+
+import com.bank.system.entity.SubAccountCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface SubAccountCheckpointRepository extends JpaRepository<SubAccountCheckpoint, String> {
+
+    Optional<SubAccountCheckpoint> findFirstBySubAccountIdAndAsOfLessThanEqualOrderByAsOfDesc(String subAccountId, Long at);
+
+    boolean existsBySubAccountId(String subAccountId);
+
+    // Latest checkpoint of each given sub-account
+    @Query("SELECT c FROM SubAccountCheckpoint c WHERE c.subAccountId IN ?1 AND c.asOf = " +
+           "(SELECT MAX(c2.asOf) FROM SubAccountCheckpoint c2 WHERE c2.subAccountId = c.subAccountId)")
+    List<SubAccountCheckpoint> findLatestBySubAccountIds(Collection<String> subAccountIds);
+
+    @Query("SELECT MAX(c.asOf) FROM SubAccountCheckpoint c WHERE c.asOf <= ?1")
+    Optional<Long> findMaxAsOfUpTo(long upTo);
+
+    @Modifying
+    @Query("DELETE FROM SubAccountCheckpoint c WHERE c.subAccountId = ?1")
+    void deleteBySubAccountId(String subAccountId);
+
+    @Modifying
+    @Query("DELETE FROM SubAccountCheckpoint c WHERE c.userId = ?1")
+    void deleteByUserId(String userId);
+}
@@ -0,0 +1,27 @@
+package com.bank.system.repository;
+
+import com.bank.system.entity.SubAccountEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface SubAccountEntryRepository extends JpaRepository<SubAccountEntry, String> {
+
+    // Net change in (after, upTo]
+    @Query("SELECT COALESCE(SUM(e.amount), 0) FROM SubAccountEntry e " +
+           "WHERE e.subAccountId = ?1 AND e.timestamp > ?2 AND e.timestamp <= ?3")
+    long sumBetween(String subAccountId, long after, long upTo);
+
+    @Query("SELECT DISTINCT e.subAccountId FROM SubAccountEntry e WHERE e.timestamp > ?1 AND e.timestamp <= ?2")
+    List<String> findSubAccountIdsActiveBetween(long after, long upTo);
+
+    @Modifying
+    @Query("DELETE FROM SubAccountEntry e WHERE e.subAccountId = ?1")
+    void deleteBySubAccountId(String subAccountId);
+
+    @Modifying
+    @Query("DELETE FROM SubAccountEntry e WHERE e.userId = ?1")
+    void deleteByUserId(String userId);
+}
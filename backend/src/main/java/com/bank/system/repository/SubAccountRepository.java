@@ -1,9 +1,15 @@
 package com.bank.system.repository;
 
+import com.bank.system.dto.BankDTOs.SubAccountRefView;
+import com.bank.system.dto.BankDTOs.SubAccountTotalsView;
 import com.bank.system.entity.SubAccount;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,7 +17,46 @@ public interface SubAccountRepository extends JpaRepository<SubAccount, String>
     List<SubAccount> findByUserIdOrderByCreatedAt(String userId);
     Optional<SubAccount> findByIdAndUserId(String id, String userId);
     long countByUserId(String userId);
+
+    @Query("SELECT s.name FROM SubAccount s WHERE s.id = ?1 AND s.user.id = ?2")
+    Optional<String> findNameByIdAndUserId(String id, String userId);
+
+    // Single-statement balance mutations; callers check the affected-row count instead of loading the entity
+    @Modifying
+    @Query("UPDATE SubAccount s SET s.balance = s.balance + ?3, s.version = s.version + 1 WHERE s.id = ?1 AND s.user.id = ?2")
+    int addToBalance(String id, String userId, Long amount);
+
+    @Modifying
+    @Query("UPDATE SubAccount s SET s.balance = s.balance - ?3, s.version = s.version + 1 " +
+           "WHERE s.id = ?1 AND s.user.id = ?2 AND s.balance >= ?3")
+    int subtractFromBalance(String id, String userId, Long amount);
+
+    @Modifying
+    @Query("UPDATE SubAccount s SET s.balance = ?2, s.version = s.version + 1 WHERE s.id = ?1")
+    int setBalance(String id, Long balance);
+
+    @Query("SELECT s.id FROM SubAccount s WHERE s.user.id = ?1 ORDER BY s.createdAt")
+    List<String> findIdsByUserIdOrderByCreatedAt(String userId, Pageable pageable);
+
+    // First sub-account (by creation) of each user; same-timestamp ties come back in id order
+    @Query("SELECT s.user.id AS userId, s.id AS id FROM SubAccount s WHERE s.user.id IN ?1 AND s.createdAt = " +
+           "(SELECT MIN(s2.createdAt) FROM SubAccount s2 WHERE s2.user.id = s.user.id) ORDER BY s.id")
+    List<SubAccountRefView> findPrimaryByUserIds(Collection<String> userIds);
+
+    // Rows are locked in id order so two opposite transfers can't deadlock each other
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM SubAccount s WHERE s.id IN ?1 ORDER BY s.id")
+    List<SubAccount> findAllByIdForUpdate(Collection<String> ids);
     
+    @Query("SELECT s.user.id AS userId, COALESCE(SUM(s.balance), 0) AS totalBalance, COUNT(s) AS subAccountCount " +
+           "FROM SubAccount s WHERE s.user.id IN ?1 GROUP BY s.user.id")
+    List<SubAccountTotalsView> sumByUserIds(Collection<String> userIds);
+
+    // Sub-accounts that predate balance checkpoints, in id order for keyset paging
+    @Query("SELECT s.id FROM SubAccount s WHERE s.id > ?1 AND NOT EXISTS " +
+           "(SELECT c.id FROM SubAccountCheckpoint c WHERE c.subAccountId = s.id) ORDER BY s.id")
+    List<String> findIdsWithoutCheckpointAfter(String afterId, Pageable page);
+
     @Modifying
     @Query("DELETE FROM SubAccount s WHERE s.user.id = ?1")
     void deleteByUserId(String userId);
@@ -1,16 +1,93 @@
 package com.bank.system.repository;
 
+import com.bank.system.dto.BankDTOs.TransactionFactView;
+import com.bank.system.dto.BankDTOs.TransactionTotalsView;
+import com.bank.system.dto.BankDTOs.TransactionView;
 import com.bank.system.entity.Transaction;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface TransactionRepository extends JpaRepository<Transaction, String> {
     List<Transaction> findByUserIdOrderByTimestampDesc(String userId);
     List<Transaction> findTop100ByOrderByTimestampDesc();
+
+    /**
+     * One page of a user's history, newest first. Keyset pagination: pass the (timestamp, id) of the last row
+     * of the previous page as the cursor, or nulls for the first page. All filters are optional.
+     */
+    @Query("SELECT t.id AS id, t.user.id AS userId, t.type AS type, t.amount AS amount, t.note AS note, " +
+           "t.time AS time, t.timestamp AS timestamp, t.subAccountId AS subAccountId " +
+           "FROM Transaction t WHERE t.user.id = :userId " +
+           "AND (:beforeTimestamp IS NULL OR t.timestamp < :beforeTimestamp " +
+           "     OR (t.timestamp = :beforeTimestamp AND t.id < :beforeId)) " +
+           "AND (:type IS NULL OR t.type = :type) " +
+           "AND (:subAccountId IS NULL OR t.subAccountId = :subAccountId) " +
+           "AND (:fromTimestamp IS NULL OR t.timestamp >= :fromTimestamp) " +
+           "AND (:toTimestamp IS NULL OR t.timestamp < :toTimestamp) " +
+           "ORDER BY t.timestamp DESC, t.id DESC")
+    List<TransactionView> findHistoryPage(@Param("userId") String userId,
+                                          @Param("beforeTimestamp") Long beforeTimestamp,
+                                          @Param("beforeId") String beforeId,
+                                          @Param("type") String type,
+                                          @Param("subAccountId") String subAccountId,
+                                          @Param("fromTimestamp") Long fromTimestamp,
+                                          @Param("toTimestamp") Long toTimestamp,
+                                          Pageable pageable);
     
+    @Query("SELECT t.id AS id, t.user.id AS userId, t.type AS type, t.amount AS amount, t.note AS note, " +
+           "t.time AS time, t.timestamp AS timestamp, t.subAccountId AS subAccountId FROM Transaction t")
+    List<TransactionView> findAllViews();
+
+    /**
+     * Forward-only scan of the whole table for exports. Must be consumed (and closed) inside a read-only
+     * transaction; rows are fetched from the server in chunks rather than materialized up front.
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT t.id AS id, t.user.id AS userId, t.type AS type, t.amount AS amount, t.note AS note, " +
+           "t.time AS time, t.timestamp AS timestamp, t.subAccountId AS subAccountId FROM Transaction t ORDER BY t.id")
+    Stream<TransactionView> streamAllViews();
+
+    @Query("SELECT t.id AS id, t.user.id AS userId, t.type AS type, t.amount AS amount, t.note AS note, " +
+           "t.time AS time, t.timestamp AS timestamp, t.subAccountId AS subAccountId " +
+           "FROM Transaction t WHERE t.user.id = ?1 ORDER BY t.timestamp DESC, t.id DESC")
+    List<TransactionView> findViewsByUserId(String userId);
+
+    @Query("SELECT t.id AS id, t.user.id AS userId, t.type AS type, t.amount AS amount, t.note AS note, " +
+           "t.time AS time, t.timestamp AS timestamp, t.subAccountId AS subAccountId " +
+           "FROM Transaction t WHERE t.timestamp >= ?1 AND t.timestamp < ?2")
+    List<TransactionView> findViewsBetween(long fromTimestamp, long toTimestamp);
+
+    /** Keyset scan in (timestamp, id) order for the reporting index: rows after the watermark and before the cutoff. */
+    @Query("SELECT t.id AS id, t.user.id AS userId, t.type AS type, t.amount AS amount, t.timestamp AS timestamp " +
+           "FROM Transaction t WHERE (t.timestamp > ?1 OR (t.timestamp = ?1 AND t.id > ?2)) AND t.timestamp < ?3 " +
+           "ORDER BY t.timestamp, t.id")
+    List<TransactionFactView> findFactsAfter(long afterTimestamp, String afterId, long beforeTimestamp,
+                                             Pageable pageable);
+
+    @Query("SELECT MIN(t.timestamp) FROM Transaction t WHERE t.timestamp < ?1")
+    Long findOldestTimestampBefore(long timestamp);
+
     @Modifying
     @Query("DELETE FROM Transaction t WHERE t.user.id = ?1")
     void deleteByUserId(String userId);
+
+    @Modifying
+    @Query("DELETE FROM Transaction t WHERE t.id IN ?1")
+    void deleteByIdIn(Collection<String> ids);
+
+    @Query("SELECT t.user.id AS userId, COUNT(t) AS txCount, MAX(t.timestamp) AS lastActivityAt " +
+           "FROM Transaction t WHERE t.user.id IN ?1 GROUP BY t.user.id")
+    List<TransactionTotalsView> countByUserIds(Collection<String> userIds);
 }
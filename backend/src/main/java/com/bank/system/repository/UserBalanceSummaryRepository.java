@@ -0,0 +1,36 @@
+package com.bank.system.repository;
+
+import com.bank.system.entity.UserBalanceSummary;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import java.util.Collection;
+import java.util.List;
+
+public interface UserBalanceSummaryRepository extends JpaRepository<UserBalanceSummary, String> {
+
+    // Deltas are applied in the database so concurrent operations on the same user add up instead of overwriting
+    @Modifying
+    @Query("UPDATE UserBalanceSummary b SET b.totalBalance = b.totalBalance + ?2, b.txCount = b.txCount + ?3, " +
+           "b.lastActivityAt = CASE WHEN b.lastActivityAt IS NULL OR b.lastActivityAt < ?4 THEN ?4 ELSE b.lastActivityAt END " +
+           "WHERE b.userId = ?1")
+    int applyActivity(String userId, Long balanceDelta, Long txCountDelta, Long timestamp);
+
+    @Modifying
+    @Query("UPDATE UserBalanceSummary b SET b.totalBalance = b.totalBalance + ?2, b.subAccountCount = b.subAccountCount + ?3 " +
+           "WHERE b.userId = ?1")
+    int applySubAccountChange(String userId, Long balanceDelta, Integer countDelta);
+
+    @Modifying
+    @Query("UPDATE UserBalanceSummary b SET b.totalBalance = " +
+           "(SELECT COALESCE(SUM(s.balance), 0) FROM SubAccount s WHERE s.user.id = b.userId) " +
+           "WHERE b.userId IN (SELECT s2.user.id FROM SubAccount s2 WHERE s2.id IN ?1)")
+    int refreshTotalsForSubAccounts(Collection<String> subAccountIds);
+
+    // Locks the rows so balance changes on these users wait until a reconciliation chunk has been checked
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM UserBalanceSummary b WHERE b.userId IN ?1 ORDER BY b.userId")
+    List<UserBalanceSummary> findAllByUserIdForUpdate(Collection<String> userIds);
+}
@@ -1,11 +1,53 @@
 package com.bank.system.repository;
 
+import com.bank.system.dto.BankDTOs.AdminUserView;
 import com.bank.system.entity.User;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.Collection;
 import java.util.Optional;
 import java.util.List;
 
 public interface UserRepository extends JpaRepository<User, String> {
     Optional<User> findByLoginId(String loginId);
     List<User> findByRoleNot(String role);
+
+    // User and sub-accounts in a single query; Hibernate collapses the joined rows into one User
+    @Query("SELECT u FROM User u LEFT JOIN FETCH u.subAccounts s WHERE u.id = ?1 ORDER BY s.createdAt")
+    Optional<User> findWithSubAccountsById(String id);
+
+    @Query("SELECT u FROM User u LEFT JOIN FETCH u.subAccounts s WHERE u.loginId = ?1 ORDER BY s.createdAt")
+    Optional<User> findWithSubAccountsByLoginId(String loginId);
+
+    // Compare-and-set on the old hash, for re-hashing on login
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.password = ?3 WHERE u.id = ?1 AND u.password = ?2")
+    int updatePassword(String id, String oldPassword, String newPassword);
+
+    String NON_ADMIN = "(u.role IS NULL OR u.role <> com.bank.system.enums.UserRole.admin)";
+    String SEARCH = "(:search IS NULL OR u.loginId LIKE :search OR u.realName LIKE :search)";
+
+    // Users with their total balance from the maintained summary, admins excluded
+    @Query("SELECT u.id AS id, u.loginId AS loginId, u.realName AS realName, u.role AS role, u.status AS status, " +
+           "u.createdAt AS createdAt, COALESCE(b.totalBalance, 0) AS balance " +
+           "FROM User u LEFT JOIN UserBalanceSummary b ON b.userId = u.id WHERE " + NON_ADMIN)
+    List<AdminUserView> findAllUserBalances();
+
+    @Query(value = "SELECT u.id AS id, u.loginId AS loginId, u.realName AS realName, u.role AS role, u.status AS status, " +
+                   "u.createdAt AS createdAt, COALESCE(b.totalBalance, 0) AS balance " +
+                   "FROM User u LEFT JOIN UserBalanceSummary b ON b.userId = u.id WHERE " + NON_ADMIN + " AND " + SEARCH,
+           countQuery = "SELECT COUNT(u) FROM User u WHERE " + NON_ADMIN + " AND " + SEARCH)
+    Page<AdminUserView> searchUserBalances(@Param("search") String search, Pageable pageable);
+
+    @Query("SELECT u.id FROM User u WHERE u.id IN ?1")
+    List<String> findExistingIds(Collection<String> ids);
+
+    @Query("SELECT u.id FROM User u WHERE u.id > ?1 ORDER BY u.id")
+    List<String> findIdsAfter(String afterId, Pageable pageable);
 }
@@ -1,5 +1,6 @@
 package com.bank.system.security;
 
+import com.bank.system.metrics.BankMetrics;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -7,7 +8,6 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
@@ -22,27 +22,41 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private JwtTokenProvider tokenProvider;
 
     @Autowired
-    private CustomUserDetailsService customUserDetailsService;
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private BankMetrics bankMetrics;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
+        long start = System.nanoTime();
+        String outcome = "none";
         try {
             String jwt = getJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                String username = tokenProvider.getUsernameFromJWT(jwt);
+            TokenClaims claims = StringUtils.hasText(jwt) ? tokenProvider.parseToken(jwt) : null;
 
-                UserDetails userDetails = customUserDetailsService.loadUserByUsername(username);
-                UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                        userDetails, null, userDetails.getAuthorities());
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            if (StringUtils.hasText(jwt)) {
+                outcome = claims == null ? "invalid" : "rejected";
+            }
+            if (claims != null) {
+                UserPrincipal principal = principalCache.get(claims.getSubject());
+                // A token issued before its loginId was reassigned must not authenticate as the new owner
+                if (principal != null && (claims.getUserId() == null || claims.getUserId().equals(principal.getUserId()))) {
+                    UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                            principal, null, principal.getAuthorities());
+                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                    outcome = "authenticated";
+                }
             }
         } catch (Exception ex) {
+            outcome = "error";
             logger.error("Could not set user authentication in security context", ex);
         }
+        bankMetrics.recordJwt(outcome, System.nanoTime() - start);
 
         filterChain.doFilter(request, response);
     }
@@ -1,12 +1,20 @@
 package com.bank.system.security;
 
+import com.bank.system.entity.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
 import java.util.Date;
 
 @Component
@@ -16,35 +24,81 @@ public class JwtTokenProvider {
     private static final String JWT_SECRET = "MakeThisSecretLongEnoughForHS512AlgorithmMustBeAtLeast64BytesLong";
     private static final long JWT_EXPIRATION = 86400000L; // 1 day
 
+    public static final String CLAIM_USER_ID = "uid";
+
     private final Key key = Keys.hmacShaKeyFor(JWT_SECRET.getBytes());
 
-    public String generateToken(Authentication authentication) {
+    // Built once; the parser is immutable and safe to share between request threads
+    private final JwtParser parser = Jwts.parserBuilder().setSigningKey(key).build();
+
+    // Optional cache of already-verified tokens keyed by SHA-256 digest, null when disabled
+    private final Cache<String, TokenClaims> verifiedTokens;
+
+    public JwtTokenProvider(@Value("${app.jwt.verified-cache.enabled:false}") boolean verifiedCacheEnabled,
+                            @Value("${app.jwt.verified-cache.max-size:10000}") long verifiedCacheMaxSize,
+                            @Value("${app.jwt.verified-cache.ttl-seconds:30}") long verifiedCacheTtlSeconds) {
+        this.verifiedTokens = verifiedCacheEnabled
+                ? Caffeine.newBuilder()
+                        .maximumSize(verifiedCacheMaxSize)
+                        .expireAfterWrite(Duration.ofSeconds(verifiedCacheTtlSeconds))
+                        .build()
+                : null;
+    }
+
+    public String generateToken(Authentication authentication, User user) {
         String username = authentication.getName();
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + JWT_EXPIRATION);
 
         return Jwts.builder()
                 .setSubject(username)
+                .claim(CLAIM_USER_ID, user.getId())
                 .setIssuedAt(new Date())
                 .setExpiration(expiryDate)
                 .signWith(key, SignatureAlgorithm.HS512)
                 .compact();
     }
 
-    public String getUsernameFromJWT(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    /**
+     * Verifies the token and returns its claims, or null if the token is invalid or expired.
+     * The signature is checked once per call (or once per cache TTL when the verified-token cache is enabled).
+     */
+    public TokenClaims parseToken(String token) {
+        if (verifiedTokens == null) {
+            return verify(token);
+        }
 
-        return claims.getSubject();
+        String digest = digest(token);
+        TokenClaims cached = verifiedTokens.getIfPresent(digest);
+        if (cached != null) {
+            if (!cached.isExpired(System.currentTimeMillis())) {
+                return cached;
+            }
+            verifiedTokens.invalidate(digest);
+        }
+
+        TokenClaims claims = verify(token);
+        if (claims != null) {
+            verifiedTokens.put(digest, claims);
+        }
+        return claims;
+    }
+
+    public String getUsernameFromJWT(String token) {
+        return parser.parseClaimsJws(token).getBody().getSubject();
     }
 
     public boolean validateToken(String authToken) {
+        return verify(authToken) != null;
+    }
+
+    private TokenClaims verify(String token) {
         try {
-            Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(authToken);
-            return true;
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            return new TokenClaims(
+                    claims.getSubject(),
+                    claims.get(CLAIM_USER_ID, String.class),
+                    claims.getExpiration().getTime());
         } catch (SecurityException | MalformedJwtException ex) {
             System.err.println("Invalid JWT signature");
         } catch (ExpiredJwtException ex) {
@@ -54,6 +108,15 @@ public class JwtTokenProvider {
         } catch (IllegalArgumentException ex) {
             System.err.println("JWT claims string is empty");
         }
-        return false;
+        return null;
+    }
+
+    private static String digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
     }
 }
@@ -0,0 +1,60 @@
+package com.bank.system.security;
+
+import com.bank.system.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Bounded, TTL-evicting cache of loginId -> {@link UserPrincipal}.
+ * Entries must be evicted whenever a user's loginId or role changes, or the user is deleted.
+ */
+@Component
+public class PrincipalCache {
+
+    @Autowired private UserRepository userRepository;
+
+    private final Cache<String, UserPrincipal> cache;
+
+    public PrincipalCache(@Value("${app.security.principal-cache.max-size:10000}") long maxSize,
+                          @Value("${app.security.principal-cache.ttl-seconds:60}") long ttlSeconds,
+                          MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "principal");
+    }
+
+    /**
+     * Returns the principal for the given loginId, loading it on a miss. Returns null if the user doesn't exist
+     * (misses are not cached, so a newly registered user is visible immediately).
+     */
+    public UserPrincipal get(String loginId) {
+        return cache.get(loginId, id -> userRepository.findByLoginId(id)
+                .map(UserPrincipal::from)
+                .orElse(null));
+    }
+
+    public void evict(String loginId) {
+        if (loginId != null) {
+            cache.invalidate(loginId);
+        }
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long estimatedSize() {
+        return cache.estimatedSize();
+    }
+}
@@ -1,6 +1,9 @@
 package com.bank.system.security;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -10,10 +13,15 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.util.HashMap;
+import java.util.Map;
+
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
@@ -28,8 +36,14 @@ public class SecurityConfig {
             .cors(org.springframework.security.config.Customizer.withDefaults()) // Enable CORS
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(auth -> auth
+                // CompletableFuture results (and event streams) are written on an ASYNC dispatch, which the
+                // once-per-request JWT filter skips; the request was already authorized on its first dispatch
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 .requestMatchers("/api/register", "/api/login").permitAll()
                 .requestMatchers("/api/admin/**").hasRole("ADMIN") // Protect admin routes
+                // Served on the internal management port only (management.server.port)
+                .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll()
+                .requestMatchers("/actuator/**").hasRole("ADMIN")
                 .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll() // Allow pre-flight checks
                 .anyRequest().authenticated()
             );
@@ -44,8 +58,20 @@ public class SecurityConfig {
         return authenticationConfiguration.getAuthenticationManager();
     }
 
+    /**
+     * New hashes use app.security.password.encoder and are stored as "{id}hash"; hashes from another encoder or
+     * with a lower BCrypt cost report upgradeEncoding() and are re-hashed on the next login (see LoginService).
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${app.security.password.encoder:bcrypt}") String idForEncode,
+                                           @Value("${app.security.password.bcrypt-strength:10}") int bcryptStrength,
+                                           MeterRegistry meterRegistry) {
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", new BCryptPasswordEncoder(bcryptStrength));
+        encoders.put("pbkdf2", Pbkdf2PasswordEncoder.defaultsForSpringSecurity_v5_8());
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(idForEncode, encoders);
+        // Hashes stored before the {id} prefix are plain BCrypt
+        encoder.setDefaultPasswordEncoderForMatches(encoders.get("bcrypt"));
+        return new TimedPasswordEncoder(encoder, meterRegistry);
     }
 }
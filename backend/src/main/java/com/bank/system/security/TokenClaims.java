@@ -0,0 +1,20 @@
+package com.bank.system.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Verified contents of a JWT, produced by a single parse in {@link JwtTokenProvider#parseToken(String)}.
+ */
+@Getter
+@AllArgsConstructor
+public class TokenClaims {
+    private final String subject;
+    // Null for tokens issued before the uid claim was added
+    private final String userId;
+    private final long expiresAt;
+
+    public boolean isExpired(long now) {
+        return expiresAt <= now;
+    }
+}
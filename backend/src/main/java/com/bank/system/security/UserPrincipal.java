@@ -0,0 +1,68 @@
+package com.bank.system.security;
+
+import com.bank.system.entity.User;
+import com.bank.system.enums.UserRole;
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Authenticated principal placed in the security context by {@link JwtAuthenticationFilter}.
+ * Carries the bank account id so controllers don't have to look the user up again.
+ */
+@Getter
+public class UserPrincipal implements UserDetails {
+
+    private final String userId;
+    private final String loginId;
+    private final UserRole role;
+
+    public UserPrincipal(String userId, String loginId, UserRole role) {
+        this.userId = userId;
+        this.loginId = loginId;
+        this.role = role;
+    }
+
+    public static UserPrincipal from(User user) {
+        return new UserPrincipal(user.getId(), user.getLoginId(), user.getRole());
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + role.name().toUpperCase()));
+    }
+
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public String getUsername() {
+        return loginId;
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+}
@@ -1,15 +1,20 @@
 package com.bank.system.service;
 
+import com.bank.system.cache.CacheInvalidator;
 import com.bank.system.dto.BankDTOs.SubAccountRequest;
 import com.bank.system.entity.FavoriteAccount;
 import com.bank.system.entity.FavoriteAccountId;
 import com.bank.system.entity.SubAccount;
 import com.bank.system.entity.User;
+import com.bank.system.ledger.ShardedLedger;
 import com.bank.system.repository.FavoriteAccountRepository;
 import com.bank.system.repository.SubAccountRepository;
+import com.bank.system.util.IdGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Service
 @Transactional
@@ -17,17 +22,26 @@ public class AccountService {
 
     @Autowired private SubAccountRepository subAccountRepository;
     @Autowired private FavoriteAccountRepository favoriteAccountRepository;
+    @Autowired(required = false) private ShardedLedger ledger;
+    @Autowired private IdGenerator idGenerator;
+    @Autowired private BalanceSummaryService balanceSummaryService;
+    @Autowired private BalanceHistoryService balanceHistoryService;
+    @Autowired private CacheInvalidator cacheInvalidator;
 
     public SubAccount createSubAccount(SubAccountRequest req) {
         SubAccount sub = new SubAccount();
-        sub.setId("SUB" + System.currentTimeMillis());
+        sub.setId(idGenerator.nextId("SUB"));
         User user = new User();
         user.setId(req.getUserId());
         sub.setUser(user);
         sub.setName(req.getName() != null ? req.getName() : "新帳戶");
         sub.setBalance(0L);
         sub.setColor(req.getColor() != null ? req.getColor() : "#3b82f6");
-        return subAccountRepository.save(sub);
+        SubAccount saved = subAccountRepository.save(sub);
+        balanceSummaryService.subAccountAdded(req.getUserId());
+        balanceHistoryService.openCheckpoint(saved.getId(), req.getUserId(), 0L);
+        cacheInvalidator.accountSnapshotChanged(req.getUserId());
+        return saved;
     }
 
     public void deleteSubAccount(String subAccountId, String userId) {
@@ -35,15 +49,38 @@ public class AccountService {
         if (count <= 1) throw new RuntimeException("至少需要保留一個子帳戶");
         
         SubAccount sub = subAccountRepository.findById(subAccountId).orElseThrow();
-        if (sub.getBalance() > 0L) {
-            throw new RuntimeException("請先將此帳戶餘額轉出或提領完畢");
+        long balance;
+        if (ledger != null) {
+            // Checked on the account's shard, which then refuses every command on it until the delete completes,
+            // so no credit can land between the check and the delete
+            ledger.close(subAccountId, sub.getUser().getId(), "請先將此帳戶餘額轉出或提領完畢");
+            balance = 0L;
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        ledger.evict(subAccountId);
+                    } else {
+                        ledger.reopen(subAccountId);
+                    }
+                }
+            });
+        } else {
+            balance = sub.getBalance();
+            if (balance > 0L) {
+                throw new RuntimeException("請先將此帳戶餘額轉出或提領完畢");
+            }
         }
         subAccountRepository.delete(sub);
+        balanceHistoryService.deleteForSubAccount(subAccountId);
+        balanceSummaryService.subAccountRemoved(sub.getUser().getId(), balance);
+        cacheInvalidator.accountSnapshotChanged(userId);
     }
     
     public void deleteFavorite(String userId, String favoriteUserId) {
         FavoriteAccount fav = favoriteAccountRepository.findById(new FavoriteAccountId(userId, favoriteUserId))
             .orElseThrow(() -> new RuntimeException("常用帳號不存在"));
         favoriteAccountRepository.delete(fav);
+        cacheInvalidator.accountSnapshotChanged(userId);
     }
 }
@@ -0,0 +1,55 @@
+package com.bank.system.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Bounded, TTL-evicting cache of userId -> account snapshot (see {@link UserService#getAccountSnapshot}).
+ * Anything that changes a user's fields, sub-accounts, balances or favorites must go through
+ * {@link com.bank.system.cache.CacheInvalidator#accountSnapshotChanged}.
+ */
+@Component
+public class AccountSnapshotCache {
+
+    private final Cache<String, Map<String, Object>> cache;
+
+    public AccountSnapshotCache(@Value("${app.cache.account-snapshot.max-size:10000}") long maxSize,
+                                @Value("${app.cache.account-snapshot.ttl-seconds:30}") long ttlSeconds,
+                                MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "accountSnapshot");
+    }
+
+    public Map<String, Object> get(String userId, Function<String, Map<String, Object>> loader) {
+        return cache.get(userId, loader);
+    }
+
+    public void evict(String... userIds) {
+        for (String userId : userIds) {
+            if (userId != null) {
+                cache.invalidate(userId);
+            }
+        }
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long estimatedSize() {
+        return cache.estimatedSize();
+    }
+}
@@ -0,0 +1,136 @@
+package com.bank.system.service;
+
+import com.bank.system.dto.BankDTOs.TransactionView;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Streams every transaction, archived months included, to an output stream. Table rows are fetched in chunks;
+ * archived months are decoded one at a time.
+ */
+@Service
+public class AdminExportService {
+
+    private static final int FLUSH_EVERY = 1000;
+
+    @Autowired private TransactionHistoryService transactionHistoryService;
+    @Autowired private ObjectMapper objectMapper;
+
+    public enum Format {
+        jsonl("application/x-ndjson", "transactions.jsonl"),
+        csv("text/csv; charset=UTF-8", "transactions.csv");
+
+        private final String contentType;
+        private final String fileName;
+
+        Format(String contentType, String fileName) {
+            this.contentType = contentType;
+            this.fileName = fileName;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public static Format parse(String value) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(value)) {
+                    return format;
+                }
+            }
+            throw new RuntimeException("不支援的匯出格式: " + value);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void exportTransactions(Format format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        try (Stream<TransactionView> rows = transactionHistoryService.streamAll()) {
+            if (format == Format.csv) {
+                writeCsv(rows.iterator(), writer);
+            } else {
+                writeJsonLines(rows.iterator(), writer);
+            }
+        }
+        writer.flush();
+    }
+
+    private void writeJsonLines(Iterator<TransactionView> rows, Writer writer) throws IOException {
+        JsonGenerator json = objectMapper.getFactory().createGenerator(writer);
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        long count = 0;
+        while (rows.hasNext()) {
+            TransactionView tx = rows.next();
+            json.writeStartObject();
+            json.writeStringField("id", tx.getId());
+            json.writeStringField("userId", tx.getUserId());
+            json.writeStringField("type", tx.getType());
+            json.writeNumberField("amount", tx.getAmount());
+            json.writeStringField("note", tx.getNote());
+            json.writeStringField("time", tx.getTime());
+            json.writeNumberField("timestamp", tx.getTimestamp());
+            json.writeStringField("subAccountId", tx.getSubAccountId());
+            json.writeEndObject();
+            json.writeRaw('\n');
+            if (++count % FLUSH_EVERY == 0) {
+                json.flush();
+            }
+        }
+        json.flush();
+    }
+
+    private void writeCsv(Iterator<TransactionView> rows, Writer writer) throws IOException {
+        // BOM so spreadsheet tools detect UTF-8 (notes and types are Chinese)
+        writer.write('\uFEFF');
+        writer.write("id,userId,type,amount,note,time,timestamp,subAccountId\n");
+        long count = 0;
+        while (rows.hasNext()) {
+            TransactionView tx = rows.next();
+            writer.write(csv(tx.getId()));
+            writer.write(',');
+            writer.write(csv(tx.getUserId()));
+            writer.write(',');
+            writer.write(csv(tx.getType()));
+            writer.write(',');
+            writer.write(String.valueOf(tx.getAmount()));
+            writer.write(',');
+            writer.write(csv(tx.getNote()));
+            writer.write(',');
+            writer.write(csv(tx.getTime()));
+            writer.write(',');
+            writer.write(String.valueOf(tx.getTimestamp()));
+            writer.write(',');
+            writer.write(csv(tx.getSubAccountId()));
+            writer.write('\n');
+            if (++count % FLUSH_EVERY == 0) {
+                writer.flush();
+            }
+        }
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -12,7 +12,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Service
 @Transactional
@@ -21,6 +21,8 @@ public class AuthService {
     @Autowired private UserRepository userRepository;
     @Autowired private SubAccountRepository subAccountRepository;
     @Autowired private PasswordEncoder passwordEncoder;
+    @Autowired private BalanceSummaryService balanceSummaryService;
+    @Autowired private BalanceHistoryService balanceHistoryService;
 
     public User register(RegisterRequest req) {
         if (userRepository.findByLoginId(req.getLoginId()).isPresent()) {
@@ -28,10 +30,11 @@ public class AuthService {
         }
 
         String bankAccountNumber;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
         do {
-            int part1 = 1000 + new Random().nextInt(9000);
-            int part2 = 1000 + new Random().nextInt(9000);
-            int part3 = 1000 + new Random().nextInt(9000);
+            int part1 = 1000 + random.nextInt(9000);
+            int part2 = 1000 + random.nextInt(9000);
+            int part3 = 1000 + random.nextInt(9000);
             bankAccountNumber = "" + part1 + part2 + part3;
         } while (userRepository.existsById(bankAccountNumber));
 
@@ -42,7 +45,7 @@ public class AuthService {
         user.setPassword(passwordEncoder.encode(req.getPassword()));
         user.setRole(UserRole.user);
         user.setStatus(UserStatus.active);
-        userRepository.save(user);
+        user = userRepository.save(user);
 
         SubAccount subAccount = new SubAccount();
         subAccount.setId("SUB001_" + bankAccountNumber);
@@ -51,6 +54,8 @@ public class AuthService {
         subAccount.setBalance(req.getInitialDeposit());
         subAccount.setColor("#3b82f6");
         subAccountRepository.save(subAccount);
+        balanceSummaryService.createFor(user.getId(), req.getInitialDeposit());
+        balanceHistoryService.openCheckpoint(subAccount.getId(), user.getId(), req.getInitialDeposit());
 
         return user;
     }
@@ -0,0 +1,151 @@
+package com.bank.system.service;
+
+import com.bank.system.entity.SubAccount;
+import com.bank.system.entity.SubAccountCheckpoint;
+import com.bank.system.journal.TransactionJournal;
+import com.bank.system.ledger.LedgerWriteBehind;
+import com.bank.system.ledger.ShardedLedger;
+import com.bank.system.repository.SubAccountCheckpointRepository;
+import com.bank.system.repository.SubAccountEntryRepository;
+import com.bank.system.repository.SubAccountRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Writes a new checkpoint for every sub-account with entries since the previous run, so point-in-time queries
+ * scan at most about one interval of entries. Only time older than app.balance-history.checkpoint.settle-ms is
+ * folded in, since entries are timestamped before they commit, and only time before the oldest entry the ledger
+ * write-behind still holds (and the oldest row the journal hasn't drained), since those reach the database later
+ * with their original timestamps. Sub-accounts that predate checkpoints first get a baseline: the database
+ * balance minus the entries after the same cutoff.
+ */
+@Service
+public class BalanceCheckpointer {
+
+    private static final Logger log = LoggerFactory.getLogger(BalanceCheckpointer.class);
+
+    @Autowired private SubAccountRepository subAccountRepository;
+    @Autowired private SubAccountEntryRepository entryRepository;
+    @Autowired private SubAccountCheckpointRepository checkpointRepository;
+    @Autowired private BalanceHistoryService balanceHistoryService;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @Autowired(required = false) private ShardedLedger ledger;
+    @Autowired(required = false) private LedgerWriteBehind writeBehind;
+    @Autowired(required = false) private TransactionJournal journal;
+
+    @Value("${app.balance-history.checkpoint.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${app.balance-history.checkpoint.settle-ms:60000}")
+    private long settleMillis;
+
+    private TransactionTemplate transactionTemplate;
+
+    // Entries up to here have been folded into checkpoints; null until the first run
+    private Long watermark;
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(initialDelayString = "${app.balance-history.checkpoint.initial-delay-ms:30000}",
+               fixedDelayString = "${app.balance-history.checkpoint.interval-ms:300000}")
+    public void scheduledCheckpoint() {
+        checkpoint();
+    }
+
+    public synchronized void checkpoint() {
+        long cutoff = settledCutoff();
+        baselineMissing(cutoff);
+
+        if (watermark == null) {
+            watermark = checkpointRepository.findMaxAsOfUpTo(cutoff).orElse(0L);
+        }
+        if (cutoff <= watermark) {
+            return;
+        }
+        List<String> active = entryRepository.findSubAccountIdsActiveBetween(watermark, cutoff);
+        for (int from = 0; from < active.size(); from += chunkSize) {
+            List<String> chunk = active.subList(from, Math.min(from + chunkSize, active.size()));
+            try {
+                transactionTemplate.executeWithoutResult(status -> checkpointChunk(chunk, cutoff));
+            } catch (RuntimeException ex) {
+                // Not lost: these sub-accounts are checkpointed again after their next entry
+                log.warn("Balance checkpoint failed for {} sub-accounts", chunk.size(), ex);
+            }
+        }
+        watermark = cutoff;
+        log.debug("Checkpointed {} sub-accounts up to {}", active.size(), cutoff);
+    }
+
+    /** The latest time whose entries are all in the database; see the class comment. */
+    private long settledCutoff() {
+        long cutoff = System.currentTimeMillis() - settleMillis;
+        Long unflushed = writeBehind != null ? writeBehind.oldestPendingEntry() : null;
+        if (unflushed != null) {
+            cutoff = Math.min(cutoff, unflushed - 1);
+        }
+        Long undrained = journal != null ? journal.oldestUndrained() : null;
+        if (undrained != null) {
+            cutoff = Math.min(cutoff, undrained - 1);
+        }
+        return cutoff;
+    }
+
+    private void checkpointChunk(List<String> subAccountIds, long cutoff) {
+        for (SubAccountCheckpoint latest : checkpointRepository.findLatestBySubAccountIds(subAccountIds)) {
+            if (latest.getAsOf() >= cutoff) {
+                // Opened after the cutoff, nothing to fold in yet
+                continue;
+            }
+            long delta = entryRepository.sumBetween(latest.getSubAccountId(), latest.getAsOf(), cutoff);
+            balanceHistoryService.saveCheckpoint(latest.getSubAccountId(), latest.getUserId(),
+                    latest.getBalance() + delta, cutoff);
+        }
+    }
+
+    private void baselineMissing(long cutoff) {
+        String after = "";
+        while (true) {
+            List<String> ids = subAccountRepository.findIdsWithoutCheckpointAfter(after, PageRequest.of(0, chunkSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> baselineChunk(ids, cutoff));
+            } catch (RuntimeException ex) {
+                log.warn("Balance baseline failed for sub-accounts {}..{}", ids.get(0), ids.get(ids.size() - 1), ex);
+            }
+            after = ids.get(ids.size() - 1);
+        }
+    }
+
+    private void baselineChunk(List<String> subAccountIds, long cutoff) {
+        List<SubAccount> accounts;
+        if (ledger != null) {
+            // Balances of accounts loaded into the ledger are ahead of the database; those accounts got an
+            // opening checkpoint when they were loaded
+            accounts = subAccountRepository.findAllById(
+                    subAccountIds.stream().filter(id -> ledger.peekBalance(id) == null).toList());
+        } else {
+            // Locked, so no balance change commits between reading the balance and summing its entries
+            accounts = subAccountRepository.findAllByIdForUpdate(subAccountIds);
+        }
+        for (SubAccount account : accounts) {
+            long later = entryRepository.sumBetween(account.getId(), cutoff, Long.MAX_VALUE);
+            balanceHistoryService.saveCheckpoint(account.getId(), account.getUser().getId(),
+                    account.getBalance() - later, cutoff);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.bank.system.service;
+
+import com.bank.system.entity.SubAccount;
+import com.bank.system.entity.SubAccountCheckpoint;
+import com.bank.system.entity.SubAccountEntry;
+import com.bank.system.entity.Transaction;
+import com.bank.system.repository.SubAccountCheckpointRepository;
+import com.bank.system.repository.SubAccountEntryRepository;
+import com.bank.system.repository.SubAccountRepository;
+import com.bank.system.util.IdGenerator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Point-in-time sub-account balances from {@link SubAccountEntry} rows and {@link SubAccountCheckpoint}s:
+ * the balance at a time is the latest checkpoint at or before it plus the entries since, and
+ * {@link BalanceCheckpointer} keeps that delta scan short. Sub-accounts get an opening checkpoint when created;
+ * older ones get a baseline from the checkpointer.
+ */
+@Service
+@Transactional
+public class BalanceHistoryService {
+
+    @Autowired private SubAccountEntryRepository entryRepository;
+    @Autowired private SubAccountCheckpointRepository checkpointRepository;
+    @Autowired private SubAccountRepository subAccountRepository;
+    @Autowired private IdGenerator idGenerator;
+
+    public SubAccountEntry newEntry(Transaction tx, String subAccountId, long amount) {
+        SubAccountEntry entry = new SubAccountEntry();
+        entry.setId(idGenerator.nextId());
+        entry.setSubAccountId(subAccountId);
+        entry.setUserId(tx.getUser().getId());
+        entry.setAmount(amount);
+        entry.setTimestamp(tx.getTimestamp());
+        entry.setTransactionId(tx.getId());
+        return entry;
+    }
+
+    public void recordEntries(List<SubAccountEntry> entries) {
+        // Batched by Hibernate like the transaction rows
+        entryRepository.saveAll(entries);
+    }
+
+    /** Records the balance of a sub-account that has no entries yet (just created, or just loaded). */
+    public void openCheckpoint(String subAccountId, String userId, Long balance) {
+        // One millisecond back, so an entry written in the same millisecond still falls after it
+        saveCheckpoint(subAccountId, userId, balance != null ? balance : 0L, System.currentTimeMillis() - 1);
+    }
+
+    public void openCheckpointIfMissing(String subAccountId, String userId, Long balance) {
+        if (!checkpointRepository.existsBySubAccountId(subAccountId)) {
+            openCheckpoint(subAccountId, userId, balance);
+        }
+    }
+
+    public void saveCheckpoint(String subAccountId, String userId, long balance, long asOf) {
+        SubAccountCheckpoint checkpoint = new SubAccountCheckpoint();
+        checkpoint.setId(idGenerator.nextId());
+        checkpoint.setSubAccountId(subAccountId);
+        checkpoint.setUserId(userId);
+        checkpoint.setBalance(balance);
+        checkpoint.setAsOf(asOf);
+        checkpointRepository.save(checkpoint);
+    }
+
+    /**
+     * Balance of the sub-account after everything recorded up to {@code at} (epoch millis), or null if there is
+     * no history that far back (the sub-account didn't exist yet, or predates checkpoints and has no baseline).
+     */
+    @Transactional(readOnly = true)
+    public Long balanceAt(String subAccountId, long at) {
+        return checkpointRepository.findFirstBySubAccountIdAndAsOfLessThanEqualOrderByAsOfDesc(subAccountId, at)
+                .map(checkpoint -> checkpoint.getBalance()
+                        + entryRepository.sumBetween(subAccountId, checkpoint.getAsOf(), at))
+                .orElse(null);
+    }
+
+    /**
+     * Balances of the user's current sub-accounts at {@code at}; sub-accounts without history that far back
+     * have a null balance and are left out of the total. With the sharded ledger the last write-behind
+     * interval may not be in the database yet.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> balancesAt(String userId, long at) {
+        List<Map<String, Object>> subAccounts = new ArrayList<>();
+        long total = 0L;
+        for (SubAccount sub : subAccountRepository.findByUserIdOrderByCreatedAt(userId)) {
+            Long balance = balanceAt(sub.getId(), at);
+            if (balance != null) {
+                total += balance;
+            }
+            Map<String, Object> item = new HashMap<>();
+            item.put("subAccountId", sub.getId());
+            item.put("name", sub.getName());
+            item.put("balance", balance);
+            subAccounts.add(item);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("at", at);
+        result.put("totalBalance", total);
+        result.put("subAccounts", subAccounts);
+        return result;
+    }
+
+    public void deleteForSubAccount(String subAccountId) {
+        entryRepository.deleteBySubAccountId(subAccountId);
+        checkpointRepository.deleteBySubAccountId(subAccountId);
+    }
+
+    public void deleteForUser(String userId) {
+        entryRepository.deleteByUserId(userId);
+        checkpointRepository.deleteByUserId(userId);
+    }
+}
@@ -0,0 +1,180 @@
+package com.bank.system.service;
+
+import com.bank.system.archive.TransactionArchive;
+import com.bank.system.cache.CacheInvalidator;
+import com.bank.system.dto.BankDTOs.BalanceDrift;
+import com.bank.system.dto.BankDTOs.ReconciliationReport;
+import com.bank.system.dto.BankDTOs.SubAccountTotalsView;
+import com.bank.system.dto.BankDTOs.TransactionTotalsView;
+import com.bank.system.entity.UserBalanceSummary;
+import com.bank.system.repository.SubAccountRepository;
+import com.bank.system.repository.TransactionRepository;
+import com.bank.system.repository.UserBalanceSummaryRepository;
+import com.bank.system.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Verifies user_balance_summary against sub_accounts, walking users in id order one chunk (and one short
+ * transaction) at a time. Drift is logged and, with app.balance-summary.reconcile.repair=true, corrected;
+ * missing rows are always created.
+ */
+@Service
+public class BalanceSummaryReconciler {
+
+    private static final Logger log = LoggerFactory.getLogger(BalanceSummaryReconciler.class);
+    private static final int MAX_SAMPLES = 100;
+
+    @Autowired private UserRepository userRepository;
+    @Autowired private SubAccountRepository subAccountRepository;
+    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private TransactionArchive transactionArchive;
+    @Autowired private UserBalanceSummaryRepository summaryRepository;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @Autowired private CacheInvalidator cacheInvalidator;
+
+    @Value("${app.balance-summary.reconcile.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${app.balance-summary.reconcile.repair:true}")
+    private boolean repair;
+
+    private TransactionTemplate transactionTemplate;
+    private volatile ReconciliationReport lastReport;
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(initialDelayString = "${app.balance-summary.reconcile.initial-delay-ms:10000}",
+               fixedDelayString = "${app.balance-summary.reconcile.interval-ms:3600000}")
+    public void scheduledReconcile() {
+        reconcile();
+    }
+
+    public ReconciliationReport getLastReport() {
+        return lastReport;
+    }
+
+    public synchronized ReconciliationReport reconcile() {
+        ReconciliationReport report = new ReconciliationReport();
+        report.setStartedAt(System.currentTimeMillis());
+        report.setRepaired(repair);
+
+        String after = "";
+        while (true) {
+            List<String> userIds = userRepository.findIdsAfter(after, PageRequest.of(0, chunkSize));
+            if (userIds.isEmpty()) {
+                break;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> reconcileChunk(userIds, report));
+            } catch (RuntimeException ex) {
+                // e.g. a concurrent registration created the row first; the next run picks the chunk up again
+                report.setFailedChunks(report.getFailedChunks() + 1);
+                log.warn("Balance summary reconciliation failed for users {}..{}",
+                        userIds.get(0), userIds.get(userIds.size() - 1), ex);
+            }
+            report.setUsersChecked(report.getUsersChecked() + userIds.size());
+            after = userIds.get(userIds.size() - 1);
+        }
+
+        report.setFinishedAt(System.currentTimeMillis());
+        lastReport = report;
+        if (report.getMissing() + report.getMismatched() > 0) {
+            log.warn("Balance summary drift: {} users checked, {} missing, {} mismatched (repair={})",
+                    report.getUsersChecked(), report.getMissing(), report.getMismatched(), repair);
+        } else {
+            log.info("Balance summary verified for {} users in {} ms",
+                    report.getUsersChecked(), report.getFinishedAt() - report.getStartedAt());
+        }
+        return report;
+    }
+
+    private void reconcileChunk(List<String> userIds, ReconciliationReport report) {
+        // Lock the summary rows first: balance changes still in flight for these users then wait for this
+        // transaction, and the sub_accounts snapshot read below includes everything already committed
+        Map<String, UserBalanceSummary> summaries = summaryRepository.findAllByUserIdForUpdate(userIds).stream()
+                .collect(Collectors.toMap(UserBalanceSummary::getUserId, Function.identity()));
+        Map<String, SubAccountTotalsView> actual = subAccountRepository.sumByUserIds(userIds).stream()
+                .collect(Collectors.toMap(SubAccountTotalsView::getUserId, Function.identity()));
+
+        List<String> missingIds = new ArrayList<>();
+        for (String userId : userIds) {
+            SubAccountTotalsView totals = actual.get(userId);
+            long expectedBalance = totals != null ? totals.getTotalBalance() : 0L;
+            int expectedCount = totals != null ? totals.getSubAccountCount().intValue() : 0;
+            UserBalanceSummary summary = summaries.get(userId);
+
+            if (summary == null) {
+                report.setMissing(report.getMissing() + 1);
+                addSample(report, userId, expectedBalance, null, expectedCount, null);
+                missingIds.add(userId);
+            } else if (summary.getTotalBalance() != expectedBalance || summary.getSubAccountCount() != expectedCount) {
+                report.setMismatched(report.getMismatched() + 1);
+                addSample(report, userId, expectedBalance, summary.getTotalBalance(),
+                        expectedCount, summary.getSubAccountCount());
+                if (repair) {
+                    summary.setTotalBalance(expectedBalance);
+                    summary.setSubAccountCount(expectedCount);
+                    cacheInvalidator.accountSnapshotChanged(userId);
+                }
+            }
+        }
+
+        if (!missingIds.isEmpty()) {
+            createMissing(missingIds, actual);
+        }
+    }
+
+    private void createMissing(List<String> userIds, Map<String, SubAccountTotalsView> actual) {
+        Map<String, TransactionTotalsView> activity = transactionRepository.countByUserIds(userIds).stream()
+                .collect(Collectors.toMap(TransactionTotalsView::getUserId, Function.identity()));
+        List<UserBalanceSummary> created = new ArrayList<>(userIds.size());
+        for (String userId : userIds) {
+            SubAccountTotalsView totals = actual.get(userId);
+            TransactionTotalsView txTotals = activity.get(userId);
+            UserBalanceSummary summary = new UserBalanceSummary();
+            summary.setUserId(userId);
+            summary.setTotalBalance(totals != null ? totals.getTotalBalance() : 0L);
+            summary.setSubAccountCount(totals != null ? totals.getSubAccountCount().intValue() : 0);
+            // Archived months count too; they are all older than what is left in the table
+            Long lastActivityAt = txTotals != null ? txTotals.getLastActivityAt() : transactionArchive.lastTimestamp(userId);
+            summary.setTxCount((txTotals != null ? txTotals.getTxCount() : 0L) + transactionArchive.countByUser(userId));
+            summary.setLastActivityAt(lastActivityAt);
+            created.add(summary);
+        }
+        summaryRepository.saveAll(created);
+    }
+
+    private void addSample(ReconciliationReport report, String userId, Long expectedBalance, Long recordedBalance,
+                           Integer expectedCount, Integer recordedCount) {
+        if (report.getSamples().size() >= MAX_SAMPLES) {
+            return;
+        }
+        BalanceDrift drift = new BalanceDrift();
+        drift.setUserId(userId);
+        drift.setExpectedBalance(expectedBalance);
+        drift.setRecordedBalance(recordedBalance);
+        drift.setExpectedSubAccountCount(expectedCount);
+        drift.setRecordedSubAccountCount(recordedCount);
+        report.getSamples().add(drift);
+        log.debug("Balance summary drift for user {}: expected {}/{}, recorded {}/{}",
+                userId, expectedBalance, expectedCount, recordedBalance, recordedCount);
+    }
+}
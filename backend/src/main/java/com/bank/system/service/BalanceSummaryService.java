@@ -0,0 +1,106 @@
+package com.bank.system.service;
+
+import com.bank.system.entity.Transaction;
+import com.bank.system.entity.UserBalanceSummary;
+import com.bank.system.repository.UserBalanceSummaryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps user_balance_summary in step with balance changes. Every method joins the caller's transaction, so the
+ * summary commits or rolls back together with the sub_accounts rows it mirrors.
+ */
+@Service
+@Transactional
+public class BalanceSummaryService {
+
+    private static final Logger log = LoggerFactory.getLogger(BalanceSummaryService.class);
+
+    @Autowired private UserBalanceSummaryRepository summaryRepository;
+
+    public void createFor(String userId, Long initialBalance) {
+        UserBalanceSummary summary = new UserBalanceSummary();
+        summary.setUserId(userId);
+        summary.setTotalBalance(initialBalance != null ? initialBalance : 0L);
+        summary.setSubAccountCount(1);
+        summary.setTxCount(0L);
+        summaryRepository.save(summary);
+    }
+
+    /**
+     * Applies recorded transactions, one UPDATE per user; each amount is the signed change to that user's
+     * total balance.
+     */
+    public void recordTransactions(List<Transaction> transactions) {
+        Map<String, long[]> perUser = new HashMap<>();
+        for (Transaction tx : transactions) {
+            // [balance delta, tx count, latest timestamp]
+            long[] totals = perUser.computeIfAbsent(tx.getUser().getId(), id -> new long[3]);
+            totals[0] += tx.getAmount();
+            totals[1]++;
+            totals[2] = Math.max(totals[2], tx.getTimestamp());
+        }
+        perUser.forEach((userId, totals) -> apply(userId, totals[0], totals[1], totals[2]));
+    }
+
+    /**
+     * Ledger write-behind: balances are written as absolute values, and a flush can carry balances whose
+     * transaction rows are still queued, so totals are recomputed from sub_accounts for the affected users
+     * while the transactions only bump the activity counters.
+     */
+    public void recordLedgerFlush(Collection<String> subAccountIds, List<Transaction> transactions) {
+        if (!subAccountIds.isEmpty()) {
+            summaryRepository.refreshTotalsForSubAccounts(subAccountIds);
+        }
+        Map<String, long[]> perUser = new HashMap<>();
+        for (Transaction tx : transactions) {
+            // [tx count, latest timestamp]
+            long[] totals = perUser.computeIfAbsent(tx.getUser().getId(), id -> new long[2]);
+            totals[0]++;
+            totals[1] = Math.max(totals[1], tx.getTimestamp());
+        }
+        perUser.forEach((userId, totals) -> apply(userId, 0L, totals[0], totals[1]));
+    }
+
+    public void subAccountAdded(String userId) {
+        applySubAccountChange(userId, 0L, 1);
+    }
+
+    public void subAccountRemoved(String userId, Long balance) {
+        applySubAccountChange(userId, balance != null ? -balance : 0L, -1);
+    }
+
+    public void deleteFor(String userId) {
+        summaryRepository.deleteById(userId);
+    }
+
+    @Transactional(readOnly = true)
+    public Long getTotalBalance(String userId) {
+        return summaryRepository.findById(userId).map(UserBalanceSummary::getTotalBalance).orElse(null);
+    }
+
+    private void apply(String userId, long balanceDelta, long txCount, long timestamp) {
+        if (summaryRepository.applyActivity(userId, balanceDelta, txCount, timestamp) == 0) {
+            missing(userId);
+        }
+    }
+
+    private void applySubAccountChange(String userId, long balanceDelta, int countDelta) {
+        if (summaryRepository.applySubAccountChange(userId, balanceDelta, countDelta) == 0) {
+            missing(userId);
+        }
+    }
+
+    private void missing(String userId) {
+        // Users created before the summary existed; the reconciler creates their row from sub_accounts
+        log.debug("No balance summary for user {}, leaving it to reconciliation", userId);
+    }
+}
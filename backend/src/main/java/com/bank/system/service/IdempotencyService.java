@@ -0,0 +1,242 @@
+package com.bank.system.service;
+
+import com.bank.system.entity.IdempotencyRecord;
+import com.bank.system.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Idempotency-Key handling for money-moving endpoints. A key is scoped to the calling user and remembers the
+ * outcome of the first successful execution: repeats get the stored response, concurrent duplicates on this
+ * node wait for the one execution in flight, and a key reused with a different request is rejected with 422.
+ * <p>
+ * Completed keys live in a bounded in-memory LRU backed by the idempotency_keys table. For database-backed
+ * operations the row is written in the same transaction as the balance change (see
+ * {@link #recordInCurrentTransaction()}), so a committed operation always has its key and a duplicate running
+ * on another node fails on the primary key and rolls back. Failed executions are not remembered; they moved
+ * no money, so a retry simply runs again.
+ */
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+    private static final int MAX_KEY_LENGTH = 100;
+    private static final Map<String, Object> SUCCESS = Map.of("success", true);
+    private static final ThreadLocal<Pending> PENDING = new ThreadLocal<>();
+
+    @Autowired private IdempotencyRecordRepository recordRepository;
+    @Autowired private ObjectMapper objectMapper;
+
+    private final Cache<String, IdempotencyRecord> completed;
+    private final ConcurrentHashMap<String, CompletableFuture<IdempotencyRecord>> inFlight = new ConcurrentHashMap<>();
+    private final long retentionMillis;
+
+    public IdempotencyService(@Value("${app.idempotency.cache-size:10000}") long cacheSize,
+                              @Value("${app.idempotency.retention-hours:24}") long retentionHours,
+                              MeterRegistry meterRegistry) {
+        this.retentionMillis = Duration.ofHours(retentionHours).toMillis();
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofHours(retentionHours))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, completed, "idempotency");
+    }
+
+    /**
+     * Runs the action at most once per (userId, key) and returns the success response, or the stored response
+     * of an earlier execution. Without a key the action simply runs.
+     */
+    public ResponseEntity<?> execute(String userId, String key, String operation, Object request, Runnable action) {
+        if (key == null || key.isBlank()) {
+            action.run();
+            return ResponseEntity.ok(SUCCESS);
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new RuntimeException("Idempotency-Key 長度不可超過 " + MAX_KEY_LENGTH + " 字元");
+        }
+        String id = userId + ":" + key;
+        String requestHash = fingerprint(operation, request);
+
+        IdempotencyRecord done = completed.getIfPresent(id);
+        if (done != null) {
+            return replay(done, requestHash);
+        }
+
+        CompletableFuture<IdempotencyRecord> mine = new CompletableFuture<>();
+        CompletableFuture<IdempotencyRecord> leader = inFlight.putIfAbsent(id, mine);
+        if (leader != null) {
+            return replay(await(leader), requestHash);
+        }
+
+        try {
+            // Checked only once this thread owns the key, so a record written in between can't be missed
+            IdempotencyRecord record = recordRepository.findById(id).orElse(null);
+            boolean executed = false;
+            if (record == null) {
+                IdempotencyRecord fresh = newRecord(id, requestHash);
+                record = executeOnce(fresh, action);
+                executed = record == fresh;
+            }
+            completed.put(id, record);
+            mine.complete(record);
+            return executed ? ResponseEntity.ok(SUCCESS) : replay(record, requestHash);
+        } catch (RuntimeException ex) {
+            mine.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(id, mine);
+        }
+    }
+
+    /**
+     * Called by {@link TransactionService} inside its transaction, after the balance change: stores the key of
+     * the request being executed on this thread, if any. Safe to call again when the transaction is retried.
+     */
+    public void recordInCurrentTransaction() {
+        Pending pending = PENDING.get();
+        if (pending == null) {
+            return;
+        }
+        // A fresh entity per attempt: one persisted by an attempt that rolled back counts as not new, and saving
+        // it again would merge over a row another node committed for the key instead of failing on it
+        recordRepository.saveAndFlush(copyOf(pending.record));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    pending.recorded = true;
+                }
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.cleanup-interval-ms:3600000}")
+    public void cleanup() {
+        int deleted = recordRepository.deleteOlderThan(System.currentTimeMillis() - retentionMillis);
+        if (deleted > 0) {
+            log.debug("Removed {} expired idempotency keys", deleted);
+        }
+    }
+
+    private IdempotencyRecord executeOnce(IdempotencyRecord record, Runnable action) {
+        Pending pending = new Pending(record);
+        PENDING.set(pending);
+        try {
+            action.run();
+        } catch (DataIntegrityViolationException ex) {
+            // Another node committed the same key first and our transaction rolled back
+            return recordRepository.findById(record.getId()).orElseThrow(() -> ex);
+        } finally {
+            PENDING.remove();
+        }
+
+        if (!pending.recorded) {
+            // The operation didn't run in a database transaction (in-memory ledger): record it afterwards
+            try {
+                recordRepository.save(record);
+            } catch (DataIntegrityViolationException ex) {
+                log.warn("Idempotency key {} was recorded concurrently by another node", record.getId());
+            }
+        }
+        return record;
+    }
+
+    private IdempotencyRecord newRecord(String id, String requestHash) {
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setId(id);
+        record.setRequestHash(requestHash);
+        record.setStatusCode(200);
+        try {
+            record.setResponseBody(objectMapper.writeValueAsString(SUCCESS));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException(ex);
+        }
+        record.setCreatedAt(System.currentTimeMillis());
+        return record;
+    }
+
+    private static IdempotencyRecord copyOf(IdempotencyRecord record) {
+        IdempotencyRecord copy = new IdempotencyRecord();
+        copy.setId(record.getId());
+        copy.setRequestHash(record.getRequestHash());
+        copy.setStatusCode(record.getStatusCode());
+        copy.setResponseBody(record.getResponseBody());
+        copy.setCreatedAt(record.getCreatedAt());
+        return copy;
+    }
+
+    private ResponseEntity<?> replay(IdempotencyRecord record, String requestHash) {
+        if (!record.getRequestHash().equals(requestHash)) {
+            return ResponseEntity.status(422).body(Map.of("error", "此 Idempotency-Key 已用於不同的請求"));
+        }
+        try {
+            return ResponseEntity.status(record.getStatusCode())
+                    .header("Idempotent-Replayed", "true")
+                    .body(objectMapper.readValue(record.getResponseBody(), Object.class));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static IdempotencyRecord await(CompletableFuture<IdempotencyRecord> leader) {
+        try {
+            return leader.join();
+        } catch (CompletionException ex) {
+            // Same request, same outcome: surface the leader's error to the duplicate as well
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    private String fingerprint(String operation, Object request) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(request);
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            sha256.update(operation.getBytes(StandardCharsets.UTF_8));
+            sha256.update((byte) 0);
+            return Base64.getEncoder().encodeToString(sha256.digest(body));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException(ex);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+
+    private static final class Pending {
+        final IdempotencyRecord record;
+        volatile boolean recorded;
+
+        Pending(IdempotencyRecord record) {
+            this.record = record;
+        }
+    }
+}
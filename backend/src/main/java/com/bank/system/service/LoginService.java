@@ -0,0 +1,108 @@
+package com.bank.system.service;
+
+import com.bank.system.dto.BankDTOs.LoginRequest;
+import com.bank.system.entity.User;
+import com.bank.system.exception.TooManyRequestsException;
+import com.bank.system.repository.UserRepository;
+import com.bank.system.security.JwtTokenProvider;
+import com.bank.system.security.PasswordHashingExecutor;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Login without holding a request thread: each login runs on a virtual thread, the password check on the
+ * bounded {@link PasswordHashingExecutor}, and at most app.security.login.max-concurrent logins are in
+ * progress; beyond that they are rejected at once with {@link TooManyRequestsException}. Stored hashes that
+ * the configured encoder considers outdated (another algorithm, lower cost) are re-hashed after a successful
+ * login.
+ */
+@Service
+public class LoginService {
+
+    private static final Logger log = LoggerFactory.getLogger(LoginService.class);
+
+    @Autowired private UserRepository userRepository;
+    @Autowired private UserService userService;
+    @Autowired private PasswordEncoder passwordEncoder;
+    @Autowired private PasswordHashingExecutor hashingExecutor;
+    @Autowired private JwtTokenProvider tokenProvider;
+
+    private final ExecutorService loginExecutor =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("login-", 0).factory());
+    private final Semaphore permits;
+
+    // Checked when the login id doesn't exist, so the response time doesn't reveal which ids are registered
+    private String dummyHash;
+
+    public LoginService(@Value("${app.security.login.max-concurrent:200}") int maxConcurrent) {
+        this.permits = new Semaphore(maxConcurrent);
+    }
+
+    @PostConstruct
+    void init() {
+        dummyHash = passwordEncoder.encode("not-a-real-password");
+    }
+
+    /** Completes with the login response body (token and account snapshot), or with BadCredentialsException. */
+    public CompletableFuture<Map<String, Object>> login(LoginRequest req) {
+        if (!permits.tryAcquire()) {
+            throw new TooManyRequestsException("登入請求過多，請稍後再試");
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> authenticate(req), loginExecutor)
+                    .whenComplete((response, ex) -> permits.release());
+        } catch (RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    private Map<String, Object> authenticate(LoginRequest req) {
+        User user = userRepository.findWithSubAccountsByLoginId(req.getLoginId()).orElse(null);
+        String rawPassword = req.getPassword() != null ? req.getPassword() : "";
+        String storedHash = user != null ? user.getPassword() : dummyHash;
+
+        boolean matches = hashingExecutor.submit(() -> passwordEncoder.matches(rawPassword, storedHash)).join();
+        if (user == null || !matches) {
+            throw new BadCredentialsException("Bad credentials");
+        }
+        if (passwordEncoder.upgradeEncoding(storedHash)) {
+            rehash(user, rawPassword);
+        }
+
+        String jwt = tokenProvider.generateToken(new UsernamePasswordAuthenticationToken(user.getLoginId(), null), user);
+        return Map.of("success", true, "token", jwt, "user", userService.toAccountSnapshot(user));
+    }
+
+    private void rehash(User user, String rawPassword) {
+        try {
+            String newHash = hashingExecutor.submit(() -> passwordEncoder.encode(rawPassword)).join();
+            // Only replaces the hash that was checked, so a password changed in the meantime is kept
+            userRepository.updatePassword(user.getId(), user.getPassword(), newHash);
+        } catch (RuntimeException ex) {
+            // The login still succeeds; the hash is upgraded on a later login
+            log.warn("Could not re-hash password of user {}", user.getId(), ex);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        loginExecutor.shutdown();
+        loginExecutor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
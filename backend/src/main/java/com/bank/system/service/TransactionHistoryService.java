@@ -0,0 +1,133 @@
+package com.bank.system.service;
+
+import com.bank.system.archive.TransactionArchive;
+import com.bank.system.dto.BankDTOs.TransactionView;
+import com.bank.system.journal.TransactionJournal;
+import com.bank.system.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Transaction history over both tiers: the transactions table and the {@link TransactionArchive}. Archived
+ * months are older than what is left in the table, except while a month is being moved; a row found in both
+ * tiers is returned once. With the journal enabled, committed rows this node hasn't drained into the table yet are
+ * added to the per-user reads, so users see their own new transactions right away.
+ */
+@Service
+@Transactional(readOnly = true)
+public class TransactionHistoryService {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionHistoryService.class);
+
+    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private TransactionArchive archive;
+    @Autowired(required = false) private TransactionJournal journal;
+
+    /** A user's whole history, newest first. */
+    public List<TransactionView> findByUser(String userId) {
+        List<TransactionView> hot = transactionRepository.findViewsByUserId(userId);
+        if (journal != null) {
+            hot = merge(journal.findUndrained(userId), hot, Integer.MAX_VALUE);
+        }
+        return merge(hot, archive.findByUser(userId), Integer.MAX_VALUE);
+    }
+
+    /** See {@link TransactionRepository#findHistoryPage}. */
+    public List<TransactionView> findHistoryPage(String userId, Long beforeTimestamp, String beforeId, String type,
+                                                 String subAccountId, Long fromTimestamp, Long toTimestamp,
+                                                 int limit) {
+        List<TransactionView> hot = transactionRepository.findHistoryPage(userId, beforeTimestamp, beforeId,
+                type, subAccountId, fromTimestamp, toTimestamp, PageRequest.of(0, limit));
+        if (journal != null) {
+            List<TransactionView> undrained = journal.findUndrained(userId).stream()
+                    .filter(row -> matches(row, beforeTimestamp, beforeId, type, subAccountId, fromTimestamp, toTimestamp))
+                    .toList();
+            hot = merge(undrained, hot, limit);
+        }
+        Long archivedUntil = archive.archivedUntil();
+        if (archivedUntil == null || (hot.size() == limit && hot.get(limit - 1).getTimestamp() >= archivedUntil)) {
+            // The page ends before any archived month, which is the common case for recent pages
+            return hot;
+        }
+        List<TransactionView> cold = archive.findHistoryPage(userId, beforeTimestamp, beforeId,
+                type, subAccountId, fromTimestamp, toTimestamp, limit);
+        return merge(hot, cold, limit);
+    }
+
+    public List<TransactionView> findAll() {
+        List<TransactionView> rows = new ArrayList<>(archive.streamAll().toList());
+        rows.addAll(transactionRepository.findAllViews());
+        return rows;
+    }
+
+    /**
+     * Archived rows (oldest month first) followed by the table in id order. Must be consumed and closed inside
+     * a read-only transaction, like {@link TransactionRepository#streamAllViews}.
+     */
+    public Stream<TransactionView> streamAll() {
+        return Stream.concat(archive.streamAll(), transactionRepository.streamAllViews());
+    }
+
+    /**
+     * Deletes a user's rows from both tiers. The archive files are rewritten once the caller's transaction has
+     * committed, so a rollback leaves them intact. The archiver moves a month under the archive's lock, so rows
+     * it read before the delete are stored before this rewrite runs, not after it.
+     */
+    @Transactional
+    public void deleteByUser(String userId) {
+        transactionRepository.deleteByUserId(userId);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    archive.deleteByUser(userId);
+                } catch (IOException ex) {
+                    log.error("Could not remove the archived transactions of deleted user {}", userId, ex);
+                }
+            }
+        });
+    }
+
+    /** The filters and cursor of {@link TransactionRepository#findHistoryPage}, applied to one row. */
+    private static boolean matches(TransactionView row, Long beforeTimestamp, String beforeId, String type,
+                                   String subAccountId, Long fromTimestamp, Long toTimestamp) {
+        long timestamp = row.getTimestamp();
+        return (beforeTimestamp == null || timestamp < beforeTimestamp
+                        || (timestamp == beforeTimestamp && row.getId().compareTo(beforeId) < 0))
+                && (type == null || type.equals(row.getType()))
+                && (subAccountId == null || subAccountId.equals(row.getSubAccountId()))
+                && (fromTimestamp == null || timestamp >= fromTimestamp)
+                && (toTimestamp == null || timestamp < toTimestamp);
+    }
+
+    private static List<TransactionView> merge(List<TransactionView> hot, List<TransactionView> cold, int limit) {
+        List<TransactionView> merged = new ArrayList<>(Math.min(limit, hot.size() + cold.size()));
+        int h = 0;
+        int c = 0;
+        while (merged.size() < limit && (h < hot.size() || c < cold.size())) {
+            TransactionView next;
+            if (c >= cold.size() || (h < hot.size() && TransactionArchive.NEWEST_FIRST.compare(hot.get(h), cold.get(c)) <= 0)) {
+                next = hot.get(h++);
+            } else {
+                next = cold.get(c++);
+            }
+            if (!merged.isEmpty() && merged.get(merged.size() - 1).getId().equals(next.getId())) {
+                // In both: archived but not yet deleted from the table, or drained from the journal while being read
+                continue;
+            }
+            merged.add(next);
+        }
+        return merged;
+    }
+}
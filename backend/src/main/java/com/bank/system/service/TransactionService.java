@@ -1,108 +1,391 @@
 package com.bank.system.service;
 
+import com.bank.system.cache.CacheInvalidator;
+import com.bank.system.dto.BankDTOs.BatchTransferItem;
+import com.bank.system.dto.BankDTOs.BatchTransferRequest;
+import com.bank.system.dto.BankDTOs.BatchTransferResult;
+import com.bank.system.dto.BankDTOs.SubAccountRefView;
 import com.bank.system.dto.BankDTOs.TransactionRequest;
 import com.bank.system.entity.FavoriteAccount;
 import com.bank.system.entity.SubAccount;
+import com.bank.system.entity.SubAccountEntry;
 import com.bank.system.entity.Transaction;
 import com.bank.system.entity.User;
+import com.bank.system.enums.ConcurrencyMode;
+import com.bank.system.journal.TransactionJournal;
+import com.bank.system.ledger.LedgerAccount;
+import com.bank.system.ledger.ShardedLedger;
+import com.bank.system.metrics.BankMetrics;
+import com.bank.system.push.UserEventBroker;
 import com.bank.system.repository.FavoriteAccountRepository;
 import com.bank.system.repository.SubAccountRepository;
 import com.bank.system.repository.TransactionRepository;
 import com.bank.system.repository.UserRepository;
+import com.bank.system.util.IdGenerator;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+/**
+ * Balance-changing operations. Each public method runs in its own transaction (see {@link #execute(Runnable)})
+ * so that a transaction that lost an optimistic-lock race can be retried from scratch.
+ * With app.ledger.engine=sharded the balances are applied to the in-memory {@link ShardedLedger} instead.
+ */
 @Service
-@Transactional
 public class TransactionService {
 
+    // DateTimeFormatter is immutable and thread-safe, so one instance serves every request
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy/MM/dd a h:mm:ss", Locale.TAIWAN);
+
     @Autowired private SubAccountRepository subAccountRepository;
     @Autowired private TransactionRepository transactionRepository;
     @Autowired private UserRepository userRepository;
     @Autowired private FavoriteAccountRepository favoriteAccountRepository;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @Autowired private IdGenerator idGenerator;
+    @Autowired private BalanceSummaryService balanceSummaryService;
+    @Autowired private BalanceHistoryService balanceHistoryService;
+    @Autowired private UserEventBroker userEventBroker;
+    @Autowired private CacheInvalidator cacheInvalidator;
+    @Autowired private IdempotencyService idempotencyService;
+    @Autowired private BankMetrics bankMetrics;
+    @Autowired(required = false) private ShardedLedger ledger;
+    @Autowired(required = false) private TransactionJournal journal;
+
+    @Value("${app.transaction.concurrency-mode:optimistic}")
+    private ConcurrencyMode concurrencyMode;
+
+    @Value("${app.transaction.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.transaction.batch.max-items:5000}")
+    private int batchMaxItems;
+
+    @Value("${app.transaction.batch.chunk-size:500}")
+    private int batchChunkSize;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
 
     public void deposit(TransactionRequest req) {
-        // Check if user account is frozen
-        User user = userRepository.findById(req.getUserId())
-                .orElseThrow(() -> new RuntimeException("用戶不存在"));
-        if (user.getStatus() == com.bank.system.enums.UserStatus.frozen) {
-            throw new RuntimeException("帳戶已被凍結");
+        bankMetrics.timeOperation("deposit", () -> applyDeposit(req));
+    }
+
+    private void applyDeposit(TransactionRequest req) {
+        if (ledger != null) {
+            requireActiveUser(req.getUserId());
+            LedgerAccount account = ledger.credit(req.getSubAccountId(), req.getUserId(), req.getAmount());
+            recordTransaction(req.getUserId(), "存款", req.getAmount(),
+                "存入「" + account.getName() + "」", req.getSubAccountId());
+            return;
         }
-        
-        SubAccount subAccount = subAccountRepository.findByIdAndUserId(req.getSubAccountId(), req.getUserId())
-                .orElseThrow(() -> new RuntimeException("子帳戶不存在"));
 
-        subAccount.setBalance(subAccount.getBalance() + req.getAmount());
-        subAccountRepository.save(subAccount);
+        execute(() -> {
+            // Check if user account is frozen
+            requireActiveUser(req.getUserId());
 
-        recordTransaction(req.getUserId(), "存款", req.getAmount(), 
-            "存入「" + subAccount.getName() + "」", req.getSubAccountId());
+            // Applied in the database, so concurrent deposits can't overwrite each other
+            int updated = subAccountRepository.addToBalance(req.getSubAccountId(), req.getUserId(), req.getAmount());
+            if (updated == 0) {
+                throw new RuntimeException("子帳戶不存在");
+            }
+            String subAccountName = subAccountRepository.findNameByIdAndUserId(req.getSubAccountId(), req.getUserId())
+                    .orElseThrow(() -> new RuntimeException("子帳戶不存在"));
+
+            recordTransaction(req.getUserId(), "存款", req.getAmount(),
+                "存入「" + subAccountName + "」", req.getSubAccountId());
+        });
     }
 
     public void withdraw(TransactionRequest req) {
-        // Check if user account is frozen
-        User user = userRepository.findById(req.getUserId())
-                .orElseThrow(() -> new RuntimeException("用戶不存在"));
-        if (user.getStatus() == com.bank.system.enums.UserStatus.frozen) {
-            throw new RuntimeException("帳戶已被凍結");
-        }
-        
-        SubAccount subAccount = subAccountRepository.findByIdAndUserId(req.getSubAccountId(), req.getUserId())
-                .orElseThrow(() -> new RuntimeException("子帳戶不存在"));
+        bankMetrics.timeOperation("withdraw", () -> applyWithdraw(req));
+    }
 
-        if (subAccount.getBalance() < req.getAmount()) {
-            throw new RuntimeException("子帳戶餘額不足");
+    private void applyWithdraw(TransactionRequest req) {
+        if (ledger != null) {
+            requireActiveUser(req.getUserId());
+            LedgerAccount account = ledger.debit(req.getSubAccountId(), req.getUserId(), req.getAmount(), "子帳戶餘額不足");
+            recordTransaction(req.getUserId(), "提款", -req.getAmount(),
+                "從「" + account.getName() + "」提領", req.getSubAccountId());
+            return;
         }
 
-        subAccount.setBalance(subAccount.getBalance() - req.getAmount());
-        subAccountRepository.save(subAccount);
+        execute(() -> {
+            // Check if user account is frozen
+            requireActiveUser(req.getUserId());
 
-        recordTransaction(req.getUserId(), "提款", -req.getAmount(), 
-            "從「" + subAccount.getName() + "」提領", req.getSubAccountId());
+            // The balance guard is part of the UPDATE, so the check and the debit are a single atomic step
+            int updated = subAccountRepository.subtractFromBalance(req.getSubAccountId(), req.getUserId(), req.getAmount());
+            String subAccountName = subAccountRepository.findNameByIdAndUserId(req.getSubAccountId(), req.getUserId())
+                    .orElseThrow(() -> new RuntimeException("子帳戶不存在"));
+            if (updated == 0) {
+                throw new RuntimeException("子帳戶餘額不足");
+            }
+
+            recordTransaction(req.getUserId(), "提款", -req.getAmount(),
+                "從「" + subAccountName + "」提領", req.getSubAccountId());
+        });
     }
 
     public void transfer(TransactionRequest req) {
+        bankMetrics.timeOperation("transfer", () -> applyTransfer(req));
+    }
+
+    private void applyTransfer(TransactionRequest req) {
         String cleanAccount = req.getRecipientAccountNumber().replace("-", "").replace(" ", "");
-        
+
         if (cleanAccount.equals(req.getUserId())) {
             throw new RuntimeException("不能轉帳給自己");
         }
-        
-        // Check if sender account is frozen
-        User sender = userRepository.findById(req.getUserId())
-                .orElseThrow(() -> new RuntimeException("用戶不存在"));
-        if (sender.getStatus() == com.bank.system.enums.UserStatus.frozen) {
-            throw new RuntimeException("帳戶已被凍結");
+
+        if (ledger != null) {
+            requireActiveUser(req.getUserId());
+            User recipient = userRepository.findById(cleanAccount)
+                    .orElseThrow(() -> new RuntimeException("收款帳號不存在"));
+
+            String senderAccountId = findPrimarySubAccountId(req.getUserId());
+            if (senderAccountId == null) throw new RuntimeException("找不到付款帳戶");
+            String recipientAccountId = findPrimarySubAccountId(recipient.getId());
+            if (recipientAccountId == null) throw new RuntimeException("找不到收款帳戶");
+
+            ledger.transfer(senderAccountId, req.getUserId(), recipientAccountId, recipient.getId(),
+                    req.getAmount(), "餘額不足");
+            recordTransferSideEffects(req, cleanAccount, senderAccountId, recipientAccountId);
+            return;
+        }
+
+        execute(() -> {
+            // Check if sender account is frozen
+            requireActiveUser(req.getUserId());
+
+            User recipient = userRepository.findById(cleanAccount)
+                    .orElseThrow(() -> new RuntimeException("收款帳號不存在"));
+
+            String senderAccountId = findPrimarySubAccountId(req.getUserId());
+            if (senderAccountId == null) throw new RuntimeException("找不到付款帳戶");
+            String recipientAccountId = findPrimarySubAccountId(recipient.getId());
+            if (recipientAccountId == null) throw new RuntimeException("找不到收款帳戶");
+
+            Map<String, SubAccount> accounts = loadSubAccounts(senderAccountId, recipientAccountId);
+            SubAccount senderAccount = accounts.get(senderAccountId);
+            SubAccount recipientAccount = accounts.get(recipientAccountId);
+
+            if (senderAccount.getBalance() < req.getAmount()) {
+                throw new RuntimeException("餘額不足");
+            }
+
+            senderAccount.setBalance(senderAccount.getBalance() - req.getAmount());
+            recipientAccount.setBalance(recipientAccount.getBalance() + req.getAmount());
+
+            subAccountRepository.save(senderAccount);
+            subAccountRepository.save(recipientAccount);
+
+            recordTransferSideEffects(req, cleanAccount, senderAccountId, recipientAccountId);
+        });
+    }
+
+    /**
+     * Transfers from the sender's primary sub-account to many recipients. Recipients and their primary
+     * sub-accounts are resolved with one IN query each, then the items are applied in chunks of
+     * app.transaction.batch.chunk-size, one transaction per chunk. Items succeed or fail individually and the
+     * result has one entry per item in request order; a chunk that can't commit fails all of its items.
+     */
+    public List<BatchTransferResult> batchTransfer(BatchTransferRequest req) {
+        return bankMetrics.timeOperation("batch_transfer", () -> applyBatchTransfer(req));
+    }
+
+    private List<BatchTransferResult> applyBatchTransfer(BatchTransferRequest req) {
+        List<BatchTransferItem> items = req.getTransfers() != null ? req.getTransfers() : List.of();
+        if (items.isEmpty()) throw new RuntimeException("轉帳清單不可為空");
+        if (items.size() > batchMaxItems) throw new RuntimeException("單次最多 " + batchMaxItems + " 筆轉帳");
+
+        String senderId = req.getUserId();
+        requireActiveUser(senderId);
+        String senderAccountId = findPrimarySubAccountId(senderId);
+        if (senderAccountId == null) throw new RuntimeException("找不到付款帳戶");
+
+        String[] errors = new String[items.size()];
+        String[] recipientIds = new String[items.size()];
+        Set<String> distinctRecipients = new LinkedHashSet<>();
+        for (int i = 0; i < items.size(); i++) {
+            BatchTransferItem item = items.get(i);
+            String account = item.getRecipientAccountNumber();
+            recipientIds[i] = account != null ? account.replace("-", "").replace(" ", "") : null;
+            if (recipientIds[i] == null || recipientIds[i].isEmpty()) {
+                errors[i] = "收款帳號不存在";
+            } else if (item.getAmount() == null || item.getAmount() <= 0) {
+                errors[i] = "金額必須大於 0";
+            } else if (recipientIds[i].equals(senderId)) {
+                errors[i] = "不能轉帳給自己";
+            } else {
+                distinctRecipients.add(recipientIds[i]);
+            }
         }
 
-        User recipient = userRepository.findById(cleanAccount)
-                .orElseThrow(() -> new RuntimeException("收款帳號不存在"));
+        Set<String> existingRecipients = distinctRecipients.isEmpty()
+                ? Set.of() : Set.copyOf(userRepository.findExistingIds(distinctRecipients));
+        Map<String, String> recipientAccounts = new HashMap<>();
+        if (!existingRecipients.isEmpty()) {
+            for (SubAccountRefView ref : subAccountRepository.findPrimaryByUserIds(existingRecipients)) {
+                recipientAccounts.putIfAbsent(ref.getUserId(), ref.getId());
+            }
+        }
+
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            if (errors[i] != null) continue;
+            if (!existingRecipients.contains(recipientIds[i])) {
+                errors[i] = "收款帳號不存在";
+            } else if (!recipientAccounts.containsKey(recipientIds[i])) {
+                errors[i] = "找不到收款帳戶";
+            } else {
+                pending.add(i);
+            }
+        }
 
-        List<SubAccount> senderAccounts = subAccountRepository.findByUserIdOrderByCreatedAt(req.getUserId());
-        if (senderAccounts.isEmpty()) throw new RuntimeException("找不到付款帳戶");
-        SubAccount senderAccount = senderAccounts.get(0);
+        for (int from = 0; from < pending.size(); from += batchChunkSize) {
+            List<Integer> chunk = pending.subList(from, Math.min(from + batchChunkSize, pending.size()));
+            Map<Integer, String> chunkErrors = new HashMap<>();
+            try {
+                if (ledger != null) {
+                    applyLedgerBatchChunk(senderId, senderAccountId, chunk, items, recipientIds, recipientAccounts, chunkErrors);
+                } else {
+                    execute(() -> applyBatchChunk(senderId, senderAccountId, chunk, items, recipientIds,
+                            recipientAccounts, chunkErrors));
+                }
+                chunkErrors.forEach((i, error) -> errors[i] = error);
+            } catch (RuntimeException ex) {
+                chunk.forEach(i -> errors[i] = ex.getMessage());
+            }
+        }
 
-        if (senderAccount.getBalance() < req.getAmount()) {
-            throw new RuntimeException("餘額不足");
+        List<BatchTransferResult> results = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            BatchTransferResult result = new BatchTransferResult();
+            result.setIndex(i);
+            result.setRecipientAccountNumber(recipientIds[i]);
+            result.setAmount(items.get(i).getAmount());
+            result.setSuccess(errors[i] == null);
+            result.setError(errors[i]);
+            results.add(result);
         }
+        return results;
+    }
 
-        List<SubAccount> recipientAccounts = subAccountRepository.findByUserIdOrderByCreatedAt(recipient.getId());
-        if (recipientAccounts.isEmpty()) throw new RuntimeException("找不到收款帳戶");
-        SubAccount recipientAccount = recipientAccounts.get(0);
+    private void applyBatchChunk(String senderId, String senderAccountId, List<Integer> chunk,
+                                 List<BatchTransferItem> items, String[] recipientIds,
+                                 Map<String, String> recipientAccounts, Map<Integer, String> errors) {
+        // Runs again from scratch when the chunk is retried
+        errors.clear();
 
-        senderAccount.setBalance(senderAccount.getBalance() - req.getAmount());
-        recipientAccount.setBalance(recipientAccount.getBalance() + req.getAmount());
-        
-        subAccountRepository.save(senderAccount);
-        subAccountRepository.save(recipientAccount);
+        List<String> accountIds = new ArrayList<>(chunk.size() + 1);
+        accountIds.add(senderAccountId);
+        chunk.forEach(i -> accountIds.add(recipientAccounts.get(recipientIds[i])));
+        // One IN query for the whole chunk; pessimistic mode locks the rows in id order, and optimistic mode
+        // flushes the version-checked updates in id order (hibernate.order_updates)
+        Map<String, SubAccount> accounts = loadSubAccounts(accountIds.toArray(String[]::new));
+        SubAccount sender = accounts.get(senderAccountId);
 
+        List<Transaction> rows = new ArrayList<>(chunk.size() * 2);
+        for (int i : chunk) {
+            long amount = items.get(i).getAmount();
+            if (sender.getBalance() < amount) {
+                errors.put(i, "餘額不足");
+                continue;
+            }
+            SubAccount recipient = accounts.get(recipientAccounts.get(recipientIds[i]));
+            sender.setBalance(sender.getBalance() - amount);
+            recipient.setBalance(recipient.getBalance() + amount);
+            rows.addAll(transferTransactions(senderId, senderAccountId, recipientIds[i], recipient.getId(), amount));
+        }
+        recordTransactions(rows);
+    }
+
+    private void applyLedgerBatchChunk(String senderId, String senderAccountId, List<Integer> chunk,
+                                       List<BatchTransferItem> items, String[] recipientIds,
+                                       Map<String, String> recipientAccounts, Map<Integer, String> errors) {
+        // The in-memory ledger has no transaction to batch into, so items are applied one by one
+        List<Transaction> rows = new ArrayList<>(chunk.size() * 2);
+        for (int i : chunk) {
+            long amount = items.get(i).getAmount();
+            try {
+                String recipientAccountId = recipientAccounts.get(recipientIds[i]);
+                ledger.transfer(senderAccountId, senderId, recipientAccountId, recipientIds[i], amount, "餘額不足");
+                rows.addAll(transferTransactions(senderId, senderAccountId, recipientIds[i], recipientAccountId, amount));
+            } catch (RuntimeException ex) {
+                errors.put(i, ex.getMessage());
+            }
+        }
+        recordTransactions(rows);
+    }
+
+    public void transferBetweenSubAccounts(TransactionRequest req) {
+        bankMetrics.timeOperation("internal_transfer", () -> applyTransferBetweenSubAccounts(req));
+    }
+
+    private void applyTransferBetweenSubAccounts(TransactionRequest req) {
+        if (ledger != null) {
+            ledger.transfer(req.getFromSubAccountId(), req.getUserId(), req.getToSubAccountId(), req.getUserId(),
+                    req.getAmount(), "子帳戶餘額不足");
+            LedgerAccount from = ledger.get(req.getFromSubAccountId(), req.getUserId());
+            LedgerAccount to = ledger.get(req.getToSubAccountId(), req.getUserId());
+            recordInternalTransfer(req, from.getName(), to.getName());
+            return;
+        }
+
+        execute(() -> {
+            Map<String, SubAccount> accounts = loadSubAccounts(req.getFromSubAccountId(), req.getToSubAccountId());
+            SubAccount from = requireOwned(accounts.get(req.getFromSubAccountId()), req.getUserId());
+            SubAccount to = requireOwned(accounts.get(req.getToSubAccountId()), req.getUserId());
+
+            if (from.getBalance() < req.getAmount()) throw new RuntimeException("子帳戶餘額不足");
+
+            from.setBalance(from.getBalance() - req.getAmount());
+            to.setBalance(to.getBalance() + req.getAmount());
+
+            subAccountRepository.save(from);
+            subAccountRepository.save(to);
+
+            recordInternalTransfer(req, from.getName(), to.getName());
+        });
+    }
+
+    /**
+     * The history shows one row that leaves the user's total unchanged (amount 0, the amount is in the note);
+     * the balance entries record the debit and the credit.
+     */
+    private void recordInternalTransfer(TransactionRequest req, String fromName, String toName) {
+        Transaction tx = newTransaction(req.getUserId(), "內部轉帳", 0L,
+                "從「" + fromName + "」轉至「" + toName + "」NT$ " + req.getAmount(), req.getFromSubAccountId());
+        recordTransactions(List.of(tx), List.of(
+                balanceHistoryService.newEntry(tx, req.getFromSubAccountId(), -req.getAmount()),
+                balanceHistoryService.newEntry(tx, req.getToSubAccountId(), req.getAmount())));
+    }
+
+    private void recordTransferSideEffects(TransactionRequest req, String cleanAccount,
+                                           String senderAccountId, String recipientAccountId) {
         if (req.isSaveAsFavorite()) {
             FavoriteAccount fav = new FavoriteAccount();
             fav.setUserId(req.getUserId());
@@ -110,43 +393,137 @@ public class TransactionService {
             favoriteAccountRepository.save(fav);
         }
 
-        String maskAccount = cleanAccount.substring(0, 4) + "****" + cleanAccount.substring(cleanAccount.length() - 4);
-        recordTransaction(req.getUserId(), "轉帳支出", -req.getAmount(), 
-            "轉給 " + maskAccount, null);
+        recordTransactions(transferTransactions(req.getUserId(), senderAccountId, cleanAccount, recipientAccountId,
+                req.getAmount()));
+    }
 
-        String maskSender = req.getUserId().substring(0, 4) + "****" + req.getUserId().substring(req.getUserId().length() - 4);
-        recordTransaction(cleanAccount, "轉帳收入", req.getAmount(), 
-            "來自 " + maskSender, null);
+    /** The two rows of a transfer: the sender's debit and the recipient's credit. */
+    List<Transaction> transferTransactions(String senderId, String senderAccountId, String recipientId,
+                                           String recipientAccountId, Long amount) {
+        String maskAccount = recipientId.substring(0, 4) + "****" + recipientId.substring(recipientId.length() - 4);
+        String maskSender = senderId.substring(0, 4) + "****" + senderId.substring(senderId.length() - 4);
+        return List.of(
+            newTransaction(senderId, "轉帳支出", -amount, "轉給 " + maskAccount, senderAccountId),
+            newTransaction(recipientId, "轉帳收入", amount, "來自 " + maskSender, recipientAccountId));
     }
-    
-    public void transferBetweenSubAccounts(TransactionRequest req) {
-        SubAccount from = subAccountRepository.findByIdAndUserId(req.getFromSubAccountId(), req.getUserId()).orElseThrow();
-        SubAccount to = subAccountRepository.findByIdAndUserId(req.getToSubAccountId(), req.getUserId()).orElseThrow();
-        
-        if (from.getBalance() < req.getAmount()) throw new RuntimeException("子帳戶餘額不足");
-        
-        from.setBalance(from.getBalance() - req.getAmount());
-        to.setBalance(to.getBalance() + req.getAmount());
-        
-        subAccountRepository.save(from);
-        subAccountRepository.save(to);
-        
-        recordTransaction(req.getUserId(), "內部轉帳", 0L, 
-            "從「" + from.getName() + "」轉至「" + to.getName() + "」NT$ " + req.getAmount(), null);
+
+    private User requireActiveUser(String userId) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("用戶不存在"));
+        if (user.getStatus() == com.bank.system.enums.UserStatus.frozen) {
+            throw new RuntimeException("帳戶已被凍結");
+        }
+        return user;
+    }
+
+    /**
+     * Runs the operation in a new transaction. Version conflicts (optimistic mode) and lock failures
+     * (pessimistic mode) roll back and retry the whole operation, up to app.transaction.max-attempts times.
+     */
+    private void execute(Runnable operation) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    operation.run();
+                    // Committed together with the balance change, so a committed request always has its key
+                    idempotencyService.recordInCurrentTransaction();
+                });
+                return;
+            } catch (ConcurrencyFailureException ex) {
+                if (attempt >= maxAttempts) {
+                    throw new RuntimeException("交易處理繁忙，請稍後再試");
+                }
+                backoff(attempt);
+            }
+        }
+    }
+
+    private void backoff(int attempt) {
+        try {
+            // Randomized so that colliding requests don't retry in lockstep
+            Thread.sleep(ThreadLocalRandom.current().nextLong(1, 5L << attempt));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("交易已中斷");
+        }
+    }
+
+    /**
+     * Loads the given sub-accounts by id. In pessimistic mode the rows are locked in ascending id order,
+     * so concurrent transfers A->B and B->A always acquire their locks in the same order.
+     */
+    private Map<String, SubAccount> loadSubAccounts(String... ids) {
+        List<String> idList = List.of(ids).stream().distinct().toList();
+        List<SubAccount> accounts = concurrencyMode == ConcurrencyMode.pessimistic
+                ? subAccountRepository.findAllByIdForUpdate(idList)
+                : subAccountRepository.findAllById(idList);
+        if (accounts.size() != idList.size()) {
+            throw new RuntimeException("子帳戶不存在");
+        }
+        return accounts.stream().collect(Collectors.toMap(SubAccount::getId, Function.identity()));
+    }
+
+    private SubAccount requireOwned(SubAccount subAccount, String userId) {
+        if (!subAccount.getUser().getId().equals(userId)) {
+            throw new RuntimeException("子帳戶不存在");
+        }
+        return subAccount;
+    }
+
+    public String findPrimarySubAccountId(String userId) {
+        List<String> ids = subAccountRepository.findIdsByUserIdOrderByCreatedAt(userId, PageRequest.of(0, 1));
+        return ids.isEmpty() ? null : ids.get(0);
     }
 
     private void recordTransaction(String userId, String type, Long amount, String note, String subAccountId) {
+        recordTransactions(List.of(newTransaction(userId, type, amount, note, subAccountId)));
+    }
+
+    Transaction newTransaction(String userId, String type, Long amount, String note, String subAccountId) {
         Transaction tx = new Transaction();
-        tx.setId(UUID.randomUUID().toString());
+        tx.setId(idGenerator.nextId());
         User user = new User();
         user.setId(userId);
         tx.setUser(user);
         tx.setType(type);
         tx.setAmount(amount);
         tx.setNote(note);
-        tx.setTime(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy/MM/dd a h:mm:ss", Locale.TAIWAN)));
+        tx.setTime(LocalDateTime.now().format(TIME_FORMAT));
         tx.setTimestamp(System.currentTimeMillis());
         tx.setSubAccountId(subAccountId);
-        transactionRepository.save(tx);
+        return tx;
+    }
+
+    private void recordTransactions(List<Transaction> transactions) {
+        List<SubAccountEntry> entries = new ArrayList<>(transactions.size());
+        for (Transaction tx : transactions) {
+            if (tx.getSubAccountId() != null && tx.getAmount() != 0) {
+                entries.add(balanceHistoryService.newEntry(tx, tx.getSubAccountId(), tx.getAmount()));
+            }
+        }
+        recordTransactions(transactions, entries);
+    }
+
+    private void recordTransactions(List<Transaction> transactions, List<SubAccountEntry> entries) {
+        // Every balance change records a row for each affected user, so this covers both sides of a transfer
+        transactions.stream().map(tx -> tx.getUser().getId()).distinct()
+                .forEach(cacheInvalidator::accountSnapshotChanged);
+        bankMetrics.countTransactions(transactions);
+        userEventBroker.publishAfterCommit(transactions, entries);
+        if (ledger != null) {
+            // Persisted by the ledger's write-behind together with the balances (and the balance summary)
+            transactions.forEach(ledger::appendTransaction);
+            entries.forEach(ledger::appendEntry);
+            return;
+        }
+        balanceSummaryService.recordTransactions(transactions);
+        balanceHistoryService.recordEntries(entries);
+        if (journal != null) {
+            // Journaled (and forced) before the commit; the row reaches the transactions table via the journal drainer
+            transactions.forEach(journal::appendBeforeCommit);
+        } else {
+            // Batched by Hibernate (hibernate.jdbc.batch_size) since ids are assigned up front
+            transactionRepository.saveAll(transactions);
+        }
     }
 }
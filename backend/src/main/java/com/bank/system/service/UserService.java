@@ -1,19 +1,75 @@
 package com.bank.system.service;
 
+import com.bank.system.entity.SubAccount;
 import com.bank.system.entity.User;
+import com.bank.system.ledger.ShardedLedger;
+import com.bank.system.repository.FavoriteAccountRepository;
 import com.bank.system.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 @Service
 @Transactional
 public class UserService {
 
     @Autowired private UserRepository userRepository;
+    @Autowired private FavoriteAccountRepository favoriteAccountRepository;
+    @Autowired private BalanceSummaryService balanceSummaryService;
+    @Autowired(required = false) private ShardedLedger ledger;
 
     public User getUserById(String userId) {
         return userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("用戶不存在"));
     }
+
+    /** Loads a user together with its sub-accounts (ordered by creation) in one query. */
+    @Transactional(readOnly = true)
+    public User getUserWithSubAccountsByLoginId(String loginId) {
+        return userRepository.findWithSubAccountsByLoginId(loginId)
+                .orElseThrow(() -> new RuntimeException("用戶不存在"));
+    }
+
+    /**
+     * Account snapshot as returned by login and /api/user/{userId}: user fields, sub-accounts and favorite
+     * account ids, loaded with two queries no matter how many sub-accounts or favorites the user has.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getAccountSnapshot(String userId) {
+        User user = userRepository.findWithSubAccountsById(userId)
+                .orElseThrow(() -> new RuntimeException("用戶不存在"));
+        return toAccountSnapshot(user);
+    }
+
+    /** Builds the snapshot for a user whose sub-accounts were already fetched. */
+    @Transactional(readOnly = true)
+    public Map<String, Object> toAccountSnapshot(User user) {
+        Map<String, Object> userMap = new HashMap<>();
+        userMap.put("id", user.getId());
+        userMap.put("loginId", user.getLoginId());
+        userMap.put("realName", user.getRealName());
+        userMap.put("role", user.getRole());
+        userMap.put("status", user.getStatus());
+        userMap.put("createdAt", user.getCreatedAt());
+
+        List<SubAccount> subs = user.getSubAccounts() != null ? user.getSubAccounts() : List.of();
+        Long balance;
+        if (ledger != null) {
+            // The database copy lags behind the in-memory ledger by up to one write-behind interval
+            subs = ledger.withLiveBalances(subs);
+            balance = subs.stream().mapToLong(SubAccount::getBalance).sum();
+        } else {
+            balance = balanceSummaryService.getTotalBalance(user.getId());
+        }
+        userMap.put("subAccounts", List.copyOf(subs));
+        userMap.put("balance", balance);
+        userMap.put("favoriteAccounts", favoriteAccountRepository.findFavoriteUserIdsByUserId(user.getId()));
+        // Snapshots are cached and shared between requests, so hand out a read-only view
+        return Collections.unmodifiableMap(userMap);
+    }
 }
@@ -0,0 +1,84 @@
+package com.bank.system.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time-ordered, compact id generator (Snowflake layout: 41 bits of milliseconds since 2024-01-01, 10 bits of
+ * node id, 12 bits of per-millisecond sequence). Ids are strictly increasing per node, lock-free, and encoded
+ * as fixed-width 13-character Crockford base32 so string order matches generation order, which keeps inserts
+ * at the right edge of the clustered index.
+ */
+@Component
+public class IdGenerator {
+
+    private static final long EPOCH = 1704067200000L; // 2024-01-01T00:00:00Z
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    private final long nodeId;
+
+    // (milliseconds since EPOCH << SEQUENCE_BITS) | sequence of the last id handed out
+    private final AtomicLong lastState = new AtomicLong();
+
+    public IdGenerator(@Value("${app.id.node-id:-1}") long configuredNodeId) {
+        this.nodeId = configuredNodeId >= 0 ? configuredNodeId & MAX_NODE : defaultNodeId();
+    }
+
+    public String nextId() {
+        return encode(nextLong());
+    }
+
+    public String nextId(String prefix) {
+        return prefix + nextId();
+    }
+
+    public long nextLong() {
+        while (true) {
+            long previous = lastState.get();
+            long now = System.currentTimeMillis() - EPOCH;
+            long previousMillis = previous >>> SEQUENCE_BITS;
+            long next;
+            if (now > previousMillis) {
+                next = now << SEQUENCE_BITS;
+            } else {
+                // Same millisecond, or the clock stepped back: keep counting from the last state. When the
+                // sequence overflows this borrows the next millisecond, so ids never repeat or go backwards.
+                next = previous + 1;
+            }
+            if (lastState.compareAndSet(previous, next)) {
+                long millis = next >>> SEQUENCE_BITS;
+                long sequence = next & SEQUENCE_MASK;
+                return (millis << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+            }
+        }
+    }
+
+    static String encode(long value) {
+        char[] chars = new char[13];
+        for (int i = 12; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (value & 31)];
+            value >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    private static long defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException ex) {
+            host = "localhost";
+        }
+        String runtime = ManagementFactory.getRuntimeMXBean().getName();
+        return (host + "/" + runtime).hashCode() & MAX_NODE;
+    }
+}
@@ -0,0 +1,275 @@
+package com.bank.system.perf;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Closed-loop HTTP load driver for a backend running with the perf profile (see {@link PerfDataSeeder}).
+ * Each of {@code --concurrency} virtual threads logs in as a random seeded user and then issues operations
+ * picked by {@code --mix} weights until the run ends; requests during {@code --warmup-seconds} are not counted.
+ * Prints throughput and latency percentiles per operation.
+ *
+ * <pre>
+ * mvn -Pperf compile exec:java -Dexec.args="--concurrency=64 --duration-seconds=60"
+ * </pre>
+ *
+ * Options (defaults in brackets): --base-url [http://localhost:8081], --users [1000], --password [perf-password],
+ * --concurrency [32], --warmup-seconds [10], --duration-seconds [60], --amount [100],
+ * --mix [login:5,deposit:25,withdraw:20,transfer:25,history:25].
+ */
+public class LoadDriver {
+
+    enum Operation { login, deposit, withdraw, transfer, history }
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final String baseUrl;
+    private final int users;
+    private final String password;
+    private final int concurrency;
+    private final long warmupNanos;
+    private final long durationNanos;
+    private final long amount;
+    private final Operation[] schedule;
+
+    LoadDriver(Map<String, String> options) {
+        baseUrl = options.getOrDefault("base-url", "http://localhost:8081");
+        users = Integer.parseInt(options.getOrDefault("users", "1000"));
+        password = options.getOrDefault("password", "perf-password");
+        concurrency = Integer.parseInt(options.getOrDefault("concurrency", "32"));
+        warmupNanos = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup-seconds", "10"))).toNanos();
+        durationNanos = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration-seconds", "60"))).toNanos();
+        amount = Long.parseLong(options.getOrDefault("amount", "100"));
+        schedule = parseMix(options.getOrDefault("mix", "login:5,deposit:25,withdraw:20,transfer:25,history:25"));
+        if (users < 2) {
+            throw new IllegalArgumentException("--users must be at least 2 (transfers need a recipient)");
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        new LoadDriver(options).run();
+    }
+
+    void run() throws InterruptedException {
+        System.out.printf("Driving %s with %d clients: %ds warm-up, %ds measured%n", baseUrl, concurrency,
+                Duration.ofNanos(warmupNanos).toSeconds(), Duration.ofNanos(durationNanos).toSeconds());
+
+        long start = System.nanoTime();
+        long measureFrom = start + warmupNanos;
+        long end = measureFrom + durationNanos;
+        List<Worker> workers = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            Worker worker = new Worker(measureFrom, end);
+            workers.add(worker);
+            threads.add(Thread.ofVirtual().name("load-", i).start(worker));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        report(workers);
+    }
+
+    private final class Worker implements Runnable {
+        final long measureFrom;
+        final long end;
+        final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+        Session session;
+
+        Worker(long measureFrom, long end) {
+            this.measureFrom = measureFrom;
+            this.end = end;
+            for (Operation operation : Operation.values()) {
+                stats.put(operation, new Stats());
+            }
+        }
+
+        @Override
+        public void run() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (System.nanoTime() < end) {
+                Operation operation = session == null ? Operation.login : schedule[random.nextInt(schedule.length)];
+                long started = System.nanoTime();
+                int status;
+                try {
+                    status = execute(operation, random);
+                } catch (IOException ex) {
+                    status = -1;
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                long finished = System.nanoTime();
+                if (started >= measureFrom && finished <= end) {
+                    stats.get(operation).record(status, finished - started);
+                }
+            }
+        }
+
+        private int execute(Operation operation, ThreadLocalRandom random) throws IOException, InterruptedException {
+            switch (operation) {
+                case login -> {
+                    int user = random.nextInt(users);
+                    HttpResponse<String> response = send(post("/api/login", null,
+                            Map.of("loginId", PerfDataSeeder.loginId(user), "password", password)));
+                    if (response.statusCode() == 200) {
+                        JsonNode body = objectMapper.readTree(response.body());
+                        JsonNode account = body.path("user");
+                        session = new Session(account.path("id").asText(), body.path("token").asText(),
+                                account.path("subAccounts").path(0).path("id").asText());
+                    }
+                    return response.statusCode();
+                }
+                case deposit, withdraw -> {
+                    return send(post("/api/" + operation.name(), session.token, Map.of(
+                            "userId", session.userId, "subAccountId", session.subAccountId, "amount", amount)))
+                            .statusCode();
+                }
+                case transfer -> {
+                    String recipient;
+                    do {
+                        recipient = PerfDataSeeder.userId(random.nextInt(users));
+                    } while (recipient.equals(session.userId));
+                    return send(post("/api/transfer", session.token, Map.of(
+                            "userId", session.userId, "recipientAccountNumber", recipient, "amount", amount)))
+                            .statusCode();
+                }
+                case history -> {
+                    return send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/transactions/" + session.userId
+                                    + "/page?limit=20"))
+                            .header("Authorization", "Bearer " + session.token)
+                            .GET()
+                            .build())
+                            .statusCode();
+                }
+                default -> throw new IllegalStateException("Unknown operation " + operation);
+            }
+        }
+    }
+
+    private HttpRequest post(String path, String token, Map<String, Object> body) throws IOException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)));
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return request.build();
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void report(List<Worker> workers) {
+        double seconds = durationNanos / 1e9;
+        System.out.printf("%n%-10s %10s %8s %8s %10s %9s %9s %9s %9s %9s%n", "operation", "requests", "errors",
+                "429s", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        Stats total = new Stats();
+        for (Operation operation : Operation.values()) {
+            Stats merged = new Stats();
+            workers.forEach(worker -> merged.merge(worker.stats.get(operation)));
+            if (merged.count > 0) {
+                print(operation.name(), merged, seconds);
+                total.merge(merged);
+            }
+        }
+        print("total", total, seconds);
+    }
+
+    private static void print(String name, Stats stats, double seconds) {
+        long[] sorted = Arrays.copyOf(stats.latencies, stats.count);
+        Arrays.sort(sorted);
+        System.out.printf("%-10s %10d %8d %8d %10.1f", name, stats.count, stats.errors, stats.rejected,
+                stats.count / seconds);
+        for (double percentile : PERCENTILES) {
+            System.out.printf(" %9.2f", percentile(sorted, percentile) / 1e6);
+        }
+        System.out.printf(" %9.2f%n", sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6);
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static Operation[] parseMix(String mix) {
+        List<Operation> schedule = new ArrayList<>();
+        for (String part : mix.split(",")) {
+            String[] weighted = part.trim().split(":");
+            Operation operation = Operation.valueOf(weighted[0].trim());
+            int weight = weighted.length > 1 ? Integer.parseInt(weighted[1].trim()) : 1;
+            for (int i = 0; i < weight; i++) {
+                schedule.add(operation);
+            }
+        }
+        if (schedule.isEmpty()) {
+            throw new IllegalArgumentException("--mix selects no operations");
+        }
+        return schedule.toArray(Operation[]::new);
+    }
+
+    private record Session(String userId, String token, String subAccountId) {
+    }
+
+    /** Latencies of one operation, in nanoseconds; owned by one worker until the run is over. */
+    private static final class Stats {
+        long[] latencies = new long[1024];
+        int count;
+        long errors;
+        long rejected;
+
+        void record(int status, long nanos) {
+            if (status == 429) {
+                rejected++;
+            } else if (status < 200 || status >= 300) {
+                errors++;
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+        }
+
+        void merge(Stats other) {
+            if (count + other.count > latencies.length) {
+                latencies = Arrays.copyOf(latencies, count + other.count);
+            }
+            System.arraycopy(other.latencies, 0, latencies, count, other.count);
+            count += other.count;
+            errors += other.errors;
+            rejected += other.rejected;
+        }
+    }
+}
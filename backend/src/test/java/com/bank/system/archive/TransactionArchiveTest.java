@@ -0,0 +1,53 @@
+package com.bank.system.archive;
+
+import com.bank.system.service.TransactionHistoryService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class TransactionArchiveTest {
+
+    @Autowired private TransactionArchive archive;
+    @Autowired private TransactionHistoryService historyService;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    @DynamicPropertySource
+    static void archiveDirectory(DynamicPropertyRegistry registry) throws IOException {
+        String dir = Files.createTempDirectory("archive-test").toString();
+        registry.add("app.transactions.archive.dir", () -> dir);
+    }
+
+    @Test
+    void deletedUsersRowsLeaveTheArchiveOnlyWhenTheDeleteCommits() throws IOException {
+        YearMonth month = YearMonth.of(2020, 1);
+        long timestamp = archive.monthStart(month) + 1000;
+        archive.store(month, List.of(
+                new ArchivedTransaction("archive-1", "U-DELETED", "存款", 100L, null, "", timestamp, null),
+                new ArchivedTransaction("archive-2", "U-KEPT", "存款", 200L, null, "", timestamp, null)));
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+
+        template.executeWithoutResult(status -> {
+            historyService.deleteByUser("U-DELETED");
+            status.setRollbackOnly();
+        });
+        assertThat(archive.findByUser("U-DELETED")).hasSize(1);
+
+        template.executeWithoutResult(status -> historyService.deleteByUser("U-DELETED"));
+        assertThat(archive.findByUser("U-DELETED")).isEmpty();
+        assertThat(archive.findByUser("U-KEPT")).hasSize(1);
+    }
+}
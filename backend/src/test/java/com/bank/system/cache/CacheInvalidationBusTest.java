@@ -0,0 +1,161 @@
+package com.bank.system.cache;
+
+import com.bank.system.BankSystemApplication;
+import com.bank.system.dto.BankDTOs.RegisterRequest;
+import com.bank.system.dto.BankDTOs.TransactionRequest;
+import com.bank.system.entity.User;
+import com.bank.system.repository.CacheInvalidationRecordRepository;
+import com.bank.system.security.JwtTokenProvider;
+import com.bank.system.service.AccountSnapshotCache;
+import com.bank.system.service.AuthService;
+import com.bank.system.service.TransactionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two application contexts over one database act as two nodes: a change committed on one must evict the
+ * other's cached account snapshot, and tell the other's event streams to resync.
+ */
+class CacheInvalidationBusTest {
+
+    private final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+
+    @AfterEach
+    void stopNodes() {
+        // The first node created the schema and drops it, so it goes last
+        for (int i = nodes.size() - 1; i >= 0; i--) {
+            nodes.get(i).close();
+        }
+    }
+
+    @Test
+    void inJvmBusEvictsTheOtherNode() {
+        String database = "nodes-" + UUID.randomUUID();
+        ConfigurableApplicationContext nodeA = startNode(database, "in-jvm", "create-drop");
+        ConfigurableApplicationContext nodeB = startNode(database, "in-jvm", "none");
+        User user = register(nodeA, "in-jvm-node");
+
+        cacheSnapshot(nodeB, user, "before");
+        deposit(nodeA, user);
+
+        assertThat(cachedSnapshot(nodeB, user)).isEqualTo("reloaded");
+    }
+
+    @Test
+    void outboxBusEvictsTheOtherNodeWhenItPolls() {
+        String database = "nodes-" + UUID.randomUUID();
+        ConfigurableApplicationContext nodeA = startNode(database, "outbox", "create-drop");
+        ConfigurableApplicationContext nodeB = startNode(database, "outbox", "none");
+        User user = register(nodeA, "outbox-node");
+        nodeB.getBean(OutboxCacheInvalidationBus.class).poll();
+
+        cacheSnapshot(nodeB, user, "before");
+        deposit(nodeA, user);
+        assertThat(cachedSnapshot(nodeB, user)).isEqualTo("before");
+
+        nodeB.getBean(OutboxCacheInvalidationBus.class).poll();
+        assertThat(cachedSnapshot(nodeB, user)).isEqualTo("reloaded");
+    }
+
+    @Test
+    void inJvmBusResyncsEventStreamsOnTheOtherNode() throws Exception {
+        String database = "nodes-" + UUID.randomUUID();
+        ConfigurableApplicationContext nodeA = startNode(database, "in-jvm", "create-drop");
+        ConfigurableApplicationContext nodeB = startNode(database, "in-jvm", "none");
+        User user = register(nodeA, "in-jvm-stream");
+        String token = nodeB.getBean(JwtTokenProvider.class)
+                .generateToken(new UsernamePasswordAuthenticationToken(user.getLoginId(), null), user);
+        int port = ((ServletWebServerApplicationContext) nodeB).getWebServer().getPort();
+
+        HttpResponse<Stream<String>> stream = HttpClient.newHttpClient().sendAsync(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/events"))
+                        .header("Authorization", "Bearer " + token).build(),
+                HttpResponse.BodyHandlers.ofLines()).get(10, TimeUnit.SECONDS);
+        assertThat(stream.statusCode()).isEqualTo(200);
+        deposit(nodeA, user);
+
+        try (Stream<String> lines = stream.body()) {
+            CompletableFuture<Optional<String>> firstEvent =
+                    CompletableFuture.supplyAsync(() -> lines.filter(line -> line.startsWith("event:")).findFirst());
+            assertThat(firstEvent.get(10, TimeUnit.SECONDS)).contains("event:resync");
+        }
+    }
+
+    @Test
+    void outboxWritesEachKeyOncePerTransaction() {
+        ConfigurableApplicationContext node = startNode("nodes-" + UUID.randomUUID(), "outbox", "create-drop");
+        CacheInvalidator invalidator = node.getBean(CacheInvalidator.class);
+        CacheInvalidationRecordRepository records = node.getBean(CacheInvalidationRecordRepository.class);
+        long before = records.count();
+
+        new TransactionTemplate(node.getBean(PlatformTransactionManager.class)).executeWithoutResult(status -> {
+            invalidator.accountSnapshotChanged("100000000001", "100000000002");
+            invalidator.accountSnapshotChanged("100000000001");
+            invalidator.principalChanged("someone");
+            assertThat(records.count()).isEqualTo(before);
+        });
+
+        assertThat(records.count()).isEqualTo(before + 3);
+    }
+
+    private ConfigurableApplicationContext startNode(String database, String bus, String ddlAuto) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(BankSystemApplication.class)
+                .profiles("test")
+                .logStartupInfo(false)
+                .run("--spring.datasource.url=jdbc:h2:mem:" + database
+                                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.hibernate.ddl-auto=" + ddlAuto,
+                        "--app.cache.invalidation.bus=" + bus,
+                        // The tests poll explicitly
+                        "--app.cache.invalidation.poll-interval-ms=86400000");
+        nodes.add(context);
+        return context;
+    }
+
+    private static User register(ConfigurableApplicationContext node, String loginId) {
+        RegisterRequest req = new RegisterRequest();
+        req.setRealName(loginId);
+        req.setLoginId(loginId);
+        req.setPassword("secret");
+        req.setInitialDeposit(1000L);
+        return node.getBean(AuthService.class).register(req);
+    }
+
+    private static void deposit(ConfigurableApplicationContext node, User user) {
+        TransactionRequest req = new TransactionRequest();
+        req.setUserId(user.getId());
+        req.setSubAccountId("SUB001_" + user.getId());
+        req.setAmount(500L);
+        node.getBean(TransactionService.class).deposit(req);
+    }
+
+    private static void cacheSnapshot(ConfigurableApplicationContext node, User user, String marker) {
+        node.getBean(AccountSnapshotCache.class).get(user.getId(), id -> Map.of("marker", marker));
+    }
+
+    /** The cached snapshot's marker, or "reloaded" if it was evicted. */
+    private static Object cachedSnapshot(ConfigurableApplicationContext node, User user) {
+        return node.getBean(AccountSnapshotCache.class).get(user.getId(), id -> Map.of("marker", "reloaded")).get("marker");
+    }
+}
@@ -0,0 +1,64 @@
+package com.bank.system.controller;
+
+import com.bank.system.entity.SubAccount;
+import com.bank.system.entity.UserBalanceSummary;
+import com.bank.system.repository.SubAccountRepository;
+import com.bank.system.repository.UserBalanceSummaryRepository;
+import com.bank.system.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class AuthControllerTest {
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private ObjectMapper objectMapper;
+    @Autowired private UserRepository userRepository;
+    @Autowired private SubAccountRepository subAccountRepository;
+    @Autowired private UserBalanceSummaryRepository userBalanceSummaryRepository;
+
+    @Test
+    void registerCreatesUserWithMainSubAccount() throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"realName\":\"王小明\",\"loginId\":\"register-test\",\"password\":\"secret\",\"initialDeposit\":1500}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.user.loginId").value("register-test"))
+                .andReturn();
+
+        JsonNode body = objectMapper.readTree(result.getResponse().getContentAsString());
+        String userId = body.path("user").path("id").asText();
+        assertThat(userRepository.findById(userId)).isPresent();
+
+        SubAccount main = subAccountRepository.findById("SUB001_" + userId).orElseThrow();
+        assertThat(main.getBalance()).isEqualTo(1500L);
+        UserBalanceSummary summary = userBalanceSummaryRepository.findById(userId).orElseThrow();
+        assertThat(summary.getTotalBalance()).isEqualTo(1500L);
+        assertThat(summary.getSubAccountCount()).isEqualTo(1);
+    }
+
+    @Test
+    void registerRejectsTakenLoginId() throws Exception {
+        String request = "{\"realName\":\"陳小華\",\"loginId\":\"taken-login\",\"password\":\"secret\",\"initialDeposit\":0}";
+        mockMvc.perform(post("/api/register").contentType(MediaType.APPLICATION_JSON).content(request))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/register").contentType(MediaType.APPLICATION_JSON).content(request))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,102 @@
+package com.bank.system.controller;
+
+import com.bank.system.dto.BankDTOs.RegisterRequest;
+import com.bank.system.entity.User;
+import com.bank.system.pipeline.AccountCommandPipeline;
+import com.bank.system.repository.SubAccountRepository;
+import com.bank.system.security.JwtTokenProvider;
+import com.bank.system.service.AuthService;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Money-moving endpoints return a CompletableFuture, so the response is written on an ASYNC dispatch that
+ * JwtAuthenticationFilter (a OncePerRequestFilter) does not run for. Each case runs on the request thread and
+ * through the per-account pipeline.
+ */
+@SpringBootTest(properties = "app.transaction.pipeline.enabled=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class TransactionControllerTest {
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private AuthService authService;
+    @Autowired private JwtTokenProvider tokenProvider;
+    @Autowired private SubAccountRepository subAccountRepository;
+    @Autowired private TransactionController transactionController;
+    @Autowired private AccountCommandPipeline pipeline;
+
+    @ParameterizedTest(name = "pipeline={0}")
+    @ValueSource(booleans = {false, true})
+    void depositCompletesWithOk(boolean throughPipeline) throws Exception {
+        User user = register("deposit-" + throughPipeline);
+        String subAccountId = "SUB001_" + user.getId();
+
+        perform(throughPipeline, user, "/api/deposit",
+                "{\"userId\":\"" + user.getId() + "\",\"subAccountId\":\"" + subAccountId + "\",\"amount\":250}")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true));
+        assertThat(subAccountRepository.findById(subAccountId).orElseThrow().getBalance()).isEqualTo(1250L);
+    }
+
+    @ParameterizedTest(name = "pipeline={0}")
+    @ValueSource(booleans = {false, true})
+    void transferCompletesWithOk(boolean throughPipeline) throws Exception {
+        User sender = register("sender-" + throughPipeline);
+        User recipient = register("recipient-" + throughPipeline);
+
+        perform(throughPipeline, sender, "/api/transfer",
+                "{\"userId\":\"" + sender.getId() + "\",\"recipientAccountNumber\":\"" + recipient.getId()
+                        + "\",\"amount\":400}")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true));
+        assertThat(subAccountRepository.findById("SUB001_" + sender.getId()).orElseThrow().getBalance())
+                .isEqualTo(600L);
+        assertThat(subAccountRepository.findById("SUB001_" + recipient.getId()).orElseThrow().getBalance())
+                .isEqualTo(1400L);
+    }
+
+    /** Posts as the user and returns the result of the ASYNC dispatch that writes the response. */
+    private ResultActions perform(boolean throughPipeline, User user, String path, String body) throws Exception {
+        String token = tokenProvider.generateToken(new UsernamePasswordAuthenticationToken(user.getLoginId(), null), user);
+        // The controller runs commands on the request thread when it has no pipeline
+        ReflectionTestUtils.setField(transactionController, "pipeline", throughPipeline ? pipeline : null);
+        try {
+            MvcResult started = mockMvc.perform(post(path)
+                            .header("Authorization", "Bearer " + token)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(body))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            return mockMvc.perform(asyncDispatch(started));
+        } finally {
+            ReflectionTestUtils.setField(transactionController, "pipeline", pipeline);
+        }
+    }
+
+    private User register(String loginId) {
+        RegisterRequest req = new RegisterRequest();
+        req.setRealName(loginId);
+        req.setLoginId(loginId);
+        req.setPassword("secret");
+        req.setInitialDeposit(1000L);
+        return authService.register(req);
+    }
+}
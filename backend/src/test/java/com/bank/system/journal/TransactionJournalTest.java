@@ -0,0 +1,133 @@
+package com.bank.system.journal;
+
+import com.bank.system.dto.BankDTOs.RegisterRequest;
+import com.bank.system.dto.BankDTOs.TransactionView;
+import com.bank.system.dto.BankDTOs.TransactionRequest;
+import com.bank.system.entity.Transaction;
+import com.bank.system.entity.User;
+import com.bank.system.repository.TransactionRepository;
+import com.bank.system.service.AuthService;
+import com.bank.system.service.TransactionHistoryService;
+import com.bank.system.service.TransactionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// The scheduled drainer runs once at startup and then stays out of the way; the tests drain explicitly
+@SpringBootTest(properties = {"app.journal.enabled=true", "app.journal.drain-interval-ms=86400000"})
+@ActiveProfiles("test")
+class TransactionJournalTest {
+
+    @Autowired private TransactionJournal journal;
+    @Autowired private AuthService authService;
+    @Autowired private TransactionService transactionService;
+    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private TransactionHistoryService historyService;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void journalDirectory(DynamicPropertyRegistry registry) throws IOException {
+        String dir = Files.createTempDirectory("journal-test").toString();
+        registry.add("app.journal.dir", () -> dir);
+    }
+
+    @Test
+    void committedEntriesReachTheTableThroughTheDrainer() throws InterruptedException {
+        User user = register("journal-commit");
+        TransactionRequest req = new TransactionRequest();
+        req.setUserId(user.getId());
+        req.setSubAccountId("SUB001_" + user.getId());
+        req.setAmount(250L);
+        transactionService.deposit(req);
+
+        assertThat(transactionRepository.findByUserIdOrderByTimestampDesc(user.getId())).isEmpty();
+        // Served from the journal until it is drained
+        assertThat(historyService.findByUser(user.getId()))
+                .singleElement()
+                .satisfies(tx -> assertThat(tx.getAmount()).isEqualTo(250L));
+        assertThat(drainUntilRows(user, 1))
+                .singleElement()
+                .satisfies(tx -> assertThat(tx.getAmount()).isEqualTo(250L));
+        assertThat(journal.findUndrained(user.getId())).isEmpty();
+        assertThat(historyService.findByUser(user.getId())).hasSize(1);
+        // The recovery marker of a drained group is no longer needed
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM journal_commits", Integer.class)).isZero();
+    }
+
+    @Test
+    void entriesOfATransactionThatFailsAfterJournalingAreDropped() throws InterruptedException {
+        User user = register("journal-abort");
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+
+        assertThatThrownBy(() -> template.executeWithoutResult(status -> {
+            journal.appendBeforeCommit(entry(user, "journal-abort-1"));
+            // Runs after the journal's own beforeCommit, so the entry is already on disk when the commit fails
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    throw new IllegalStateException("commit refused");
+                }
+            });
+        })).hasMessage("commit refused");
+        template.executeWithoutResult(status -> journal.appendBeforeCommit(entry(user, "journal-abort-2")));
+        assertThat(journal.findUndrained(user.getId()))
+                .extracting(TransactionView::getId)
+                .containsExactly("journal-abort-2");
+
+        assertThat(drainUntilRows(user, 1))
+                .extracting(Transaction::getId)
+                .containsExactly("journal-abort-2");
+    }
+
+    /** Drains until the user has the expected number of rows; commit markers are forced asynchronously. */
+    private List<Transaction> drainUntilRows(User user, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        List<Transaction> rows;
+        do {
+            Thread.sleep(20);
+            journal.drain();
+            rows = transactionRepository.findByUserIdOrderByTimestampDesc(user.getId());
+        } while (rows.size() < expected && System.currentTimeMillis() < deadline);
+        // One more pass, so nothing that should have been dropped can still arrive
+        journal.drain();
+        return transactionRepository.findByUserIdOrderByTimestampDesc(user.getId());
+    }
+
+    private User register(String loginId) {
+        RegisterRequest req = new RegisterRequest();
+        req.setRealName(loginId);
+        req.setLoginId(loginId);
+        req.setPassword("secret");
+        req.setInitialDeposit(1000L);
+        return authService.register(req);
+    }
+
+    private static Transaction entry(User user, String id) {
+        Transaction tx = new Transaction();
+        tx.setId(id);
+        tx.setUser(user);
+        tx.setType("存款");
+        tx.setAmount(10L);
+        tx.setNote("journal test");
+        tx.setTime("2026/01/01 上午 9:00:00");
+        tx.setTimestamp(System.currentTimeMillis());
+        tx.setSubAccountId("SUB001_" + user.getId());
+        return tx;
+    }
+}
@@ -0,0 +1,157 @@
+package com.bank.system.ledger;
+
+import com.bank.system.dto.BankDTOs.RegisterRequest;
+import com.bank.system.dto.BankDTOs.SubAccountRequest;
+import com.bank.system.dto.BankDTOs.TransactionRequest;
+import com.bank.system.entity.SubAccount;
+import com.bank.system.entity.Transaction;
+import com.bank.system.entity.User;
+import com.bank.system.reporting.ColumnarTransactionIndex;
+import com.bank.system.repository.SubAccountRepository;
+import com.bank.system.repository.TransactionRepository;
+import com.bank.system.service.AccountService;
+import com.bank.system.service.AuthService;
+import com.bank.system.service.BalanceCheckpointer;
+import com.bank.system.service.BalanceHistoryService;
+import com.bank.system.service.TransactionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// The write-behind only runs when a test flushes, and the report index only when a test refreshes it;
+// checkpoints and the index may cover everything up to now
+@SpringBootTest(properties = {"app.ledger.engine=sharded", "app.ledger.flush-interval-ms=86400000",
+        "app.balance-history.checkpoint.settle-ms=0", "app.reports.enabled=true",
+        "app.reports.initial-delay-ms=86400000", "app.reports.settle-ms=0"})
+@ActiveProfiles("test")
+class ShardedLedgerTest {
+
+    @Autowired private ShardedLedger ledger;
+    @Autowired private LedgerWriteBehind writeBehind;
+    @Autowired private BalanceCheckpointer checkpointer;
+    @Autowired private BalanceHistoryService balanceHistoryService;
+    @Autowired private ColumnarTransactionIndex reportIndex;
+    @Autowired private AuthService authService;
+    @Autowired private AccountService accountService;
+    @Autowired private TransactionService transactionService;
+    @Autowired private SubAccountRepository subAccountRepository;
+    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    @Test
+    void deleteChecksTheLiveBalanceAndClosesTheAccount() {
+        User user = register("ledger-delete");
+        SubAccount sub = createSubAccount(user);
+        deposit(user, sub, 100L);
+
+        // The deposit is only in memory so far; the database row still says 0
+        assertThatThrownBy(() -> accountService.deleteSubAccount(sub.getId(), user.getId()))
+                .hasMessage("請先將此帳戶餘額轉出或提領完畢");
+
+        withdraw(user, sub, 100L);
+        accountService.deleteSubAccount(sub.getId(), user.getId());
+
+        assertThat(subAccountRepository.findById(sub.getId())).isEmpty();
+        assertThatThrownBy(() -> deposit(user, sub, 50L)).hasMessage("子帳戶不存在");
+        assertThatThrownBy(() -> ledger.get(sub.getId(), user.getId())).hasMessage("子帳戶不存在");
+    }
+
+    @Test
+    void accountReopensWhenTheDeleteRollsBack() {
+        User user = register("ledger-rollback");
+        SubAccount sub = createSubAccount(user);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            accountService.deleteSubAccount(sub.getId(), user.getId());
+            assertThatThrownBy(() -> ledger.credit(sub.getId(), user.getId(), 50L)).hasMessage("子帳戶不存在");
+            status.setRollbackOnly();
+        });
+
+        assertThat(subAccountRepository.findById(sub.getId())).isPresent();
+        deposit(user, sub, 50L);
+        assertThat(ledger.get(sub.getId(), user.getId()).getBalance()).isEqualTo(50L);
+    }
+
+    @Test
+    void checkpointStopsBeforeEntriesTheWriteBehindHasNotWritten() {
+        User user = register("ledger-checkpoint");
+        SubAccount sub = createSubAccount(user);
+        deposit(user, sub, 50L);
+        writeBehind.flush();
+        deposit(user, sub, 100L);
+
+        // The second entry is still queued; a checkpoint covering its time would never count it
+        checkpointer.checkpoint();
+        writeBehind.flush();
+
+        assertThat(balanceHistoryService.balanceAt(sub.getId(), System.currentTimeMillis())).isEqualTo(150L);
+    }
+
+    @Test
+    void reportIndexStopsBeforeTransactionsTheWriteBehindHasNotWritten() throws InterruptedException {
+        User user = register("ledger-report");
+        SubAccount sub = createSubAccount(user);
+        writeBehind.flush();
+        reportIndex.refresh();
+        deposit(user, sub, 100L);
+        Thread.sleep(5);
+        transactionRepository.save(laterRow(user));
+        Thread.sleep(5);
+
+        // The deposit row is still queued; loading the later row would move the watermark past it for good
+        assertThat(reportIndex.refresh()).isZero();
+        writeBehind.flush();
+        Thread.sleep(5);
+
+        assertThat(reportIndex.refresh()).isEqualTo(2);
+    }
+
+    private static Transaction laterRow(User user) {
+        Transaction tx = new Transaction();
+        tx.setId("report-later-row");
+        tx.setUser(user);
+        tx.setType("DEPOSIT");
+        tx.setAmount(1L);
+        tx.setTime("later");
+        tx.setTimestamp(System.currentTimeMillis());
+        return tx;
+    }
+
+    private SubAccount createSubAccount(User user) {
+        SubAccountRequest req = new SubAccountRequest();
+        req.setUserId(user.getId());
+        req.setName("second");
+        return accountService.createSubAccount(req);
+    }
+
+    private void deposit(User user, SubAccount sub, long amount) {
+        transactionService.deposit(request(user, sub, amount));
+    }
+
+    private void withdraw(User user, SubAccount sub, long amount) {
+        transactionService.withdraw(request(user, sub, amount));
+    }
+
+    private static TransactionRequest request(User user, SubAccount sub, long amount) {
+        TransactionRequest req = new TransactionRequest();
+        req.setUserId(user.getId());
+        req.setSubAccountId(sub.getId());
+        req.setAmount(amount);
+        return req;
+    }
+
+    private User register(String loginId) {
+        RegisterRequest req = new RegisterRequest();
+        req.setRealName(loginId);
+        req.setLoginId(loginId);
+        req.setPassword("secret");
+        req.setInitialDeposit(1000L);
+        return authService.register(req);
+    }
+}
@@ -0,0 +1,33 @@
+package com.bank.system.perf;
+
+import com.bank.system.repository.SubAccountRepository;
+import com.bank.system.repository.TransactionRepository;
+import com.bank.system.repository.UserBalanceSummaryRepository;
+import com.bank.system.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// A chunk and a half of users, so both a full and a partial chunk are seeded
+@SpringBootTest(properties = {"app.perf.seed.users=300", "app.perf.seed.sub-accounts-per-user=2",
+        "app.perf.seed.transactions-per-user=3"})
+@ActiveProfiles({"perf", "test"})
+class PerfDataSeederTest {
+
+    @Autowired private UserRepository userRepository;
+    @Autowired private SubAccountRepository subAccountRepository;
+    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private UserBalanceSummaryRepository summaryRepository;
+
+    @Test
+    void seedsEveryUserWithSubAccountsHistoryAndSummary() {
+        assertThat(userRepository.count()).isEqualTo(300);
+        assertThat(subAccountRepository.count()).isEqualTo(600);
+        assertThat(transactionRepository.count()).isEqualTo(900);
+        assertThat(subAccountRepository.countByUserId(PerfDataSeeder.userId(299))).isEqualTo(2);
+        assertThat(summaryRepository.findById(PerfDataSeeder.userId(0)).orElseThrow().getSubAccountCount()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,117 @@
+package com.bank.system.service;
+
+import com.bank.system.dto.BankDTOs.RegisterRequest;
+import com.bank.system.entity.SubAccountEntry;
+import com.bank.system.entity.User;
+import com.bank.system.repository.SubAccountCheckpointRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Point-in-time balances from checkpoints plus entries must equal a full replay of the entries from the opening
+ * balance, at every instant, before and after the checkpointer folds entries in.
+ */
+@SpringBootTest(properties = "app.balance-history.checkpoint.settle-ms=60000")
+@ActiveProfiles("test")
+class BalanceCheckpointerTest {
+
+    private static final long OPENING_BALANCE = 1000L;
+
+    @Autowired private BalanceCheckpointer checkpointer;
+    @Autowired private BalanceHistoryService balanceHistoryService;
+    @Autowired private AuthService authService;
+    @Autowired private SubAccountCheckpointRepository checkpointRepository;
+
+    private final List<SubAccountEntry> written = new ArrayList<>();
+
+    @Test
+    void checkpointsPlusEntriesMatchFullReplay() {
+        User user = register("checkpoint-replay");
+        String subAccountId = "SUB001_" + user.getId();
+        long now = System.currentTimeMillis();
+        long opened = now - 400_000;
+
+        // Replace the opening checkpoint taken at registration with one far enough back to place entries after it
+        balanceHistoryService.deleteForSubAccount(subAccountId);
+        balanceHistoryService.saveCheckpoint(subAccountId, user.getId(), OPENING_BALANCE, opened);
+        record(subAccountId, user, now - 300_000, 500);
+        record(subAccountId, user, now - 200_000, -200);
+        record(subAccountId, user, now - 100_000, 40);
+        // Inside the settle window: the first run must leave it out of its checkpoint
+        record(subAccountId, user, now - 30_000, 70);
+
+        checkpointer.checkpoint();
+        assertThat(checkpointRepository.findLatestBySubAccountIds(List.of(subAccountId)))
+                .singleElement()
+                .satisfies(latest -> {
+                    assertThat(latest.getAsOf()).isLessThan(now - 30_000);
+                    assertThat(latest.getBalance()).isEqualTo(OPENING_BALANCE + 500 - 200 + 40);
+                });
+
+        // Committed after the first run's cutoff
+        record(subAccountId, user, now - 10_000, -15);
+        assertMatchesReplay(subAccountId, opened, System.currentTimeMillis());
+
+        // Fold everything in, the entries after the first cutoff exactly once
+        ReflectionTestUtils.setField(checkpointer, "settleMillis", 0L);
+        try {
+            checkpointer.checkpoint();
+        } finally {
+            ReflectionTestUtils.setField(checkpointer, "settleMillis", 60_000L);
+        }
+        assertThat(checkpointRepository.findLatestBySubAccountIds(List.of(subAccountId)))
+                .singleElement()
+                .satisfies(latest -> assertThat(latest.getBalance()).isEqualTo(replay(latest.getAsOf())));
+        assertMatchesReplay(subAccountId, opened, System.currentTimeMillis());
+    }
+
+    private void assertMatchesReplay(String subAccountId, long opened, long until) {
+        List<Long> instants = new ArrayList<>(List.of(opened, until));
+        for (SubAccountEntry entry : written) {
+            instants.add(entry.getTimestamp() - 1);
+            instants.add(entry.getTimestamp());
+            instants.add(entry.getTimestamp() + 1);
+        }
+        for (long at = opened; at <= until; at += 7_919) {
+            instants.add(at);
+        }
+        for (long at : instants) {
+            assertThat(balanceHistoryService.balanceAt(subAccountId, at)).as("balance at %d", at).isEqualTo(replay(at));
+        }
+    }
+
+    private long replay(long at) {
+        return OPENING_BALANCE + written.stream()
+                .filter(entry -> entry.getTimestamp() <= at)
+                .mapToLong(SubAccountEntry::getAmount)
+                .sum();
+    }
+
+    private void record(String subAccountId, User user, long timestamp, long amount) {
+        SubAccountEntry entry = new SubAccountEntry();
+        entry.setId(subAccountId + "-" + timestamp);
+        entry.setSubAccountId(subAccountId);
+        entry.setUserId(user.getId());
+        entry.setAmount(amount);
+        entry.setTimestamp(timestamp);
+        balanceHistoryService.recordEntries(List.of(entry));
+        written.add(entry);
+    }
+
+    private User register(String loginId) {
+        RegisterRequest req = new RegisterRequest();
+        req.setRealName(loginId);
+        req.setLoginId(loginId);
+        req.setPassword("secret");
+        req.setInitialDeposit(OPENING_BALANCE);
+        return authService.register(req);
+    }
+}
@@ -0,0 +1,169 @@
+package com.bank.system.service;
+
+import com.bank.system.dto.BankDTOs.RegisterRequest;
+import com.bank.system.dto.BankDTOs.TransactionRequest;
+import com.bank.system.entity.User;
+import com.bank.system.enums.ConcurrencyMode;
+import com.bank.system.repository.SubAccountRepository;
+import com.bank.system.repository.TransactionRepository;
+import com.bank.system.repository.UserBalanceSummaryRepository;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Concurrent withdrawals and transfers in both directions between two users, once per concurrency mode.
+ * Withdrawals alone ask for more than twice the money available, so the balance guard is exercised as well;
+ * whatever succeeded has to add up exactly. Throughput of each run is printed.
+ */
+@SpringBootTest(properties = "app.transaction.max-attempts=10")
+@ActiveProfiles("test")
+class ConcurrencyStressTest {
+
+    private static final int THREADS = 16;
+    private static final int OPERATIONS_PER_THREAD = 30;
+    private static final long INITIAL_BALANCE = 2_000;
+    private static final long AMOUNT = 40;
+
+    @Autowired private AuthService authService;
+    @Autowired private TransactionService transactionService;
+    @Autowired private SubAccountRepository subAccountRepository;
+    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private UserBalanceSummaryRepository userBalanceSummaryRepository;
+
+    @Value("${app.transaction.concurrency-mode}")
+    private ConcurrencyMode configuredMode;
+
+    @ParameterizedTest
+    @EnumSource(ConcurrencyMode.class)
+    void concurrentWithdrawalsAndTransfersLoseNoUpdates(ConcurrencyMode mode) throws Exception {
+        User alice = register(mode + "-alice");
+        User bob = register(mode + "-bob");
+        String aliceAccount = "SUB001_" + alice.getId();
+        String bobAccount = "SUB001_" + bob.getId();
+
+        AtomicInteger aliceWithdrawals = new AtomicInteger();
+        AtomicInteger bobWithdrawals = new AtomicInteger();
+        AtomicInteger aliceToBob = new AtomicInteger();
+        AtomicInteger bobToAlice = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        ReflectionTestUtils.setField(transactionService, "concurrencyMode", mode);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        long elapsedNanos;
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                workers.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        try {
+                            switch ((thread + i) % 4) {
+                                case 0 -> {
+                                    transactionService.withdraw(withdrawal(alice.getId(), aliceAccount));
+                                    aliceWithdrawals.incrementAndGet();
+                                }
+                                case 1 -> {
+                                    transactionService.transfer(transfer(alice.getId(), bob.getId()));
+                                    aliceToBob.incrementAndGet();
+                                }
+                                case 2 -> {
+                                    transactionService.transfer(transfer(bob.getId(), alice.getId()));
+                                    bobToAlice.incrementAndGet();
+                                }
+                                default -> {
+                                    transactionService.withdraw(withdrawal(bob.getId(), bobAccount));
+                                    bobWithdrawals.incrementAndGet();
+                                }
+                            }
+                        } catch (RuntimeException ex) {
+                            // Insufficient balance, or retries exhausted; neither may change anything
+                            rejected.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            long started = System.nanoTime();
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(2, TimeUnit.MINUTES);
+            }
+            elapsedNanos = System.nanoTime() - started;
+        } finally {
+            pool.shutdown();
+            ReflectionTestUtils.setField(transactionService, "concurrencyMode", configuredMode);
+        }
+
+        int committed = aliceWithdrawals.get() + bobWithdrawals.get() + aliceToBob.get() + bobToAlice.get();
+        int operations = THREADS * OPERATIONS_PER_THREAD;
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("%s: %d operations (%d committed, %d rejected) on %d threads in %.0f ms, %.0f ops/s%n",
+                mode, operations, committed, rejected.get(), THREADS, seconds * 1000, operations / seconds);
+
+        long aliceBalance = subAccountRepository.findById(aliceAccount).orElseThrow().getBalance();
+        long bobBalance = subAccountRepository.findById(bobAccount).orElseThrow().getBalance();
+
+        assertThat(aliceBalance).isGreaterThanOrEqualTo(0);
+        assertThat(bobBalance).isGreaterThanOrEqualTo(0);
+        assertThat(aliceBalance).isEqualTo(INITIAL_BALANCE
+                + AMOUNT * (bobToAlice.get() - aliceToBob.get() - aliceWithdrawals.get()));
+        assertThat(bobBalance).isEqualTo(INITIAL_BALANCE
+                + AMOUNT * (aliceToBob.get() - bobToAlice.get() - bobWithdrawals.get()));
+
+        assertThat(committed).isPositive();
+        assertThat(rejected.get()).isPositive();
+        assertThat(committed + rejected.get()).isEqualTo(operations);
+        // One row per withdrawal and one per side of a transfer, besides nothing from the rejected attempts
+        assertThat(transactionRepository.findByUserIdOrderByTimestampDesc(alice.getId()))
+                .hasSize(aliceWithdrawals.get() + aliceToBob.get() + bobToAlice.get());
+        assertThat(transactionRepository.findByUserIdOrderByTimestampDesc(bob.getId()))
+                .hasSize(bobWithdrawals.get() + aliceToBob.get() + bobToAlice.get());
+        assertThat(userBalanceSummaryRepository.findById(alice.getId()).orElseThrow().getTotalBalance())
+                .isEqualTo(aliceBalance);
+        assertThat(userBalanceSummaryRepository.findById(bob.getId()).orElseThrow().getTotalBalance())
+                .isEqualTo(bobBalance);
+    }
+
+    private User register(String loginId) {
+        RegisterRequest req = new RegisterRequest();
+        req.setRealName(loginId);
+        req.setLoginId(loginId);
+        req.setPassword("secret");
+        req.setInitialDeposit(INITIAL_BALANCE);
+        return authService.register(req);
+    }
+
+    private static TransactionRequest withdrawal(String userId, String subAccountId) {
+        TransactionRequest req = new TransactionRequest();
+        req.setUserId(userId);
+        req.setSubAccountId(subAccountId);
+        req.setAmount(AMOUNT);
+        return req;
+    }
+
+    private static TransactionRequest transfer(String senderId, String recipientId) {
+        TransactionRequest req = new TransactionRequest();
+        req.setUserId(senderId);
+        req.setRecipientAccountNumber(recipientId);
+        req.setAmount(AMOUNT);
+        return req;
+    }
+}
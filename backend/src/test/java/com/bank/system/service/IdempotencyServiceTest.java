@@ -0,0 +1,149 @@
+package com.bank.system.service;
+
+import com.bank.system.BankSystemApplication;
+import com.bank.system.dto.BankDTOs.RegisterRequest;
+import com.bank.system.dto.BankDTOs.TransactionRequest;
+import com.bank.system.entity.SubAccount;
+import com.bank.system.entity.User;
+import com.bank.system.repository.SubAccountRepository;
+import com.bank.system.repository.TransactionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class IdempotencyServiceTest {
+
+    @Autowired private IdempotencyService idempotencyService;
+    @Autowired private TransactionService transactionService;
+    @Autowired private AuthService authService;
+    @Autowired private SubAccountRepository subAccountRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @SpyBean private BalanceSummaryService balanceSummaryService;
+
+    @Test
+    void retriedAttemptInsertsTheKeyAgainInsteadOfMergingOverAnotherNodesRow() {
+        User user = register(authService, "idempotency-retry");
+        TransactionRequest req = deposit(user);
+
+        String keyId = user.getId() + ":retry-key";
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicReference<String> requestHash = new AtomicReference<>();
+        doAnswer(invocation -> {
+            if (attempts.incrementAndGet() == 1) {
+                // The key row gets inserted, then the commit loses a version race: the attempt rolls back and retries
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void beforeCommit(boolean readOnly) {
+                        requestHash.set(jdbcTemplate.queryForObject(
+                                "SELECT request_hash FROM idempotency_keys WHERE id = ?", String.class, keyId));
+                        throw new ObjectOptimisticLockingFailureException(SubAccount.class, req.getSubAccountId());
+                    }
+                });
+            } else {
+                // Meanwhile another node ran the same request and committed the key
+                commitOnAnotherNode(keyId, requestHash.get());
+            }
+            return invocation.callRealMethod();
+        }).when(balanceSummaryService).recordTransactions(any());
+
+        ResponseEntity<?> response = idempotencyService.execute(user.getId(), "retry-key", "deposit", req,
+                () -> transactionService.deposit(req));
+
+        assertThat(attempts.get()).isEqualTo(2);
+        // The retry hit the other node's row and replayed its outcome instead of depositing a second time
+        assertThat(response.getStatusCode().value()).isEqualTo(200);
+        assertThat(response.getHeaders().getFirst("Idempotent-Replayed")).isEqualTo("true");
+        SubAccount account = subAccountRepository.findById(req.getSubAccountId()).orElseThrow();
+        assertThat(account.getBalance()).isEqualTo(1000L);
+    }
+
+    @Test
+    void duplicateRacingOnTwoNodesMovesMoneyOnce() {
+        // Two application contexts over one database act as two nodes
+        String database = "idempotency-" + UUID.randomUUID();
+        try (ConfigurableApplicationContext nodeA = startNode(database, "create-drop");
+             ConfigurableApplicationContext nodeB = startNode(database, "none")) {
+            User user = register(nodeA.getBean(AuthService.class), "idempotency-race");
+            TransactionRequest req = deposit(user);
+            IdempotencyService idempotencyA = nodeA.getBean(IdempotencyService.class);
+            IdempotencyService idempotencyB = nodeB.getBean(IdempotencyService.class);
+            AtomicReference<ResponseEntity<?>> responseB = new AtomicReference<>();
+
+            // Node A has found no record for the key and starts executing; node B (on its own thread, as the
+            // nodes would be separate processes) runs the same request to completion before A writes its key
+            ResponseEntity<?> responseA = idempotencyA.execute(user.getId(), "race-key", "deposit", req, () -> {
+                responseB.set(CompletableFuture.supplyAsync(() -> idempotencyB.execute(user.getId(), "race-key",
+                        "deposit", req, () -> nodeB.getBean(TransactionService.class).deposit(req))).join());
+                nodeA.getBean(TransactionService.class).deposit(req);
+            });
+
+            assertThat(responseB.get().getStatusCode().value()).isEqualTo(200);
+            assertThat(responseB.get().getHeaders().getFirst("Idempotent-Replayed")).isNull();
+            // A's key insert failed on B's row, so A rolled back its deposit and replayed B's outcome
+            assertThat(responseA.getStatusCode().value()).isEqualTo(200);
+            assertThat(responseA.getHeaders().getFirst("Idempotent-Replayed")).isEqualTo("true");
+            assertThat(nodeA.getBean(SubAccountRepository.class).findById(req.getSubAccountId()).orElseThrow()
+                    .getBalance()).isEqualTo(1300L);
+            assertThat(nodeA.getBean(TransactionRepository.class).findByUserIdOrderByTimestampDesc(user.getId()))
+                    .hasSize(1);
+        }
+    }
+
+    private void commitOnAnotherNode(String id, String requestHash) {
+        TransactionTemplate other = new TransactionTemplate(transactionManager);
+        other.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        other.executeWithoutResult(status -> jdbcTemplate.update(
+                "INSERT INTO idempotency_keys (id, request_hash, status_code, response_body, created_at) VALUES (?, ?, ?, ?, ?)",
+                id, requestHash, 200, "{\"success\":true}", System.currentTimeMillis()));
+    }
+
+    private static ConfigurableApplicationContext startNode(String database, String ddlAuto) {
+        return new SpringApplicationBuilder(BankSystemApplication.class)
+                .profiles("test")
+                .logStartupInfo(false)
+                .run("--spring.datasource.url=jdbc:h2:mem:" + database
+                                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.hibernate.ddl-auto=" + ddlAuto);
+    }
+
+    private static User register(AuthService authService, String loginId) {
+        RegisterRequest req = new RegisterRequest();
+        req.setRealName(loginId);
+        req.setLoginId(loginId);
+        req.setPassword("secret");
+        req.setInitialDeposit(1000L);
+        return authService.register(req);
+    }
+
+    private static TransactionRequest deposit(User user) {
+        TransactionRequest req = new TransactionRequest();
+        req.setUserId(user.getId());
+        req.setSubAccountId("SUB001_" + user.getId());
+        req.setAmount(300L);
+        return req;
+    }
+}
@@ -69,8 +69,8 @@ export const useBankStore = defineStore('bank', {
         // Store JWT token
         this.authToken = data.token
 
-        // 計算總餘額
-        if (data.user.subAccounts && data.user.subAccounts.length > 0) {
+        // 計算總餘額（後端未提供時才自行加總）
+        if (data.user.balance == null && data.user.subAccounts && data.user.subAccounts.length > 0) {
           data.user.balance = data.user.subAccounts.reduce((sum, sub) => sum + sub.balance, 0)
         }
 
@@ -105,8 +105,8 @@ export const useBankStore = defineStore('bank', {
         const data = await response.json()
 
         if (response.ok) {
-          // 計算總餘額
-          if (data.subAccounts && data.subAccounts.length > 0) {
+          // 計算總餘額（後端未提供時才自行加總）
+          if (data.balance == null && data.subAccounts && data.subAccounts.length > 0) {
             data.balance = data.subAccounts.reduce((sum, sub) => sum + sub.balance, 0)
           }
           this.currentUser = data